@@ -13,6 +13,10 @@
 package io.usethesource.vallang;
 
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import io.usethesource.vallang.exceptions.FactTypeUseException;
 import io.usethesource.vallang.type.Type;
@@ -164,4 +168,28 @@ public interface IList extends IListAlgebra<IList>, Iterable<IValue>, IValue {
     
     public IListRelation<IList> asRelation();
 
+    /**
+     * The default splits the iteration in batches; implementations override this with a
+     * spliterator that splits their underlying data structure.
+     */
+    @Override
+    public default Spliterator<IValue> spliterator() {
+        return Spliterators.spliterator(iterator(), length(),
+            Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    }
+
+    /**
+     * @return a sequential stream of the elements of this list
+     */
+    public default Stream<IValue> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * @return a parallel stream of the elements of this list
+     */
+    public default Stream<IValue> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
 }
\ No newline at end of file
@@ -14,6 +14,10 @@ package io.usethesource.vallang;
 
 import java.util.Iterator;
 import java.util.Map.Entry;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import io.usethesource.vallang.type.Type;
 
@@ -127,5 +131,31 @@ public interface IMap extends Iterable<IValue>, IValue {
      * @return an iterator over the keys-value pairs of the map
      */
     public Iterator<Entry<IValue, IValue>> entryIterator();
+
+    /**
+     * The default splits the iteration in batches; implementations override this with a
+     * spliterator that splits their underlying data structure.
+     * 
+     * @return a spliterator over the keys of the map
+     */
+    @Override
+    public default Spliterator<IValue> spliterator() {
+        return Spliterators.spliterator(iterator(), size(),
+            Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    }
+
+    /**
+     * @return a sequential stream of the keys of the map
+     */
+    public default Stream<IValue> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * @return a parallel stream of the keys of the map
+     */
+    public default Stream<IValue> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
 	
 }
@@ -12,6 +12,11 @@
 
 package io.usethesource.vallang;
 
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 import io.usethesource.vallang.type.Type;
 
 public interface ISet extends ISetAlgebra<ISet>, Iterable<IValue>, IValue {
@@ -92,5 +97,29 @@ public interface ISet extends ISetAlgebra<ISet>, Iterable<IValue>, IValue {
     public boolean isRelation();
     
     public ISetRelation<ISet> asRelation();
+
+    /**
+     * The default splits the iteration in batches; implementations override this with a
+     * spliterator that splits their underlying data structure.
+     */
+    @Override
+    public default Spliterator<IValue> spliterator() {
+        return Spliterators.spliterator(iterator(), size(),
+            Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    }
+
+    /**
+     * @return a sequential stream of the elements of this set
+     */
+    public default Stream<IValue> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * @return a parallel stream of the elements of this set
+     */
+    public default Stream<IValue> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
     
 }
@@ -12,6 +12,9 @@
 
 package io.usethesource.vallang;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public interface IString extends IValue {
 	/**
 	 * @return the Java string that this string represents
@@ -76,4 +79,15 @@ public interface IString extends IValue {
      * @return
      */
     IString replace(int first, int second, int end, IString repl);
+
+    /**
+     * Writes the characters of this string to a writer, without necessarily
+     * building the Java string that {@link #getValue()} returns first.
+     * 
+     * @param writer the target
+     * @throws IOException when writing fails
+     */
+    default void write(Writer writer) throws IOException {
+        writer.write(getValue());
+    }
 }
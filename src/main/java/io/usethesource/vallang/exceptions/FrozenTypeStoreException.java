@@ -0,0 +1,9 @@
+package io.usethesource.vallang.exceptions;
+
+public class FrozenTypeStoreException extends FactTypeDeclarationException {
+	private static final long serialVersionUID = -6140362823153452271L;
+
+	public FrozenTypeStoreException() {
+		super("Can not add declarations to a frozen TypeStore");
+	}
+}
@@ -15,6 +15,7 @@ import java.util.Iterator;
 
 import io.usethesource.capsule.Map;
 import io.usethesource.vallang.exceptions.FactTypeUseException;
+import io.usethesource.vallang.impl.util.sharing.IShareable;
 import io.usethesource.vallang.type.TypeStore;
 import io.usethesource.vallang.IAnnotatable;
 import io.usethesource.vallang.IConstructor;
@@ -26,7 +27,7 @@ import io.usethesource.vallang.io.StandardTextWriter;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.visitors.IValueVisitor;
 
-public class AnnotatedConstructorFacade implements IConstructor {
+public class AnnotatedConstructorFacade implements IConstructor, IShareable {
 
 	protected final IConstructor content;
 	protected final Map.Immutable<String, IValue> annotations;
@@ -20,11 +20,12 @@ import io.usethesource.vallang.IList;
 import io.usethesource.vallang.INode;
 import io.usethesource.vallang.IWithKeywordParameters;
 import io.usethesource.vallang.exceptions.FactTypeUseException;
+import io.usethesource.vallang.impl.util.sharing.IShareable;
 import io.usethesource.vallang.io.StandardTextWriter;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.visitors.IValueVisitor;
 
-public class AnnotatedNodeFacade implements INode {
+public class AnnotatedNodeFacade implements INode, IShareable {
 
 	protected final INode content;
 	protected final Map.Immutable<String, IValue> annotations;
@@ -26,11 +26,12 @@ import io.usethesource.vallang.IList;
 import io.usethesource.vallang.IWithKeywordParameters;
 import io.usethesource.vallang.exceptions.FactTypeUseException;
 import io.usethesource.vallang.impl.func.ConstructorFunctions;
+import io.usethesource.vallang.impl.util.sharing.IShareable;
 import io.usethesource.vallang.io.StandardTextWriter;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.visitors.IValueVisitor;
 
-public class ConstructorWithKeywordParametersFacade implements IConstructor {
+public class ConstructorWithKeywordParametersFacade implements IConstructor, IShareable {
 	protected final IConstructor content;
 	protected final io.usethesource.capsule.Map.Immutable<String, IValue> parameters;
 	
@@ -23,11 +23,12 @@ import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.IWithKeywordParameters;
 import io.usethesource.vallang.exceptions.FactTypeUseException;
 import io.usethesource.vallang.impl.func.NodeFunctions;
+import io.usethesource.vallang.impl.util.sharing.IShareable;
 import io.usethesource.vallang.io.StandardTextWriter;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.visitors.IValueVisitor;
 
-public class NodeWithKeywordParametersFacade implements INode {
+public class NodeWithKeywordParametersFacade implements INode, IShareable {
 	protected final INode content;
 	protected final Map.Immutable<String, IValue> parameters;
 	
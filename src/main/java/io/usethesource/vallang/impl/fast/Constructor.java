@@ -28,6 +28,7 @@ import io.usethesource.vallang.impl.AbstractValue;
 import io.usethesource.vallang.impl.AnnotatedConstructorFacade;
 import io.usethesource.vallang.impl.ConstructorWithKeywordParametersFacade;
 import io.usethesource.vallang.impl.func.ConstructorFunctions;
+import io.usethesource.vallang.impl.util.sharing.IShareable;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.type.TypeFactory;
 import io.usethesource.vallang.type.TypeStore;
@@ -45,7 +46,7 @@ import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
  * @author Jurgen Vinju (specialisations)
  */
 /*package*/ class Constructor {
-	private static abstract class AbstractConstructor extends AbstractValue implements IConstructor {
+	private static abstract class AbstractConstructor extends AbstractValue implements IConstructor, IShareable {
 	    protected final Type constructorType;
 	    private int hashCode;
 
@@ -101,6 +102,14 @@ import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
             return ConstructorFunctions.match(this, value);
         }
 	    
+	    /**
+	     * Only compares hash codes which have been cached already, since computing them would cost
+	     * as much as comparing the children.
+	     */
+	    protected final boolean hashCodesDiffer(AbstractConstructor other) {
+	        return hashCode != 0 && other.hashCode != 0 && hashCode != other.hashCode;
+	    }
+
 	    @Override
         public int hashCode(){
             if (hashCode == 0) {
@@ -127,6 +136,10 @@ import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
 	                return false;
 	            }
 
+	            if (hashCodesDiffer(otherTree)) {
+	                return false;
+	            }
+
 	            Iterator<IValue> children = iterator();
 	            Iterator<IValue> other = otherTree.iterator();
 
@@ -357,7 +370,7 @@ import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
             }
             Constructor1 otherTree = (Constructor1) o;
 
-            if (constructorType != otherTree.constructorType) {
+            if (constructorType != otherTree.constructorType || hashCodesDiffer(otherTree)) {
                 return false;
             }
 
@@ -414,7 +427,7 @@ import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
             }
             Constructor2 otherTree = (Constructor2) o;
 
-            if (constructorType != otherTree.constructorType) {
+            if (constructorType != otherTree.constructorType || hashCodesDiffer(otherTree)) {
                 return false;
             }
 
@@ -476,7 +489,7 @@ import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
             }
             Constructor3 otherTree = (Constructor3) o;
 
-            if (constructorType != otherTree.constructorType) {
+            if (constructorType != otherTree.constructorType || hashCodesDiffer(otherTree)) {
                 return false;
             }
 
@@ -543,7 +556,7 @@ import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
             }
             Constructor4 otherTree = (Constructor4) o;
 
-            if (constructorType != otherTree.constructorType) {
+            if (constructorType != otherTree.constructorType || hashCodesDiffer(otherTree)) {
                 return false;
             }
 
@@ -615,7 +628,7 @@ import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
             }
             Constructor5 otherTree = (Constructor5) o;
 
-            if (constructorType != otherTree.constructorType) {
+            if (constructorType != otherTree.constructorType || hashCodesDiffer(otherTree)) {
                 return false;
             }
 
@@ -692,7 +705,7 @@ import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
       }
       Constructor6 otherTree = (Constructor6) o;
 
-      if (constructorType != otherTree.constructorType) {
+      if (constructorType != otherTree.constructorType || hashCodesDiffer(otherTree)) {
         return false;
       }
 
@@ -774,7 +787,7 @@ import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
             }
             Constructor7 otherTree = (Constructor7) o;
 
-            if (constructorType != otherTree.constructorType) {
+            if (constructorType != otherTree.constructorType || hashCodesDiffer(otherTree)) {
                 return false;
             }
 
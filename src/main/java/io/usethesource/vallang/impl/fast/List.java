@@ -14,6 +14,7 @@ package io.usethesource.vallang.impl.fast;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.Spliterator;
 
 import io.usethesource.vallang.IList;
 import io.usethesource.vallang.IListRelation;
@@ -100,6 +101,11 @@ import io.usethesource.vallang.impl.func.ListFunctions;
 		return data.iterator();
 	}
 	
+	@Override
+	public Spliterator<IValue> spliterator(){
+		return data.spliterator();
+	}
+	
 	public <T, E extends Throwable> T accept(IValueVisitor<T,E> v) throws E{
 			return v.visitList(this);
 	}
@@ -300,8 +306,8 @@ import io.usethesource.vallang.impl.func.ListFunctions;
 			return data.equals(otherList.data);
 		}
 		
-		if(o instanceof SubList){
-			IList otherList = (SubList) o;
+		if(o instanceof IList){
+			IList otherList = (IList) o;
 			if (getType() != otherList.getType()) return false;
 			
 			if (hashCode() != otherList.hashCode()) return false;
@@ -27,6 +27,7 @@ import io.usethesource.vallang.IListWriter;
  */
 /*package*/ class ListWriter implements IListWriter{
 	protected Type elementType;
+	private Type lastElementType = null;
 	protected final boolean inferred;
 	
 	protected final ShareableValuesList data;
@@ -73,7 +74,11 @@ import io.usethesource.vallang.IListWriter;
 	
 	private void updateType(IValue element) {
 		if (inferred) {
-			elementType = elementType.lub(element.getType());
+			Type type = element.getType();
+			if (type != lastElementType) {
+				lastElementType = type;
+				elementType = elementType.lub(type);
+			}
 		}
 	}
 
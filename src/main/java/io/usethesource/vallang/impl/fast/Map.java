@@ -13,6 +13,7 @@ package io.usethesource.vallang.impl.fast;
 
 import java.util.Iterator;
 import java.util.Map.Entry;
+import java.util.Spliterator;
 
 import io.usethesource.vallang.IMap;
 import io.usethesource.vallang.IValue;
@@ -78,6 +79,11 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		return data.keysIterator();
 	}
 	
+	@Override
+	public Spliterator<IValue> spliterator(){
+		return data.keysSpliterator();
+	}
+	
 	public Iterator<Entry<IValue, IValue>> entryIterator(){
 		return data.entryIterator();
 	}
@@ -31,6 +31,8 @@ import io.usethesource.vallang.type.Type;
 /*package*/ class MapWriter implements IMapWriter{
 	protected Type keyType;
 	protected Type valueType;
+	private Type lastKeyType = null;
+	private Type lastValueType = null;
 	
 	protected final ShareableValuesHashMap data;
 	
@@ -71,8 +73,17 @@ import io.usethesource.vallang.type.Type;
 	}
 	
 	private void updateTypes(IValue key, IValue value) {
-	    keyType = keyType.lub(key.getType());
-	    valueType = valueType.lub(value.getType());
+	    Type kt = key.getType();
+	    if (kt != lastKeyType) {
+	        lastKeyType = kt;
+	        keyType = keyType.lub(kt);
+	    }
+	    
+	    Type vt = value.getType();
+	    if (vt != lastValueType) {
+	        lastValueType = vt;
+	        valueType = valueType.lub(vt);
+	    }
 	}
 
 	@Override
@@ -118,7 +129,6 @@ import io.usethesource.vallang.type.Type;
 			
 			IValue key = tuple.get(0);
 			IValue value2 = tuple.get(1);
-			updateTypes(key,value2);
 			put(key, value2);
 		}
 	}
@@ -139,7 +149,6 @@ import io.usethesource.vallang.type.Type;
 			
 			IValue key = tuple.get(0);
 			IValue value2 = tuple.get(1);
-			updateTypes(key,value2);
 			put(key, value2);
 		}
 	}
@@ -166,15 +175,16 @@ import io.usethesource.vallang.type.Type;
 					
 					keyType = voidType;
 					valueType = voidType;
+					lastKeyType = null;
+					lastValueType = null;
 					
 					for (Iterator<Entry<IValue, IValue>> it = data.entryIterator(); it.hasNext(); ) {
 						final Entry<IValue, IValue> currentEntry = it.next();
 						
-						keyType = keyType.lub(currentEntry.getKey().getType());
-						valueType = valueType.lub(currentEntry.getValue().getType());
-						
-						mapType = TypeFactory.getInstance().mapType(keyType, mapType.getKeyLabel(), valueType, mapType.getValueLabel());
+						updateTypes(currentEntry.getKey(), currentEntry.getValue());
 					}
+					
+					mapType = TypeFactory.getInstance().mapType(keyType, mapType.getKeyLabel(), valueType, mapType.getValueLabel());
 				}
 				
 				constructedMap = Map.newMap(mapType, data);
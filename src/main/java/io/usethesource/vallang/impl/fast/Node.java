@@ -21,6 +21,7 @@ import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.IValueFactory;
 import io.usethesource.vallang.impl.AbstractNode;
 import io.usethesource.vallang.impl.func.NodeFunctions;
+import io.usethesource.vallang.impl.util.sharing.IShareable;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.type.TypeFactory;
 import io.usethesource.vallang.visitors.IValueVisitor;
@@ -30,12 +31,14 @@ import io.usethesource.vallang.visitors.IValueVisitor;
  * 
  * @author Arnold Lankamp
  */
-/*package*/ class Node extends AbstractNode implements INode {
+/*package*/ class Node extends AbstractNode implements INode, IShareable {
 	protected final static Type NODE_TYPE = TypeFactory.getInstance().nodeType();
 	protected final static Type VALUE_TYPE = TypeFactory.getInstance().valueType();
 	
 	protected final String name;
 	protected final IValue[] children;
+	
+	private int hashCode = 0;
 
 	/*package*/ static INode newNode(String name, IValue[] children) {
 		return new Node(name, children);
@@ -126,15 +129,24 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		return v.visitNode(this);
 	}	
 
+	/**
+	 * The hash code is computed once and cached, such that deep trees used as keys in hash-based
+	 * collections do not pay for a full traversal on every lookup.
+	 */
 	@Override
 	public int hashCode(){
-		int hash = name.hashCode();
-		
-		for(int i = children.length - 1; i >= 0; i--){
-			hash = (hash << 23) + (hash >> 5);
-			hash ^= children[i].hashCode();
+		if (hashCode == 0) {
+			int hash = name.hashCode();
+
+			for(int i = children.length - 1; i >= 0; i--){
+				hash = (hash << 23) + (hash >> 5);
+				hash ^= children[i].hashCode();
+			}
+			
+			hashCode = hash;
 		}
-		return hash;
+		
+		return hashCode;
 	}
 
 	@Override
@@ -156,6 +168,11 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		if (name != other.name) {
 		  return false; 
 		}
+		
+		// only compare cached hash codes, computing them would cost as much as the comparison below
+		if (hashCode != 0 && other.hashCode != 0 && hashCode != other.hashCode) {
+		  return false;
+		}
 
 		IValue[] otherChildren = other.children;
 		int nrOfChildren = children.length;
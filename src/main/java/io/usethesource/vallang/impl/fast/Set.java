@@ -12,6 +12,7 @@
 package io.usethesource.vallang.impl.fast;
 
 import java.util.Iterator;
+import java.util.Spliterator;
 
 import io.usethesource.vallang.ISet;
 import io.usethesource.vallang.ISetRelation;
@@ -75,6 +76,11 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		return data.iterator();
 	}
 	
+	@Override
+	public Spliterator<IValue> spliterator(){
+		return data.spliterator();
+	}
+	
 	public <T, E extends Throwable> T accept(IValueVisitor<T,E> v) throws E{
 		if (getElementType().isFixedWidth()) {
 			return v.visitRelation(this);
@@ -27,6 +27,7 @@ import io.usethesource.vallang.ISetWriter;
  */
 /*package*/ class SetWriter implements ISetWriter{
 	protected Type elementType;
+	private Type lastElementType = null;
 	protected final boolean inferred;
 	
 	protected final ShareableValuesHashSet data;
@@ -73,7 +74,11 @@ import io.usethesource.vallang.ISetWriter;
 	
 	private void updateType(IValue value) {
 		if (inferred) {
-			elementType = elementType.lub(value.getType());
+			Type type = value.getType();
+			if (type != lastElementType) {
+				lastElementType = type;
+				elementType = elementType.lub(type);
+			}
 		}
 	}
 
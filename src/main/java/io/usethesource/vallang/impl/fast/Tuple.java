@@ -16,6 +16,7 @@ import java.util.NoSuchElementException;
 import io.usethesource.vallang.ITuple;
 import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.impl.AbstractValue;
+import io.usethesource.vallang.impl.util.sharing.IShareable;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.type.TypeFactory;
 import io.usethesource.vallang.visitors.IValueVisitor;
@@ -25,12 +26,13 @@ import io.usethesource.vallang.visitors.IValueVisitor;
  * 
  * @author Arnold Lankamp
  */
-/*package*/ class Tuple extends AbstractValue implements ITuple{
+/*package*/ class Tuple extends AbstractValue implements ITuple, IShareable{
 	
 	protected final static TypeFactory typeFactory = TypeFactory.getInstance();
 
 	private Type cachedTupleType;
 	protected final IValue[] elements;
+	private int hashCode = 0;
 
 	public static ITuple newTuple(IValue... elements) {
 		return new Tuple(elements);
@@ -136,14 +138,17 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 	}
 
 	public int hashCode() {
-		int hash = 1331;
+		if (hashCode == 0) {
+			int hash = 1331;
 
-		for (int i = elements.length - 1; i >= 0; i--) {
-			hash -= (hash << 19) + (hash >>> 8);
-			hash ^= elements[i].hashCode();
-		}
+			for (int i = elements.length - 1; i >= 0; i--) {
+				hash -= (hash << 19) + (hash >>> 8);
+				hash ^= elements[i].hashCode();
+			}
 
-		return hash - (hash << 7);
+			hashCode = hash - (hash << 7);
+		}
+		return hashCode;
 	}
 
 	public boolean equals(Object o) {
@@ -0,0 +1,884 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.impl.persistent;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import io.usethesource.capsule.util.EqualityComparator;
+
+import io.usethesource.vallang.ISet;
+import io.usethesource.vallang.ISetRelation;
+import io.usethesource.vallang.ISetWriter;
+import io.usethesource.vallang.ITuple;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+import io.usethesource.vallang.exceptions.IllegalOperationException;
+import io.usethesource.vallang.impl.AbstractSet;
+import io.usethesource.vallang.impl.func.SetFunctions;
+import io.usethesource.vallang.type.Type;
+import io.usethesource.vallang.util.EqualityUtils;
+
+import static io.usethesource.vallang.impl.persistent.SetWriter.isTupleOfArityTwo;
+
+/**
+ * An immutable binary relation that is stored column-wise, outside of the Java heap.
+ * <br />
+ * <br />
+ * Every distinct value of the domain and the range is stored once in a {@link Dictionary}, which
+ * assigns it an <code>int</code> id. The tuples themselves are two sorted <code>int</code> columns
+ * in direct buffers: the domain column is run-length encoded as <code>offsets</code> (the targets
+ * of id <code>i</code> are <code>targets[offsets[i]..offsets[i + 1]]</code>, in ascending order),
+ * which makes {@link ISetRelation#index(IValue)} a view of a slice of <code>targets</code> and
+ * <code>contains</code> a binary search.
+ * A relation of <code>n</code> tuples over <code>d</code> distinct values thus takes
+ * <code>4 * (n + d + 1)</code> bytes for the columns, plus the dictionary, instead of a tuple (or
+ * multi-map entry) object per element.
+ * <br />
+ * <br />
+ * {@link ISetRelation#compose(ISetRelation)}, {@link ISetRelation#closure()},
+ * {@link ISetRelation#closureStar()} and the inverse projection work on the <code>int</code>
+ * columns directly, and their results share the dictionary of their arguments where possible.
+ * Values are identified with {@link IValue#isEqual(IValue)}, as in {@link PersistentHashSet}.
+ * Modifying operations ({@link #insert(IValue)}, {@link #union(ISet)}, ...) return the ordinary
+ * persistent sets. Tuples are only allocated while iterating.
+ * <br />
+ * <br />
+ * The direct buffers are released when the relation is garbage collected. Their total size is
+ * bounded by <code>-XX:MaxDirectMemorySize</code>, not by the heap size.
+ */
+public final class ColumnarBinaryRelation extends AbstractSet {
+
+  private static final EqualityComparator<Object> equivalenceComparator =
+      EqualityUtils.getEquivalenceComparator();
+
+  private final Dictionary dictionary;
+  private final IntBuffer offsets;
+  private final IntBuffer targets;
+  private final Type type;
+  private int hashCode = 0;
+
+  private ColumnarBinaryRelation(Dictionary dictionary, IntBuffer offsets, IntBuffer targets,
+      Type type) {
+    this.dictionary = dictionary;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.type = type;
+  }
+
+  /**
+   * Copies a binary relation into the columnar representation.
+   *
+   * @param relation a set of tuples of arity two
+   * @return the columnar version of the relation (or the empty set)
+   * @throws IllegalArgumentException if relation is not a binary relation
+   */
+  public static ISet of(ISet relation) {
+    if (relation instanceof ColumnarBinaryRelation || relation.isEmpty()) {
+      return relation;
+    }
+
+    final Type tupleType = relation.getElementType();
+    if (!isTupleOfArityTwo.test(tupleType)) {
+      throw new IllegalArgumentException("Not a binary relation: " + relation.getType());
+    }
+
+    final Dictionary.Builder dictionary = new Dictionary.Builder(relation.size());
+    final long[] pairs = new long[relation.size()];
+    int size = 0;
+
+    for (IValue element : relation) {
+      final ITuple tuple = (ITuple) element;
+      pairs[size++] = pair(dictionary.idOf(tuple.get(0)), dictionary.idOf(tuple.get(1)));
+    }
+
+    return build(dictionary.build(), pairs, size, tupleType.getOptionalFieldName(0).orElse(null),
+        tupleType.getOptionalFieldName(1).orElse(null));
+  }
+
+  private static long pair(int from, int to) {
+    return ((long) from << 32) | to;
+  }
+
+  private static int from(long pair) {
+    return (int) (pair >>> 32);
+  }
+
+  private static int to(long pair) {
+    return (int) pair;
+  }
+
+  private static IntBuffer allocate(int capacity) {
+    return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder())
+        .asIntBuffer();
+  }
+
+  /**
+   * Sorts and de-duplicates the pairs, and lays them out in columns.
+   */
+  private static ISet build(Dictionary dictionary, long[] pairs, int length, String keyLabel,
+      String valLabel) {
+    Arrays.sort(pairs, 0, length);
+
+    int size = 0;
+    for (int i = 0; i < length; i++) {
+      if (size == 0 || pairs[size - 1] != pairs[i]) {
+        pairs[size++] = pairs[i];
+      }
+    }
+
+    if (size == 0) {
+      return EmptySet.EMPTY_SET;
+    }
+
+    final int ids = dictionary.size();
+    final IntBuffer offsets = allocate(ids + 1);
+    final IntBuffer targets = allocate(size);
+    final boolean[] inRange = new boolean[ids];
+    Type keyType = getTypeFactory().voidType();
+    Type valType = getTypeFactory().voidType();
+
+    int row = 0;
+    for (int i = 0; i < size; i++) {
+      final int from = from(pairs[i]);
+      final int to = to(pairs[i]);
+
+      while (row <= from) {
+        offsets.put(row++, i);
+      }
+      if (i == 0 || from(pairs[i - 1]) != from) {
+        keyType = keyType.lub(dictionary.valueOf(from).getType());
+      }
+      if (!inRange[to]) {
+        inRange[to] = true;
+        valType = valType.lub(dictionary.valueOf(to).getType());
+      }
+      targets.put(i, to);
+    }
+    while (row <= ids) {
+      offsets.put(row++, size);
+    }
+
+    final Type type;
+    if (keyLabel != null && valLabel != null) {
+      type = getTypeFactory().relTypeFromTuple(getTypeFactory()
+          .tupleType(new Type[] {keyType, valType}, new String[] {keyLabel, valLabel}));
+    } else {
+      type = getTypeFactory().relType(keyType, valType);
+    }
+
+    return new ColumnarBinaryRelation(dictionary, offsets, targets, type);
+  }
+
+  /**
+   * Accumulates unsorted pairs of ids.
+   */
+  private static final class Pairs {
+    private long[] pairs = new long[16];
+    private int size = 0;
+
+    void add(int from, int to) {
+      if (size == pairs.length) {
+        pairs = Arrays.copyOf(pairs, size * 2);
+      }
+      pairs[size++] = pair(from, to);
+    }
+
+    ISet build(Dictionary dictionary) {
+      return ColumnarBinaryRelation.build(dictionary, pairs, size, null, null);
+    }
+  }
+
+  @Override
+  protected IValueFactory getValueFactory() {
+    return ValueFactory.getInstance();
+  }
+
+  @Override
+  public Type getType() {
+    return type;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return false;
+  }
+
+  @Override
+  public int size() {
+    return targets.capacity();
+  }
+
+  private int rowStart(int id) {
+    return offsets.get(id);
+  }
+
+  private int rowEnd(int id) {
+    return offsets.get(id + 1);
+  }
+
+  @Override
+  public boolean contains(IValue value) {
+    if (!isTupleOfArityTwo.test(value.getType())) {
+      return false;
+    }
+
+    final ITuple tuple = (ITuple) value;
+    final int from = dictionary.indexOf(tuple.get(0));
+    final int to = dictionary.indexOf(tuple.get(1));
+
+    return from != -1 && to != -1 && contains(from, to);
+  }
+
+  private boolean contains(int from, int to) {
+    return search(rowStart(from), rowEnd(from), to);
+  }
+
+  /**
+   * Binary search for id in the sorted slice <code>targets[start..end)</code>.
+   */
+  private boolean search(int start, int end, int to) {
+    int low = start;
+    int high = end - 1;
+
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int id = targets.get(mid);
+
+      if (id < to) {
+        low = mid + 1;
+      } else if (id > to) {
+        high = mid - 1;
+      } else {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  @Override
+  public Iterator<IValue> iterator() {
+    return new Iterator<IValue>() {
+      private final IValueFactory vf = getValueFactory();
+      private int row = 0;
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < size();
+      }
+
+      @Override
+      public IValue next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        while (rowEnd(row) <= index) {
+          row++;
+        }
+        return vf.tuple(dictionary.valueOf(row), dictionary.valueOf(targets.get(index++)));
+      }
+    };
+  }
+
+  @Override
+  public int hashCode() {
+    if (hashCode == 0) {
+      int result = 0;
+      for (IValue tuple : this) {
+        result += tuple.hashCode();
+      }
+      hashCode = result;
+    }
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other == this) {
+      return true;
+    }
+    if (other == null) {
+      return false;
+    }
+
+    if (other instanceof ISet) {
+      ISet that = (ISet) other;
+
+      if (this.getType() != that.getType()) {
+        return false;
+      }
+
+      if (this.size() != that.size()) {
+        return false;
+      }
+
+      for (IValue value : that) {
+        if (!contains(value)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    return false;
+  }
+
+  @Override
+  public boolean isEqual(IValue other) {
+    if (other == this) {
+      return true;
+    }
+    if (other == null) {
+      return false;
+    }
+
+    if (other instanceof ISet) {
+      ISet that = (ISet) other;
+
+      if (this.size() != that.size()) {
+        return false;
+      }
+
+      for (IValue value : that) {
+        if (!contains(value)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    return false;
+  }
+
+  @Override
+  public boolean match(IValue other) {
+    if (!(other instanceof ISet)) {
+      return false;
+    }
+    return SetFunctions.match(getValueFactory(), this, other);
+  }
+
+  /**
+   * Builds an ordinary set of the values with the marked ids.
+   */
+  private ISet valuesOf(boolean[] marked) {
+    final ISetWriter writer = getValueFactory().setWriter();
+    for (int id = 0; id < marked.length; id++) {
+      if (marked[id]) {
+        writer.insert(dictionary.valueOf(id));
+      }
+    }
+    return writer.done();
+  }
+
+  private boolean[] domainIds() {
+    final boolean[] result = new boolean[dictionary.size()];
+    for (int id = 0; id < result.length; id++) {
+      result[id] = rowStart(id) != rowEnd(id);
+    }
+    return result;
+  }
+
+  private boolean[] rangeIds(boolean[] result) {
+    for (int i = 0; i < size(); i++) {
+      result[targets.get(i)] = true;
+    }
+    return result;
+  }
+
+  private ISet inverse() {
+    final Pairs result = new Pairs();
+    for (int from = 0; from < dictionary.size(); from++) {
+      for (int i = rowStart(from); i < rowEnd(from); i++) {
+        result.add(targets.get(i), from);
+      }
+    }
+
+    final Type tupleType = getElementType();
+    return build(dictionary, result.pairs, result.size,
+        tupleType.getOptionalFieldName(1).orElse(null),
+        tupleType.getOptionalFieldName(0).orElse(null));
+  }
+
+  /**
+   * Joins the range of this relation with the domain of that relation, on ids. If both relations
+   * have a different dictionary, the values of that relation are translated into (an extension of)
+   * the dictionary of this relation first, one value at a time and only when they are reached.
+   */
+  private ISet compose(ColumnarBinaryRelation that) {
+    final boolean shared = this.dictionary == that.dictionary;
+    final int ids = this.dictionary.size();
+    final Dictionary.Builder merged = shared ? null : new Dictionary.Builder(this.dictionary);
+
+    // the id in that.dictionary for every id of this range, or -1 if it is not in that domain
+    final int[] joinIds = new int[ids];
+    // the id in the result dictionary for every id of that range, or -1 if not translated yet
+    final int[] resultIds = new int[that.dictionary.size()];
+    Arrays.fill(resultIds, -1);
+
+    for (int y = 0; y < ids; y++) {
+      joinIds[y] = shared ? y : that.dictionary.indexOf(this.dictionary.valueOf(y));
+    }
+
+    final Pairs result = new Pairs();
+    for (int x = 0; x < ids; x++) {
+      for (int i = rowStart(x); i < rowEnd(x); i++) {
+        final int y = joinIds[targets.get(i)];
+
+        if (y != -1) {
+          for (int j = that.rowStart(y); j < that.rowEnd(y); j++) {
+            final int z = that.targets.get(j);
+
+            if (resultIds[z] == -1) {
+              resultIds[z] = shared ? z : merged.idOf(that.dictionary.valueOf(z));
+            }
+            result.add(x, resultIds[z]);
+          }
+        }
+      }
+    }
+
+    if (shared || merged.size() == ids) {
+      return result.build(this.dictionary);
+    }
+    return result.build(merged.build());
+  }
+
+  /**
+   * Computes the transitive (and optionally reflexive) closure by a breadth-first traversal on
+   * ids from every value of the domain. A traversal only visits every id once, which is tracked
+   * by stamping the ids with the current source instead of clearing a visited set.
+   */
+  private ISet closure(boolean reflexive) {
+    final int ids = dictionary.size();
+    final int[] stamps = new int[ids];
+    final int[] queue = new int[ids + 1];
+    final Pairs result = new Pairs();
+
+    for (int source = 0; source < ids; source++) {
+      final int stamp = source + 1;
+      int head = 0;
+      int tail = 0;
+      queue[tail++] = source;
+
+      while (head < tail) {
+        final int from = queue[head++];
+
+        for (int i = rowStart(from); i < rowEnd(from); i++) {
+          final int to = targets.get(i);
+
+          if (stamps[to] != stamp) {
+            stamps[to] = stamp;
+            result.add(source, to);
+            queue[tail++] = to;
+          }
+        }
+      }
+    }
+
+    if (reflexive) {
+      final boolean[] carrier = rangeIds(domainIds());
+      for (int id = 0; id < ids; id++) {
+        if (carrier[id]) {
+          result.add(id, id);
+        }
+      }
+    }
+
+    return result.build(dictionary);
+  }
+
+  @Override
+  public ISetRelation<ISet> asRelation() {
+    final ColumnarBinaryRelation thisSet = this;
+
+    return new ISetRelation<ISet>() {
+
+      @Override
+      public ISet compose(ISetRelation<ISet> otherSetRelation) {
+        final ISet other = otherSetRelation.asSet();
+
+        if (other instanceof ColumnarBinaryRelation) {
+          return thisSet.compose((ColumnarBinaryRelation) other);
+        }
+        return SetFunctions.compose(getValueFactory(), thisSet, other);
+      }
+
+      @Override
+      public ISet closure() {
+        return thisSet.closure(false);
+      }
+
+      @Override
+      public ISet closureStar() {
+        return thisSet.closure(true);
+      }
+
+      @Override
+      public int arity() {
+        return 2;
+      }
+
+      @Override
+      public ISet project(int... fieldIndexes) {
+        if (Arrays.equals(fieldIndexes, new int[] {0})) {
+          return domain();
+        }
+
+        if (Arrays.equals(fieldIndexes, new int[] {1})) {
+          return range();
+        }
+
+        if (Arrays.equals(fieldIndexes, new int[] {0, 1})) {
+          return thisSet;
+        }
+
+        if (Arrays.equals(fieldIndexes, new int[] {1, 0})) {
+          return thisSet.inverse();
+        }
+
+        throw new IllegalStateException("Binary relation patterns exhausted.");
+      }
+
+      @Override
+      public ISet projectByFieldNames(String... fieldNames) {
+        final Type fieldTypeType = thisSet.getType().getFieldTypes();
+
+        if (!fieldTypeType.hasFieldNames()) {
+          throw new IllegalOperationException("select with field names", thisSet.getType());
+        }
+
+        final int[] fieldIndices =
+            Stream.of(fieldNames).mapToInt(fieldTypeType::getFieldIndex).toArray();
+
+        return project(fieldIndices);
+      }
+
+      @Override
+      public ISet carrier() {
+        return thisSet.valuesOf(thisSet.rangeIds(thisSet.domainIds()));
+      }
+
+      @Override
+      public ISet domain() {
+        return thisSet.valuesOf(thisSet.domainIds());
+      }
+
+      @Override
+      public ISet range() {
+        return thisSet.valuesOf(thisSet.rangeIds(new boolean[thisSet.dictionary.size()]));
+      }
+
+      @Override
+      public ISet asSet() {
+        return thisSet;
+      }
+
+      @Override
+      public String toString() {
+        return thisSet.toString();
+      }
+
+      @Override
+      public ISet index(IValue key) {
+        final int id = thisSet.dictionary.indexOf(key);
+
+        if (id == -1 || thisSet.rowStart(id) == thisSet.rowEnd(id)) {
+          return EmptySet.EMPTY_SET;
+        }
+        return thisSet.new Row(thisSet.rowStart(id), thisSet.rowEnd(id));
+      }
+    };
+  }
+
+  /**
+   * The (non-empty) set of values with the ids in <code>targets[start..end)</code>; a view that
+   * shares the columns and the dictionary of the relation.
+   */
+  private final class Row extends AbstractSet {
+    private final int start;
+    private final int end;
+    private Type type = null;
+    private int hashCode = 0;
+
+    Row(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected IValueFactory getValueFactory() {
+      return ValueFactory.getInstance();
+    }
+
+    @Override
+    public Type getType() {
+      if (type == null) {
+        Type lub = getTypeFactory().voidType();
+        for (int i = start; i < end; i++) {
+          lub = lub.lub(dictionary.valueOf(targets.get(i)).getType());
+        }
+        type = inferSetOrRelType(lub, false);
+      }
+      return type;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return end - start;
+    }
+
+    @Override
+    public boolean contains(IValue value) {
+      final int id = dictionary.indexOf(value);
+      return id != -1 && search(start, end, id);
+    }
+
+    @Override
+    public Iterator<IValue> iterator() {
+      return new Iterator<IValue>() {
+        private int index = start;
+
+        @Override
+        public boolean hasNext() {
+          return index < end;
+        }
+
+        @Override
+        public IValue next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return dictionary.valueOf(targets.get(index++));
+        }
+      };
+    }
+
+    @Override
+    public int hashCode() {
+      if (hashCode == 0) {
+        int result = 0;
+        for (IValue value : this) {
+          result += value.hashCode();
+        }
+        hashCode = result;
+      }
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (other == this) {
+        return true;
+      }
+      if (other == null) {
+        return false;
+      }
+
+      if (other instanceof ISet) {
+        ISet that = (ISet) other;
+
+        if (this.getType() != that.getType()) {
+          return false;
+        }
+
+        if (this.size() != that.size()) {
+          return false;
+        }
+
+        for (IValue value : that) {
+          if (!contains(value)) {
+            return false;
+          }
+        }
+
+        return true;
+      }
+
+      return false;
+    }
+
+    @Override
+    public boolean isEqual(IValue other) {
+      if (other == this) {
+        return true;
+      }
+      if (other == null) {
+        return false;
+      }
+
+      if (other instanceof ISet) {
+        ISet that = (ISet) other;
+
+        if (this.size() != that.size()) {
+          return false;
+        }
+
+        for (IValue value : that) {
+          if (!contains(value)) {
+            return false;
+          }
+        }
+
+        return true;
+      }
+
+      return false;
+    }
+
+    @Override
+    public boolean match(IValue other) {
+      if (!(other instanceof ISet)) {
+        return false;
+      }
+      return SetFunctions.match(getValueFactory(), this, other);
+    }
+  }
+
+  /**
+   * An immutable, dense numbering of values. The values themselves are heap objects; the hash
+   * table that maps them back to their id is an open addressing table in a direct buffer, which
+   * stores <code>id + 1</code> per slot (<code>0</code> marks a free slot).
+   */
+  static final class Dictionary {
+    private final IValue[] values;
+    private final IntBuffer slots;
+
+    private Dictionary(IValue[] values, IntBuffer slots) {
+      this.values = values;
+      this.slots = slots;
+    }
+
+    int size() {
+      return values.length;
+    }
+
+    IValue valueOf(int id) {
+      return values[id];
+    }
+
+    /**
+     * @return the id of value, or -1 if it is not in this dictionary
+     */
+    int indexOf(IValue value) {
+      final int mask = slots.capacity() - 1;
+
+      for (int slot = spread(value.hashCode()) & mask;; slot = (slot + 1) & mask) {
+        final int id = slots.get(slot) - 1;
+
+        if (id == -1) {
+          return -1;
+        }
+        if (equivalenceComparator.equals(values[id], value)) {
+          return id;
+        }
+      }
+    }
+
+    private static int spread(int hash) {
+      final int h = hash * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+
+    /**
+     * Numbers values in the order they are first seen, using an on-heap table which is copied into
+     * a direct buffer of the same layout by {@link #build()}.
+     */
+    static final class Builder {
+      private IValue[] values;
+      private int[] slots;
+      private int size = 0;
+
+      Builder(int expectedSize) {
+        values = new IValue[Math.max(expectedSize, 16)];
+        slots = new int[tableSize(values.length)];
+      }
+
+      /**
+       * Starts with all the values of an existing dictionary, which keep their id.
+       */
+      Builder(Dictionary prefix) {
+        this(prefix.size() * 2);
+        for (IValue value : prefix.values) {
+          idOf(value);
+        }
+      }
+
+      private static int tableSize(int capacity) {
+        return Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) * 2;
+      }
+
+      int size() {
+        return size;
+      }
+
+      /**
+       * @return the id of value, which is added to the dictionary if it was not seen before
+       */
+      int idOf(IValue value) {
+        final int mask = slots.length - 1;
+        int slot = spread(value.hashCode()) & mask;
+
+        for (;; slot = (slot + 1) & mask) {
+          final int id = slots[slot] - 1;
+
+          if (id == -1) {
+            break;
+          }
+          if (equivalenceComparator.equals(values[id], value)) {
+            return id;
+          }
+        }
+
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        slots[slot] = ++size;
+
+        if (size * 2 > slots.length) {
+          rehash(slots.length * 2);
+        }
+        return size - 1;
+      }
+
+      private void rehash(int tableSize) {
+        slots = new int[tableSize];
+        final int mask = tableSize - 1;
+
+        for (int id = 0; id < size; id++) {
+          int slot = spread(values[id].hashCode()) & mask;
+          while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+          }
+          slots[slot] = id + 1;
+        }
+      }
+
+      Dictionary build() {
+        final IntBuffer table = allocate(slots.length);
+        table.put(slots);
+        return new Dictionary(Arrays.copyOf(values, size), table);
+      }
+    }
+  }
+}
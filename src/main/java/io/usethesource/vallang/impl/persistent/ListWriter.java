@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.impl.persistent;
+
+import java.util.Iterator;
+
+import io.usethesource.vallang.IList;
+import io.usethesource.vallang.IListWriter;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.exceptions.UnexpectedElementTypeException;
+import io.usethesource.vallang.impl.util.collections.ShareableValuesList;
+import io.usethesource.vallang.type.Type;
+
+/**
+ * Buffers elements in a {@link ShareableValuesList} (which supports cheap insertion at both ends)
+ * and bulk-loads a {@link RelaxedRadixBalancedVector} once {@link #done()} is called.
+ */
+final class ListWriter implements IListWriter {
+
+  protected final ShareableValuesList data;
+
+  protected final boolean checkUpperBound;
+  protected final Type upperBoundType;
+  protected IList constructedList;
+  
+  // type of the last element that passed the upper bound check
+  private Type lastCheckedType = null;
+
+  ListWriter(Type upperBoundType) {
+    super();
+
+    this.checkUpperBound = true;
+    this.upperBoundType = upperBoundType;
+
+    data = new ShareableValuesList();
+    constructedList = null;
+  }
+
+  ListWriter() {
+    super();
+
+    this.checkUpperBound = false;
+    this.upperBoundType = null;
+
+    data = new ShareableValuesList();
+    constructedList = null;
+  }
+
+  private void checkElementType(IValue element) {
+    if (!checkUpperBound) {
+      return;
+    }
+    
+    final Type elementType = element.getType();
+
+    if (elementType != lastCheckedType) {
+      if (!elementType.isSubtypeOf(upperBoundType)) {
+        throw new UnexpectedElementTypeException(upperBoundType, elementType);
+      }
+      lastCheckedType = elementType;
+    }
+  }
+
+  @Override
+  public void append(IValue... elements) {
+    checkMutation();
+
+    for (IValue element : elements) {
+      checkElementType(element);
+    }
+    data.appendAll(elements);
+  }
+
+  @Override
+  public void appendAll(Iterable<? extends IValue> collection) {
+    checkMutation();
+
+    for (IValue element : collection) {
+      checkElementType(element);
+      data.append(element);
+    }
+  }
+
+  @Override
+  public void insert(IValue... elements) {
+    insert(elements, 0, elements.length);
+  }
+
+  @Override
+  public void insert(IValue[] elements, int start, int length) {
+    checkMutation();
+    checkBounds(elements, start, length);
+
+    for (int i = start + length - 1; i >= start; i--) {
+      checkElementType(elements[i]);
+      data.insert(elements[i]);
+    }
+  }
+
+  @Override
+  public void insertAll(Iterable<? extends IValue> collection) {
+    checkMutation();
+
+    for (IValue element : collection) {
+      checkElementType(element);
+      data.insert(element);
+    }
+  }
+
+  @Override
+  public void insertAt(int index, IValue... elements) {
+    insertAt(index, elements, 0, elements.length);
+  }
+
+  @Override
+  public void insertAt(int index, IValue[] elements, int start, int length) {
+    checkMutation();
+    checkBounds(elements, start, length);
+
+    for (int i = start + length - 1; i >= start; i--) {
+      checkElementType(elements[i]);
+      data.insertAt(index, elements[i]);
+    }
+  }
+
+  @Override
+  public IValue replaceAt(int index, IValue element) {
+    checkMutation();
+    checkElementType(element);
+
+    return data.set(index, element);
+  }
+
+  @Override
+  public IValue get(int index) throws IndexOutOfBoundsException {
+    return data.get(index);
+  }
+
+  @Override
+  public int length() {
+    return data.size();
+  }
+
+  private void checkMutation() {
+    if (constructedList != null) {
+      throw new UnsupportedOperationException("Mutation of a finalized list is not supported.");
+    }
+  }
+
+  private static void checkBounds(IValue[] elements, int start, int length) {
+    if (start < 0) {
+      throw new ArrayIndexOutOfBoundsException("start < 0");
+    }
+    if ((start + length) > elements.length) {
+      throw new ArrayIndexOutOfBoundsException("(start + length) > elements.length");
+    }
+  }
+
+  @Override
+  public IList done() {
+    if (constructedList == null) {
+      final IValue[] elements = new IValue[data.size()];
+
+      int i = 0;
+      for (Iterator<IValue> it = data.iterator(); it.hasNext();) {
+        elements[i++] = it.next();
+      }
+
+      constructedList = PersistentList.from(RelaxedRadixBalancedVector.of(elements, i));
+    }
+
+    return constructedList;
+  }
+
+  @Override
+  public String toString() {
+    return data.toString();
+  }
+
+}
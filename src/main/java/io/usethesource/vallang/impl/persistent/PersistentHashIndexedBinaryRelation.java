@@ -11,11 +11,15 @@
  *******************************************************************************/
 package io.usethesource.vallang.impl.persistent;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -24,7 +28,6 @@ import io.usethesource.capsule.Set;
 import io.usethesource.capsule.Set.Immutable;
 import io.usethesource.capsule.SetMultimap;
 import io.usethesource.capsule.util.ArrayUtilsInt;
-import io.usethesource.capsule.util.stream.CapsuleCollectors;
 import io.usethesource.vallang.IMap;
 import io.usethesource.vallang.ISet;
 import io.usethesource.vallang.ISetRelation;
@@ -45,6 +48,11 @@ import static io.usethesource.vallang.impl.persistent.SetWriter.isTupleOfArityTw
 
 public final class PersistentHashIndexedBinaryRelation extends AbstractSet {
 
+  /**
+   * Relations with at least this many tuples compute their closure in parallel.
+   */
+  private static final int PARALLEL_CLOSURE_THRESHOLD = 10_000;
+
   private Type cachedRelationType;
   private final AbstractTypeBag keyTypeBag;
   private final AbstractTypeBag valTypeBag;
@@ -352,22 +360,27 @@ public final class PersistentHashIndexedBinaryRelation extends AbstractSet {
         two = that.content;
       }
 
+      if (one == two) {
+        return def;
+      }
+
       final SetMultimap.Transient<IValue, IValue> tmp = one.asTransient();
-      boolean modified = false;
+      final Map<Type, Integer> keyDeltas = new HashMap<>();
+      final Map<Type, Integer> valDeltas = new HashMap<>();
 
       for (Map.Entry<IValue, IValue> entry : two.entrySet()) {
         final IValue key = entry.getKey();
         final IValue val = entry.getValue();
 
         if (tmp.__insert(key, val)) {
-          modified = true;
-          keyTypeBagNew = keyTypeBagNew.increase(key.getType());
-          valTypeBagNew = valTypeBagNew.increase(val.getType());
+          keyDeltas.merge(key.getType(), 1, Integer::sum);
+          valDeltas.merge(val.getType(), 1, Integer::sum);
         }
       }
 
-      if (modified) {
-        return PersistentSetFactory.from(keyTypeBagNew, valTypeBagNew, tmp.freeze());
+      if (!keyDeltas.isEmpty()) {
+        return PersistentSetFactory.from(keyTypeBagNew.update(keyDeltas),
+            valTypeBagNew.update(valDeltas), tmp.freeze());
       }
       return def;
     } else {
@@ -407,8 +420,13 @@ public final class PersistentHashIndexedBinaryRelation extends AbstractSet {
         two = this.content;
       }
 
+      if (one == two) {
+        return def;
+      }
+
       final SetMultimap.Transient<IValue, IValue> tmp = one.asTransient();
-      boolean modified = false;
+      final Map<Type, Integer> keyDeltas = new HashMap<>();
+      final Map<Type, Integer> valDeltas = new HashMap<>();
 
       for (Iterator<Map.Entry<IValue, IValue>> it = tmp.entryIterator(); it.hasNext(); ) {
         final Map.Entry<IValue, IValue> tuple = it.next();
@@ -417,14 +435,14 @@ public final class PersistentHashIndexedBinaryRelation extends AbstractSet {
 
         if (!two.containsEntry(key, val)) {
           it.remove();
-          modified = true;
-          keyTypeBagNew = keyTypeBagNew.decrease(key.getType());
-          valTypeBagNew = valTypeBagNew.decrease(val.getType());
+          keyDeltas.merge(key.getType(), -1, Integer::sum);
+          valDeltas.merge(val.getType(), -1, Integer::sum);
         }
       }
 
-      if (modified) {
-        return PersistentSetFactory.from(keyTypeBagNew, valTypeBagNew, tmp.freeze());
+      if (!keyDeltas.isEmpty()) {
+        return PersistentSetFactory.from(keyTypeBagNew.update(keyDeltas),
+            valTypeBagNew.update(valDeltas), tmp.freeze());
       }
       return def;
     } else {
@@ -456,22 +474,27 @@ public final class PersistentHashIndexedBinaryRelation extends AbstractSet {
       valTypeBagNew = this.valTypeBag;
       two = that.content;
 
+      if (one == two) {
+        return EmptySet.EMPTY_SET;
+      }
+
       final SetMultimap.Transient<IValue, IValue> tmp = one.asTransient();
-      boolean modified = false;
+      final Map<Type, Integer> keyDeltas = new HashMap<>();
+      final Map<Type, Integer> valDeltas = new HashMap<>();
 
       for (Map.Entry<IValue, IValue> tuple : two.entrySet()) {
         final IValue key = tuple.getKey();
         final IValue val = tuple.getValue();
 
         if (tmp.__remove(key, val)) {
-          modified = true;
-          keyTypeBagNew = keyTypeBagNew.decrease(key.getType());
-          valTypeBagNew = valTypeBagNew.decrease(val.getType());
+          keyDeltas.merge(key.getType(), -1, Integer::sum);
+          valDeltas.merge(val.getType(), -1, Integer::sum);
         }
       }
 
-      if (modified) {
-        return PersistentSetFactory.from(keyTypeBagNew, valTypeBagNew, tmp.freeze());
+      if (!keyDeltas.isEmpty()) {
+        return PersistentSetFactory.from(keyTypeBagNew.update(keyDeltas),
+            valTypeBagNew.update(valDeltas), tmp.freeze());
       }
       return def;
     } else {
@@ -491,6 +514,97 @@ public final class PersistentHashIndexedBinaryRelation extends AbstractSet {
     return super.isSubsetOf(that);
   }
 
+  /**
+   * Computes the transitive (and optionally reflexive) closure by a semi-naive traversal from
+   * every key of the index; see {@link #reachableFrom(SetMultimap.Immutable, IValue)}. The
+   * traversals only read the immutable index, and are spread over the common {@link ForkJoinPool}
+   * for relations of at least {@link #PARALLEL_CLOSURE_THRESHOLD} tuples.
+   */
+  @SuppressWarnings("unchecked")
+  private ISet closure(boolean reflexive) {
+    final SetMultimap.Immutable<IValue, IValue> edges = content;
+    final IValue[] sources = edges.keySet().toArray(new IValue[0]);
+
+    Stream<IValue> sourceStream = Arrays.stream(sources);
+    if (edges.size() >= PARALLEL_CLOSURE_THRESHOLD) {
+      sourceStream = sourceStream.parallel();
+    }
+
+    final Set.Immutable<IValue>[] targets = sourceStream.map(source -> reachableFrom(edges, source))
+        .toArray(Set.Immutable[]::new);
+
+    final SetMultimap.Transient<IValue, IValue> closure =
+        SetMultimap.Transient.of(equivalenceEqualityComparator);
+
+    for (int i = 0; i < sources.length; i++) {
+      final IValue source = sources[i];
+      targets[i].forEach(target -> closure.__insert(source, target));
+
+      if (reflexive) {
+        closure.__insert(source, source);
+      }
+    }
+
+    if (reflexive) {
+      edges.values().forEach(target -> closure.__insert(target, target));
+    }
+
+    return from(closure.freeze());
+  }
+
+  /**
+   * Computes the precise dynamic types of both columns, iterating per key such that neither an
+   * entry nor a tuple is allocated for each element of the relation.
+   */
+  private static ISet from(final SetMultimap.Immutable<IValue, IValue> data) {
+    final Stream.Builder<Type> keyTypes = Stream.builder();
+    final Stream.Builder<Type> valTypes = Stream.builder();
+
+    for (IValue key : data.keySet()) {
+      final Type keyType = key.getType();
+
+      for (IValue val : data.get(key)) {
+        keyTypes.add(keyType);
+        valTypes.add(val.getType());
+      }
+    }
+
+    return PersistentSetFactory.from(keyTypes.build().collect(AbstractTypeBag.toTypeBag()),
+        valTypes.build().collect(AbstractTypeBag.toTypeBag()), data);
+  }
+
+  /**
+   * Semi-naive traversal: every round only follows the outgoing edges of the values that were
+   * discovered in the previous round (the delta), instead of re-joining everything found so far.
+   *
+   * @return all values reachable from source via one or more edges
+   */
+  private static Set.Immutable<IValue> reachableFrom(final SetMultimap.Immutable<IValue, IValue> edges,
+      final IValue source) {
+    final Set.Transient<IValue> reached = Set.Transient.of();
+    List<IValue> delta = Collections.singletonList(source);
+
+    while (!delta.isEmpty()) {
+      final List<IValue> nextDelta = new ArrayList<>();
+
+      for (IValue value : delta) {
+        final Set.Immutable<IValue> successors = edges.get(value);
+
+        if (successors != null) {
+          for (IValue successor : successors) {
+            if (reached.__insertEquivalent(successor, equivalenceEqualityComparator)) {
+              nextDelta.add(successor);
+            }
+          }
+        }
+      }
+
+      delta = nextDelta;
+    }
+
+    return reached.freeze();
+  }
+
   @Override
   public ISetRelation<ISet> asRelation() {
     final PersistentHashIndexedBinaryRelation thisSet = this;
@@ -509,57 +623,37 @@ public final class PersistentHashIndexedBinaryRelation extends AbstractSet {
         final SetMultimap.Immutable<IValue, IValue> xy = thisSet.content;
         final SetMultimap.Immutable<IValue, IValue> yz = thatSet.content;
 
-        /**
-         * The code below is still sub-optimal because it operates on the logical (rather than the structural) level.
-         *
-         * TODO: nodes should get proper support for stream processing such that the following template can be used:
-         *
-         *    // @formatter:off
-         *    final Stream<BiConsumer<IValue, IValue>> localStream = null;
-         *    final Node updatedNode = localStream
-         *    .filter((x, y) -> yz.containsKey(y))
-         *    .mapValues(y -> yz.get(y))
-         *    .collect(toNode());
-         *    // @formatter:on
-         */
-        final SetMultimap.Transient<IValue, IValue> xz = xy.asTransient();
+        final SetMultimap.Transient<IValue, IValue> xz =
+            SetMultimap.Transient.of(equivalenceEqualityComparator);
 
+        /*
+         * Index nested loop join: yz is already hashed on the join key y, so it serves as the
+         * build side of a hash join without building anything. Every tuple of xy probes it once,
+         * which costs |xy| lookups plus the size of the result. Building a table on the smaller
+         * side instead would mean indexing xy on y first, which alone costs |xy| insertions, so
+         * that never wins against the existing index.
+         */
         for (IValue x : xy.keySet()) {
-          final Set.Immutable<IValue> ys = xy.get(x);
-          // TODO: simplify expression with nullable data
-          final Set.Immutable<IValue> zs = ys.stream()
-              .flatMap(y -> Optional.ofNullable(yz.get(y)).orElseGet(Set.Immutable::of).stream())
-              .collect(CapsuleCollectors.toSet());
-
-          if (zs == null) {
-            xz.__remove(x);
-          } else {
-            // xz.__put(x, zs); // TODO: requires node batch update support
-
-            xz.__remove(x);
-            zs.forEach(z -> xz.__insert(x, z));
+          for (IValue y : xy.get(x)) {
+            final Set.Immutable<IValue> zs = yz.get(y);
+
+            if (zs != null) {
+              zs.forEach(z -> xz.__insert(x, z));
+            }
           }
         }
 
-        final SetMultimap.Immutable<IValue, IValue> data = xz.freeze();
-
-        final AbstractTypeBag keyTypeBag = data.entrySet().stream().map(Map.Entry::getKey)
-            .map(IValue::getType).collect(AbstractTypeBag.toTypeBag());
-
-        final AbstractTypeBag valTypeBag = data.entrySet().stream().map(Map.Entry::getValue)
-            .map(IValue::getType).collect(AbstractTypeBag.toTypeBag());
-
-        return PersistentSetFactory.from(keyTypeBag, valTypeBag, data);
+        return from(xz.freeze());
       }
 
       @Override
       public ISet closure() {
-        return SetFunctions.closure(getValueFactory(), thisSet);
+        return thisSet.closure(false);
       }
 
       @Override
       public ISet closureStar() {
-        return SetFunctions.closureStar(getValueFactory(), thisSet);
+        return thisSet.closure(true);
       }
 
       @Override
@@ -12,6 +12,7 @@
 package io.usethesource.vallang.impl.persistent;
 
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.Objects;
@@ -286,6 +287,9 @@ public final class PersistentHashMap extends AbstractMap {
 				valBagNew = valTypeBag;
 			}
 
+			final java.util.Map<Type, Integer> keyDeltas = new HashMap<>();
+			final java.util.Map<Type, Integer> valDeltas = new HashMap<>();
+
 			for (Iterator<Entry<IValue, IValue>> it = that.entryIterator(); it.hasNext();) {
 				Entry<IValue, IValue> tuple = it.next();
 				IValue key = tuple.getKey();
@@ -296,13 +300,14 @@ public final class PersistentHashMap extends AbstractMap {
 
 				if (replaced != null) {
 					// value replaced
-					valBagNew = valBagNew.decrease(replaced.getType()).increase(value.getType());
+					valDeltas.merge(replaced.getType(), -1, Integer::sum);
+					valDeltas.merge(value.getType(), 1, Integer::sum);
 
 					isModified = true;
 				} else if (previousSize != transientContent.size()) {
 					// pair added
-					keyBagNew = keyBagNew.increase(key.getType());
-					valBagNew = valBagNew.increase(value.getType());
+					keyDeltas.merge(key.getType(), 1, Integer::sum);
+					valDeltas.merge(value.getType(), 1, Integer::sum);
 
 					isModified = true;
 					previousSize++;
@@ -310,7 +315,8 @@ public final class PersistentHashMap extends AbstractMap {
 			}
 
 			if (isModified) {
-				return new PersistentHashMap(keyBagNew, valBagNew, transientContent.freeze());
+				return new PersistentHashMap(keyBagNew.update(keyDeltas), valBagNew.update(valDeltas),
+								transientContent.freeze());
 			} else {
 				return this;
 			}
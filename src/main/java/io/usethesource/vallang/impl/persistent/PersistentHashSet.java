@@ -11,7 +11,9 @@
  *******************************************************************************/
 package io.usethesource.vallang.impl.persistent;
 
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Objects;
 
 import io.usethesource.capsule.Set;
@@ -248,18 +250,21 @@ public final class PersistentHashSet extends AbstractSet {
         two = that.content;
       }
 
+      if (one == two) {
+        return def;
+      }
+
       final Set.Transient<IValue> tmp = one.asTransient();
-      boolean modified = false;
+      final Map<Type, Integer> deltas = new HashMap<>();
 
       for (IValue key : two) {
         if (tmp.__insertEquivalent(key, equivalenceComparator)) {
-          modified = true;
-          bag = bag.increase(key.getType());
+          deltas.merge(key.getType(), 1, Integer::sum);
         }
       }
 
-      if (modified) {
-        return PersistentSetFactory.from(bag, tmp.freeze());
+      if (!deltas.isEmpty()) {
+        return PersistentSetFactory.from(bag.update(deltas), tmp.freeze());
       }
       return def;
     } else {
@@ -294,20 +299,23 @@ public final class PersistentHashSet extends AbstractSet {
         two = this.content;
       }
 
+      if (one == two) {
+        return def;
+      }
+
       final Set.Transient<IValue> tmp = one.asTransient();
-      boolean modified = false;
+      final Map<Type, Integer> deltas = new HashMap<>();
 
       for (Iterator<IValue> it = tmp.iterator(); it.hasNext();) {
         final IValue key = it.next();
         if (!two.containsEquivalent(key, equivalenceComparator)) {
           it.remove();
-          modified = true;
-          bag = bag.decrease(key.getType());
+          deltas.merge(key.getType(), -1, Integer::sum);
         }
       }
 
-      if (modified) {
-        return PersistentSetFactory.from(bag, tmp.freeze());
+      if (!deltas.isEmpty()) {
+        return PersistentSetFactory.from(bag.update(deltas), tmp.freeze());
       }
       return def;
     } else {
@@ -335,18 +343,21 @@ public final class PersistentHashSet extends AbstractSet {
       bag = this.elementTypeBag;
       two = that.content;
 
+      if (one == two) {
+        return EmptySet.EMPTY_SET;
+      }
+
       final Set.Transient<IValue> tmp = one.asTransient();
-      boolean modified = false;
+      final Map<Type, Integer> deltas = new HashMap<>();
 
       for (IValue key : two) {
         if (tmp.__removeEquivalent(key, equivalenceComparator)) {
-          modified = true;
-          bag = bag.decrease(key.getType());
+          deltas.merge(key.getType(), -1, Integer::sum);
         }
       }
 
-      if (modified) {
-        return PersistentSetFactory.from(bag, tmp.freeze());
+      if (!deltas.isEmpty()) {
+        return PersistentSetFactory.from(bag.update(deltas), tmp.freeze());
       }
       return def;
     } else {
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.impl.persistent;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+
+import io.usethesource.vallang.IList;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+import io.usethesource.vallang.impl.AbstractList;
+import io.usethesource.vallang.impl.func.ListFunctions;
+import io.usethesource.vallang.type.Type;
+
+/**
+ * Implementation of {@link IList} on top of a {@link RelaxedRadixBalancedVector}, such that
+ * append, insert, put, delete, sublist and concat share structure with their argument(s) and run
+ * in O(log n).
+ */
+public final class PersistentList extends AbstractList {
+
+  static final PersistentList EMPTY_LIST = new PersistentList(RelaxedRadixBalancedVector.EMPTY);
+
+  private Type cachedListType;
+  private int cachedHashCode = 0;
+  private final RelaxedRadixBalancedVector content;
+
+  /**
+   * Construction of persistent list.
+   *
+   * DO NOT CALL OUTSIDE OF {@link #from(RelaxedRadixBalancedVector)}.
+   *
+   * @param content immutable vector
+   */
+  private PersistentList(RelaxedRadixBalancedVector content) {
+    this.content = Objects.requireNonNull(content);
+  }
+
+  static IList from(RelaxedRadixBalancedVector content) {
+    if (content.isEmpty()) {
+      return EMPTY_LIST;
+    }
+
+    return new PersistentList(content);
+  }
+
+  @Override
+  protected IValueFactory getValueFactory() {
+    return ValueFactory.getInstance();
+  }
+
+  @Override
+  public Type getType() {
+    if (cachedListType == null) {
+      cachedListType = inferListOrRelType(content.lub(), content.isEmpty());
+    }
+    return cachedListType;
+  }
+
+  @Override
+  public int length() {
+    return content.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return content.isEmpty();
+  }
+
+  @Override
+  public IValue get(int index) throws IndexOutOfBoundsException {
+    return content.get(index);
+  }
+
+  @Override
+  public Iterator<IValue> iterator() {
+    return content.iterator();
+  }
+
+  @Override
+  public Spliterator<IValue> spliterator() {
+    return content.spliterator();
+  }
+
+  @Override
+  public IList append(IValue value) {
+    return from(content.append(value));
+  }
+
+  @Override
+  public IList insert(IValue value) {
+    return from(content.prepend(value));
+  }
+
+  @Override
+  public IList concat(IList other) {
+    if (other instanceof PersistentList) {
+      return from(content.concat(((PersistentList) other).content));
+    }
+
+    return super.concat(other);
+  }
+
+  @Override
+  public IList put(int index, IValue value) throws IndexOutOfBoundsException {
+    return from(content.set(index, value));
+  }
+
+  @Override
+  public IList sublist(int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > content.size()) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return from(content.slice(offset, offset + length));
+  }
+
+  @Override
+  public IList delete(int index) {
+    return from(content.remove(index));
+  }
+
+  @Override
+  public IList delete(IValue value) {
+    int index = 0;
+    for (IValue element : content) {
+      if (element.isEqual(value)) {
+        return delete(index);
+      }
+      index++;
+    }
+
+    return this;
+  }
+
+  @Override
+  public IList reverse() {
+    final IValue[] elements = content.toArray();
+
+    for (int i = 0, j = elements.length - 1; i < j; i++, j--) {
+      final IValue tmp = elements[i];
+      elements[i] = elements[j];
+      elements[j] = tmp;
+    }
+
+    return from(RelaxedRadixBalancedVector.of(elements, elements.length));
+  }
+
+  @Override
+  public int hashCode() {
+    if (cachedHashCode == 0) {
+      cachedHashCode = ListFunctions.hashCode(getValueFactory(), this);
+    }
+    return cachedHashCode;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other == this) {
+      return true;
+    }
+    if (other == null) {
+      return false;
+    }
+
+    if (other instanceof IList) {
+      final IList that = (IList) other;
+
+      if (this.getType() != that.getType()) {
+        return false;
+      }
+
+      if (this.length() != that.length()) {
+        return false;
+      }
+
+      if (other instanceof PersistentList && this.hashCode() != other.hashCode()) {
+        return false;
+      }
+
+      final Iterator<IValue> it1 = this.iterator();
+      final Iterator<IValue> it2 = that.iterator();
+
+      while (it1.hasNext()) {
+        if (!it1.next().equals(it2.next())) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    return false;
+  }
+
+  @Override
+  public boolean isEqual(IValue other) {
+    return ListFunctions.isEqual(getValueFactory(), this, other);
+  }
+
+  @Override
+  public boolean match(IValue other) {
+    return ListFunctions.match(getValueFactory(), this, other);
+  }
+
+}
@@ -0,0 +1,714 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.impl.persistent;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.type.Type;
+import io.usethesource.vallang.type.TypeFactory;
+
+/**
+ * Immutable relaxed-radix-balanced (RRB) vector of values.
+ *
+ * All leaves are kept at the same depth. Branch nodes carry a cumulative size table, such that
+ * nodes are allowed to be under-full after {@link #concat(RelaxedRadixBalancedVector)} and
+ * {@link #slice(int, int)}. Lookups use the radix of the index as a lower bound for the child
+ * slot and then scan the size table forward.
+ *
+ * Every node additionally caches the least upper bound of the types of the values below it, such
+ * that the precise dynamic element type of a vector (or of a slice of it) can be recovered by
+ * visiting a logarithmic number of nodes.
+ *
+ * Append, prepend, update, concatenation and slicing are O(log n) and share all untouched
+ * subtrees with their argument(s).
+ */
+final class RelaxedRadixBalancedVector implements Iterable<IValue> {
+
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+
+  private static final Type VOID_TYPE = TypeFactory.getInstance().voidType();
+
+  /** number of slots a rebalanced level may exceed its optimal (dense) packing with */
+  private static final int EXTRAS = 2;
+
+  private static final IValue[] EMPTY_ARRAY = new IValue[0];
+  private static final Node[] EMPTY_NODES = new Node[0];
+
+  static final RelaxedRadixBalancedVector EMPTY =
+      new RelaxedRadixBalancedVector(new Leaf(EMPTY_ARRAY, VOID_TYPE), 0);
+
+  private final Node root;
+  private final int height;
+
+  private RelaxedRadixBalancedVector(Node root, int height) {
+    this.root = root;
+    this.height = height;
+  }
+
+  /**
+   * Bulk construction of a vector in O(n), packing the leaves and branches densely.
+   *
+   * @param values the elements of the vector in order
+   * @param length number of elements to take from {@code values}
+   */
+  static RelaxedRadixBalancedVector of(IValue[] values, int length) {
+    if (length == 0) {
+      return EMPTY;
+    }
+
+    Node[] level = new Node[(length + WIDTH - 1) / WIDTH];
+    for (int i = 0, offset = 0; offset < length; i++, offset += WIDTH) {
+      level[i] = leafOf(Arrays.copyOfRange(values, offset, Math.min(offset + WIDTH, length)));
+    }
+
+    int height = 0;
+    while (level.length > 1) {
+      final Node[] parents = new Node[(level.length + WIDTH - 1) / WIDTH];
+      for (int i = 0, offset = 0; offset < level.length; i++, offset += WIDTH) {
+        parents[i] =
+            branchOf(Arrays.copyOfRange(level, offset, Math.min(offset + WIDTH, level.length)));
+      }
+      level = parents;
+      height++;
+    }
+
+    return new RelaxedRadixBalancedVector(level[0], height);
+  }
+
+  int size() {
+    return root.size();
+  }
+
+  boolean isEmpty() {
+    return root.size() == 0;
+  }
+
+  /**
+   * @return least upper bound of the types of all elements, or {@code void} when empty
+   */
+  Type lub() {
+    return root.lub;
+  }
+
+  IValue get(int index) {
+    checkIndex(index, size());
+
+    Node node = root;
+    for (int h = height; h > 0; h--) {
+      final Branch branch = (Branch) node;
+      final int slot = branch.slotOf(index, h);
+      index -= branch.offsetOf(slot);
+      node = branch.children[slot];
+    }
+
+    return ((Leaf) node).elements[index];
+  }
+
+  RelaxedRadixBalancedVector set(int index, IValue value) {
+    checkIndex(index, size());
+    return new RelaxedRadixBalancedVector(set(root, height, index, value), height);
+  }
+
+  RelaxedRadixBalancedVector append(IValue value) {
+    final Node newRoot = pushBack(root, height, value);
+
+    if (newRoot != null) {
+      return new RelaxedRadixBalancedVector(newRoot, height);
+    }
+
+    return new RelaxedRadixBalancedVector(
+        branchOf(new Node[] {root, pathOf(height, value)}), height + 1);
+  }
+
+  RelaxedRadixBalancedVector prepend(IValue value) {
+    final Node newRoot = pushFront(root, height, value);
+
+    if (newRoot != null) {
+      return new RelaxedRadixBalancedVector(newRoot, height);
+    }
+
+    return new RelaxedRadixBalancedVector(
+        branchOf(new Node[] {pathOf(height, value), root}), height + 1);
+  }
+
+  RelaxedRadixBalancedVector concat(RelaxedRadixBalancedVector that) {
+    if (that.isEmpty()) {
+      return this;
+    }
+    if (this.isEmpty()) {
+      return that;
+    }
+
+    /*
+     * Small operands are folded into the edge leaves of the other operand, to avoid accumulating
+     * sparsely populated leaves in the middle of the tree.
+     */
+    if (that.size() <= WIDTH) {
+      RelaxedRadixBalancedVector result = this;
+      for (IValue value : that) {
+        result = result.append(value);
+      }
+      return result;
+    }
+    if (this.size() <= WIDTH) {
+      final IValue[] values = this.toArray();
+      RelaxedRadixBalancedVector result = that;
+      for (int i = values.length - 1; i >= 0; i--) {
+        result = result.prepend(values[i]);
+      }
+      return result;
+    }
+
+    final Node[] joined = concat(this.root, this.height, that.root, that.height);
+    final int joinedHeight = Math.max(this.height, that.height);
+
+    if (joined.length == 1) {
+      return new RelaxedRadixBalancedVector(joined[0], joinedHeight);
+    } else {
+      return new RelaxedRadixBalancedVector(branchOf(joined), joinedHeight + 1);
+    }
+  }
+
+  /**
+   * @param from index of first element (inclusive)
+   * @param to index of last element (exclusive)
+   */
+  RelaxedRadixBalancedVector slice(int from, int to) {
+    if (from < 0 || to > size() || from > to) {
+      throw new IndexOutOfBoundsException(
+          String.format("Slice [%d, %d) out of bounds for length %d.", from, to, size()));
+    }
+
+    if (from == to) {
+      return EMPTY;
+    }
+    if (from == 0 && to == size()) {
+      return this;
+    }
+
+    Node newRoot = slice(root, height, from, to);
+    int newHeight = height;
+
+    // collapse single-child spines to keep lookups short
+    while (newHeight > 0 && ((Branch) newRoot).children.length == 1) {
+      newRoot = ((Branch) newRoot).children[0];
+      newHeight--;
+    }
+
+    return new RelaxedRadixBalancedVector(newRoot, newHeight);
+  }
+
+  RelaxedRadixBalancedVector remove(int index) {
+    checkIndex(index, size());
+    return slice(0, index).concat(slice(index + 1, size()));
+  }
+
+  IValue[] toArray() {
+    final IValue[] result = new IValue[size()];
+
+    int i = 0;
+    for (IValue value : this) {
+      result[i++] = value;
+    }
+
+    return result;
+  }
+
+  @Override
+  public Iterator<IValue> iterator() {
+    return new LeafIterator(root, height);
+  }
+
+  @Override
+  public Spliterator<IValue> spliterator() {
+    return new VectorSpliterator(this);
+  }
+
+  private static void checkIndex(int index, int size) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(
+          String.format("Index %d out of bounds for length %d.", index, size));
+    }
+  }
+
+  private static Node set(Node node, int height, int index, IValue value) {
+    if (height == 0) {
+      final IValue[] elements = ((Leaf) node).elements.clone();
+      elements[index] = value;
+      return leafOf(elements);
+    }
+
+    final Branch branch = (Branch) node;
+    final int slot = branch.slotOf(index, height);
+
+    final Node[] children = branch.children.clone();
+    children[slot] = set(children[slot], height - 1, index - branch.offsetOf(slot), value);
+
+    // the element type may have shrunk, therefore recalculate from children
+    return new Branch(children, branch.sizes, lubOf(children));
+  }
+
+  /**
+   * @return updated node, or {@code null} if {@code node} has no capacity left
+   */
+  private static Node pushBack(Node node, int height, IValue value) {
+    if (height == 0) {
+      final Leaf leaf = (Leaf) node;
+      final int length = leaf.elements.length;
+
+      if (length == WIDTH) {
+        return null;
+      }
+
+      final IValue[] elements = Arrays.copyOf(leaf.elements, length + 1);
+      elements[length] = value;
+      return new Leaf(elements, leaf.lub.lub(value.getType()));
+    }
+
+    final Branch branch = (Branch) node;
+    final int length = branch.children.length;
+    final Node updatedLast = pushBack(branch.children[length - 1], height - 1, value);
+
+    final Node[] children;
+    final int[] sizes;
+
+    if (updatedLast != null) {
+      children = branch.children.clone();
+      children[length - 1] = updatedLast;
+      sizes = branch.sizes.clone();
+      sizes[length - 1]++;
+    } else if (length < WIDTH) {
+      children = Arrays.copyOf(branch.children, length + 1);
+      children[length] = pathOf(height - 1, value);
+      sizes = Arrays.copyOf(branch.sizes, length + 1);
+      sizes[length] = sizes[length - 1] + 1;
+    } else {
+      return null;
+    }
+
+    return new Branch(children, sizes, branch.lub.lub(value.getType()));
+  }
+
+  /**
+   * @return updated node, or {@code null} if {@code node} has no capacity left
+   */
+  private static Node pushFront(Node node, int height, IValue value) {
+    if (height == 0) {
+      final Leaf leaf = (Leaf) node;
+      final int length = leaf.elements.length;
+
+      if (length == WIDTH) {
+        return null;
+      }
+
+      final IValue[] elements = new IValue[length + 1];
+      elements[0] = value;
+      System.arraycopy(leaf.elements, 0, elements, 1, length);
+      return new Leaf(elements, leaf.lub.lub(value.getType()));
+    }
+
+    final Branch branch = (Branch) node;
+    final int length = branch.children.length;
+    final Node updatedFirst = pushFront(branch.children[0], height - 1, value);
+
+    final Node[] children;
+
+    if (updatedFirst != null) {
+      children = branch.children.clone();
+      children[0] = updatedFirst;
+    } else if (length < WIDTH) {
+      children = new Node[length + 1];
+      children[0] = pathOf(height - 1, value);
+      System.arraycopy(branch.children, 0, children, 1, length);
+    } else {
+      return null;
+    }
+
+    return new Branch(children, sizesOf(children), branch.lub.lub(value.getType()));
+  }
+
+  /**
+   * Concatenates two trees by recursively merging the right spine of {@code left} with the left
+   * spine of {@code right}. At each level of the seam the children are rebalanced, which keeps
+   * the height of the result logarithmic.
+   *
+   * @return one or two nodes of height {@code max(leftHeight, rightHeight)}
+   */
+  private static Node[] concat(Node left, int leftHeight, Node right, int rightHeight) {
+    if (leftHeight > rightHeight) {
+      final Node[] leftChildren = ((Branch) left).children;
+      final Node[] middle =
+          concat(leftChildren[leftChildren.length - 1], leftHeight - 1, right, rightHeight);
+
+      return rebalance(Arrays.copyOf(leftChildren, leftChildren.length - 1), middle,
+          EMPTY_NODES, leftHeight);
+    }
+
+    if (leftHeight < rightHeight) {
+      final Node[] rightChildren = ((Branch) right).children;
+      final Node[] middle = concat(left, leftHeight, rightChildren[0], rightHeight - 1);
+
+      return rebalance(EMPTY_NODES, middle,
+          Arrays.copyOfRange(rightChildren, 1, rightChildren.length), rightHeight);
+    }
+
+    if (leftHeight == 0) {
+      if (left.size() + right.size() <= WIDTH) {
+        return repack(new Node[] {left, right}, 0);
+      }
+      return new Node[] {left, right};
+    }
+
+    final Node[] leftChildren = ((Branch) left).children;
+    final Node[] rightChildren = ((Branch) right).children;
+    final Node[] middle = concat(leftChildren[leftChildren.length - 1], leftHeight - 1,
+        rightChildren[0], rightHeight - 1);
+
+    return rebalance(Arrays.copyOf(leftChildren, leftChildren.length - 1), middle,
+        Arrays.copyOfRange(rightChildren, 1, rightChildren.length), leftHeight);
+  }
+
+  /**
+   * Combines the children (of height {@code height - 1}) on both sides of a seam. If the
+   * children are more than {@link #EXTRAS} slots away from a dense packing, their content is
+   * repacked into full nodes.
+   *
+   * @return one or two nodes of height {@code height}
+   */
+  private static Node[] rebalance(Node[] left, Node[] middle, Node[] right, int height) {
+    Node[] children = new Node[left.length + middle.length + right.length];
+    System.arraycopy(left, 0, children, 0, left.length);
+    System.arraycopy(middle, 0, children, left.length, middle.length);
+    System.arraycopy(right, 0, children, left.length + middle.length, right.length);
+
+    int slots = 0;
+    for (Node child : children) {
+      slots += child.slots();
+    }
+
+    if (children.length > (slots + WIDTH - 1) / WIDTH + EXTRAS) {
+      children = repack(children, height - 1);
+    }
+
+    if (children.length <= WIDTH) {
+      return new Node[] {branchOf(children)};
+    }
+
+    final int half = children.length / 2;
+    return new Node[] {branchOf(Arrays.copyOfRange(children, 0, half)),
+        branchOf(Arrays.copyOfRange(children, half, children.length))};
+  }
+
+  /**
+   * Redistributes the content of sibling nodes of height {@code height} over as few nodes as
+   * possible.
+   */
+  private static Node[] repack(Node[] nodes, int height) {
+    int slots = 0;
+    for (Node node : nodes) {
+      slots += node.slots();
+    }
+
+    final Node[] result = new Node[(slots + WIDTH - 1) / WIDTH];
+
+    if (height == 0) {
+      final IValue[] elements = new IValue[slots];
+      int offset = 0;
+      for (Node node : nodes) {
+        final IValue[] source = ((Leaf) node).elements;
+        System.arraycopy(source, 0, elements, offset, source.length);
+        offset += source.length;
+      }
+      for (int i = 0; i < result.length; i++) {
+        result[i] = leafOf(
+            Arrays.copyOfRange(elements, i * WIDTH, Math.min((i + 1) * WIDTH, elements.length)));
+      }
+    } else {
+      final Node[] grandChildren = new Node[slots];
+      int offset = 0;
+      for (Node node : nodes) {
+        final Node[] source = ((Branch) node).children;
+        System.arraycopy(source, 0, grandChildren, offset, source.length);
+        offset += source.length;
+      }
+      for (int i = 0; i < result.length; i++) {
+        result[i] = branchOf(Arrays.copyOfRange(grandChildren, i * WIDTH,
+            Math.min((i + 1) * WIDTH, grandChildren.length)));
+      }
+    }
+
+    return result;
+  }
+
+  private static Node slice(Node node, int height, int from, int to) {
+    if (from == 0 && to == node.size()) {
+      return node;
+    }
+
+    if (height == 0) {
+      return leafOf(Arrays.copyOfRange(((Leaf) node).elements, from, to));
+    }
+
+    final Branch branch = (Branch) node;
+    final int first = branch.slotOf(from, height);
+    final int last = branch.slotOf(to - 1, height);
+
+    final Node[] children = new Node[last - first + 1];
+    for (int slot = first; slot <= last; slot++) {
+      final int offset = branch.offsetOf(slot);
+      final Node child = branch.children[slot];
+
+      children[slot - first] = slice(child, height - 1, Math.max(from - offset, 0),
+          Math.min(to - offset, child.size()));
+    }
+
+    return branchOf(children);
+  }
+
+  private static Node pathOf(int height, IValue value) {
+    Node node = new Leaf(new IValue[] {value}, value.getType());
+    for (int h = 0; h < height; h++) {
+      node = new Branch(new Node[] {node}, new int[] {1}, node.lub);
+    }
+    return node;
+  }
+
+  private static Leaf leafOf(IValue[] elements) {
+    Type lub = VOID_TYPE;
+    Type last = null;
+    for (IValue element : elements) {
+      final Type type = element.getType();
+      if (type != last) {
+        lub = lub.lub(type);
+        last = type;
+      }
+    }
+    return new Leaf(elements, lub);
+  }
+
+  private static Branch branchOf(Node[] children) {
+    return new Branch(children, sizesOf(children), lubOf(children));
+  }
+
+  private static int[] sizesOf(Node[] children) {
+    final int[] sizes = new int[children.length];
+
+    int sum = 0;
+    for (int i = 0; i < children.length; i++) {
+      sum += children[i].size();
+      sizes[i] = sum;
+    }
+
+    return sizes;
+  }
+
+  private static Type lubOf(Node[] children) {
+    Type lub = VOID_TYPE;
+    for (Node child : children) {
+      lub = lub.lub(child.lub);
+    }
+    return lub;
+  }
+
+  private static abstract class Node {
+    final Type lub;
+
+    Node(Type lub) {
+      this.lub = lub;
+    }
+
+    abstract int size();
+
+    /** number of direct children or elements */
+    abstract int slots();
+  }
+
+  private static final class Leaf extends Node {
+    final IValue[] elements;
+
+    Leaf(IValue[] elements, Type lub) {
+      super(lub);
+      this.elements = elements;
+    }
+
+    @Override
+    int size() {
+      return elements.length;
+    }
+
+    @Override
+    int slots() {
+      return elements.length;
+    }
+  }
+
+  private static final class Branch extends Node {
+    final Node[] children;
+
+    /** cumulative sizes of {@link #children} */
+    final int[] sizes;
+
+    Branch(Node[] children, int[] sizes, Type lub) {
+      super(lub);
+      this.children = children;
+      this.sizes = sizes;
+    }
+
+    @Override
+    int size() {
+      return sizes[sizes.length - 1];
+    }
+
+    @Override
+    int slots() {
+      return children.length;
+    }
+
+    /**
+     * Children hold at most 32^height elements, hence the radix of the index is a lower bound
+     * for the slot of the child that contains it.
+     */
+    int slotOf(int index, int height) {
+      int slot = index >>> (BITS * height);
+      while (sizes[slot] <= index) {
+        slot++;
+      }
+      return slot;
+    }
+
+    int offsetOf(int slot) {
+      return slot == 0 ? 0 : sizes[slot - 1];
+    }
+  }
+
+  /**
+   * Splits by slicing the vector in halves, which shares all but the O(log n) nodes on the split
+   * path. Once traversal started, the remainder is iterated leaf by leaf and no longer split.
+   */
+  private static final class VectorSpliterator implements Spliterator<IValue> {
+    private RelaxedRadixBalancedVector vector;
+    private Iterator<IValue> iterator;
+    private int remaining;
+
+    VectorSpliterator(RelaxedRadixBalancedVector vector) {
+      this.vector = vector;
+      this.remaining = vector.size();
+    }
+
+    @Override
+    public Spliterator<IValue> trySplit() {
+      if (iterator != null || remaining <= WIDTH) {
+        return null;
+      }
+
+      final int middle = remaining >>> 1;
+      final VectorSpliterator prefix = new VectorSpliterator(vector.slice(0, middle));
+      vector = vector.slice(middle, remaining);
+      remaining -= middle;
+      return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super IValue> action) {
+      if (remaining == 0) {
+        return false;
+      }
+      if (iterator == null) {
+        iterator = vector.iterator();
+      }
+
+      remaining--;
+      action.accept(iterator.next());
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super IValue> action) {
+      if (iterator == null) {
+        iterator = vector.iterator();
+      }
+
+      while (remaining > 0) {
+        remaining--;
+        action.accept(iterator.next());
+      }
+    }
+
+    @Override
+    public long estimateSize() {
+      return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+    }
+  }
+
+  /**
+   * Iterates over the leaves from left to right, keeping the path from the root as explicit
+   * stack.
+   */
+  private static final class LeafIterator implements Iterator<IValue> {
+    private final Branch[] path;
+    private final int[] slots;
+
+    private IValue[] leaf;
+    private int cursor;
+    private int remaining;
+
+    LeafIterator(Node root, int height) {
+      this.path = new Branch[height];
+      this.slots = new int[height];
+      this.remaining = root.size();
+
+      descend(root, height);
+    }
+
+    private void descend(Node node, int height) {
+      for (int h = height; h > 0; h--) {
+        path[h - 1] = (Branch) node;
+        slots[h - 1] = 0;
+        node = ((Branch) node).children[0];
+      }
+      leaf = ((Leaf) node).elements;
+      cursor = 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public IValue next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      if (cursor == leaf.length) {
+        int h = 0;
+        while (slots[h] == path[h].children.length - 1) {
+          h++;
+        }
+        slots[h]++;
+        descend(path[h].children[slots[h]], h);
+      }
+
+      remaining--;
+      return leaf[cursor++];
+    }
+  }
+
+}
@@ -64,6 +64,8 @@ public class SetWriter implements ISetWriter {
 
   private Type leastUpperBound = TypeFactory.getInstance().voidType();
   
+  private Type lastElementType = null;
+  
   private Builder builder = null;
 
   private final BiFunction<IValue, IValue, ITuple> constructTuple;
@@ -141,8 +143,9 @@ public class SetWriter implements ISetWriter {
 
   private void put(IValue element) {
     final Type elementType = element.getType();
+    final boolean sameAsLast = elementType == lastElementType;
 
-    if (checkUpperBound && !elementType.isSubtypeOf(upperBoundType)) {
+    if (checkUpperBound && !sameAsLast && !elementType.isSubtypeOf(upperBoundType)) {
       throw new UnexpectedElementTypeException(upperBoundType, elementType);
     }
    
@@ -167,7 +170,10 @@ public class SetWriter implements ISetWriter {
     
     builder.put(element, elementType);
     
-    leastUpperBound = leastUpperBound.lub(elementType);
+    if (!sameAsLast) {
+      leastUpperBound = leastUpperBound.lub(elementType);
+      lastElementType = elementType;
+    }
   }
 
   @Override
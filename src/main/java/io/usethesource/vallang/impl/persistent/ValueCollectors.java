@@ -1,17 +1,29 @@
 package io.usethesource.vallang.impl.persistent;
 
+import io.usethesource.capsule.Map;
 import io.usethesource.capsule.Set;
 import io.usethesource.capsule.SetMultimap;
+import io.usethesource.capsule.util.EqualityComparator;
 import io.usethesource.capsule.util.stream.DefaultCollector;
-import io.usethesource.vallang.IValue;
-import io.usethesource.vallang.util.AbstractTypeBag;
+
+import io.usethesource.vallang.IList;
+import io.usethesource.vallang.IMap;
 import io.usethesource.vallang.ISet;
 import io.usethesource.vallang.ITuple;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.type.Type;
+import io.usethesource.vallang.util.AbstractTypeBag;
+import io.usethesource.vallang.util.EqualityUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collector;
 
 import static io.usethesource.capsule.util.stream.CapsuleCollectors.UNORDERED;
@@ -19,6 +31,27 @@ import static io.usethesource.vallang.impl.persistent.SetWriter.equivalenceEqual
 
 public class ValueCollectors {
 
+  @FunctionalInterface
+  private interface Merge<S> {
+    void into(S larger, S smaller, boolean largerIsLeft);
+  }
+
+  /**
+   * Combines two partial results of a parallel stream by merging the smaller one into the larger
+   * one, so the work is proportional to the smaller partial result.
+   *
+   * @param merge is told whether the larger result is the left one, for collectors where the
+   *        entries of the right partial result take precedence
+   */
+  private static <S> S mergeSmallerIntoLarger(S left, S right, ToIntFunction<S> size, Merge<S> merge) {
+    final boolean leftIsLarger = size.applyAsInt(left) >= size.applyAsInt(right);
+    final S larger = leftIsLarger ? left : right;
+    final S smaller = leftIsLarger ? right : left;
+
+    merge.into(larger, smaller, leftIsLarger);
+    return larger;
+  }
+
   public static <T extends IValue> Collector<T, ?, ISet> toSet() {
 
     class SetStruct {
@@ -33,7 +66,20 @@ public class ValueCollectors {
       }
     };
 
-    return new DefaultCollector<>(SetStruct::new, accumulator, unsupportedCombiner(),
+    final BinaryOperator<SetStruct> combiner = (left, right) -> mergeSmallerIntoLarger(left, right,
+        struct -> struct.set.size(), (larger, smaller, largerIsLeft) -> {
+          final java.util.Map<Type, Integer> deltas = new HashMap<>();
+
+          for (T element : smaller.set) {
+            if (larger.set.__insert(element)) {
+              deltas.merge(element.getType(), 1, Integer::sum);
+            }
+          }
+
+          larger.elementTypeBag = larger.elementTypeBag.update(deltas);
+        });
+
+    return new DefaultCollector<>(SetStruct::new, accumulator, combiner,
         struct -> PersistentSetFactory.from(struct.elementTypeBag,
             (Set.Immutable<IValue>) struct.set.freeze()),
         UNORDERED);
@@ -65,16 +111,130 @@ public class ValueCollectors {
       }
     };
 
+    final BinaryOperator<SetMultimapStruct> combiner = (left, right) -> mergeSmallerIntoLarger(left, right,
+        struct -> struct.map.size(), (larger, smaller, largerIsLeft) -> {
+          final java.util.Map<Type, Integer> keyDeltas = new HashMap<>();
+          final java.util.Map<Type, Integer> valDeltas = new HashMap<>();
+
+          final Iterator<java.util.Map.Entry<K, V>> it = smaller.map.entryIterator();
+          while (it.hasNext()) {
+            final java.util.Map.Entry<K, V> entry = it.next();
+
+            if (larger.map.__insert(entry.getKey(), entry.getValue())) {
+              keyDeltas.merge(entry.getKey().getType(), 1, Integer::sum);
+              valDeltas.merge(entry.getValue().getType(), 1, Integer::sum);
+            }
+          }
+
+          larger.keyTypeBag = larger.keyTypeBag.update(keyDeltas);
+          larger.valTypeBag = larger.valTypeBag.update(valDeltas);
+        });
+
     return new DefaultCollector<>(SetMultimapStruct::new, accumulator,
-        unsupportedCombiner(), struct -> PersistentSetFactory.from(struct.keyTypeBag,
+        combiner, struct -> PersistentSetFactory.from(struct.keyTypeBag,
             struct.valTypeBag, (SetMultimap.Immutable<IValue, IValue>) struct.map.freeze()),
         UNORDERED);
   }
 
-  private static <T> BinaryOperator<T> unsupportedCombiner() {
-    return (u, v) -> {
-      throw new UnsupportedOperationException("Merging is not yet supported.");
+  /**
+   * Collects binary tuples into a relation without field labels.
+   */
+  public static <T extends ITuple> Collector<T, ?, ISet> toRelation() {
+    return toSetMultimap(Optional.empty(), tuple -> tuple.get(0), Optional.empty(),
+        tuple -> tuple.get(1));
+  }
+
+  /**
+   * Collects the elements into a list in encounter order. Partial results of parallel streams are
+   * concatenated as {@link RelaxedRadixBalancedVector}s, which shares their nodes instead of
+   * copying the elements.
+   */
+  public static <T extends IValue> Collector<T, ?, IList> toList() {
+
+    class ListStruct {
+      RelaxedRadixBalancedVector vector = RelaxedRadixBalancedVector.EMPTY;
+      ArrayList<IValue> buffer = new ArrayList<>();
+
+      /** bulk-load the buffered elements and append them to the vector */
+      RelaxedRadixBalancedVector flush() {
+        if (!buffer.isEmpty()) {
+          vector = vector.concat(
+              RelaxedRadixBalancedVector.of(buffer.toArray(new IValue[buffer.size()]), buffer.size()));
+          buffer = new ArrayList<>();
+        }
+        return vector;
+      }
+    }
+
+    final BinaryOperator<ListStruct> combiner = (left, right) -> {
+      left.vector = left.flush().concat(right.flush());
+      return left;
+    };
+
+    return new DefaultCollector<>(ListStruct::new, (struct, element) -> struct.buffer.add(element),
+        combiner, struct -> PersistentList.from(struct.flush()), Collections.emptySet());
+  }
+
+  /**
+   * Collects the elements into a map. If a key is mapped more than once, the value that comes last
+   * in encounter order is kept (as with {@link io.usethesource.vallang.IMapWriter#put}).
+   */
+  public static <T, K extends IValue, V extends IValue> Collector<T, ?, IMap> toMap(
+      Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper) {
+
+    final EqualityComparator<Object> equivalenceComparator = EqualityUtils.getEquivalenceComparator();
+
+    class MapStruct {
+      AbstractTypeBag keyTypeBag = AbstractTypeBag.of();
+      AbstractTypeBag valTypeBag = AbstractTypeBag.of();
+      Map.Transient<IValue, IValue> map = Map.Transient.of();
+    }
+
+    final BiConsumer<MapStruct, T> accumulator = (struct, element) -> {
+      final K key = keyMapper.apply(element);
+      final V val = valueMapper.apply(element);
+      final IValue replaced = struct.map.__putEquivalent(key, val, equivalenceComparator);
+
+      if (replaced == null) {
+        struct.keyTypeBag = struct.keyTypeBag.increase(key.getType());
+      } else {
+        struct.valTypeBag = struct.valTypeBag.decrease(replaced.getType());
+      }
+      struct.valTypeBag = struct.valTypeBag.increase(val.getType());
     };
+
+    // entries of the right partial result take precedence
+    final BinaryOperator<MapStruct> combiner = (left, right) -> mergeSmallerIntoLarger(left, right,
+        struct -> struct.map.size(), (larger, smaller, largerIsLeft) -> {
+          final java.util.Map<Type, Integer> keyDeltas = new HashMap<>();
+          final java.util.Map<Type, Integer> valDeltas = new HashMap<>();
+
+          final Iterator<java.util.Map.Entry<IValue, IValue>> it = smaller.map.entryIterator();
+          while (it.hasNext()) {
+            final java.util.Map.Entry<IValue, IValue> entry = it.next();
+
+            if (!largerIsLeft && larger.map.containsKeyEquivalent(entry.getKey(), equivalenceComparator)) {
+              continue;
+            }
+
+            final IValue replaced =
+                larger.map.__putEquivalent(entry.getKey(), entry.getValue(), equivalenceComparator);
+
+            if (replaced == null) {
+              keyDeltas.merge(entry.getKey().getType(), 1, Integer::sum);
+            } else {
+              valDeltas.merge(replaced.getType(), -1, Integer::sum);
+            }
+            valDeltas.merge(entry.getValue().getType(), 1, Integer::sum);
+          }
+
+          larger.keyTypeBag = larger.keyTypeBag.update(keyDeltas);
+          larger.valTypeBag = larger.valTypeBag.update(valDeltas);
+        });
+
+    return new DefaultCollector<>(MapStruct::new, accumulator, combiner,
+        struct -> new PersistentHashMap(struct.keyTypeBag, struct.valTypeBag, struct.map.freeze()),
+        Collections.emptySet());
   }
 
 }
@@ -11,6 +11,8 @@
  *******************************************************************************/
 package io.usethesource.vallang.impl.persistent;
 
+import io.usethesource.vallang.IList;
+import io.usethesource.vallang.IListWriter;
 import io.usethesource.vallang.IMap;
 import io.usethesource.vallang.IMapWriter;
 import io.usethesource.vallang.ISet;
@@ -33,6 +35,31 @@ public class ValueFactory extends io.usethesource.vallang.impl.fast.ValueFactory
 		return InstanceKeeper.instance;
 	}
 
+	@Override
+	public IListWriter listWriter(Type upperBoundType) {
+		return new ListWriter(upperBoundType);
+	}
+
+	@Override
+	public IListWriter listWriter() {
+		return new ListWriter();
+	}
+
+	@Override
+	public IListWriter listRelationWriter(Type upperBoundType) {
+		return listWriter(upperBoundType);
+	}
+
+	@Override
+	public IListWriter listRelationWriter() {
+		return new ListWriter();
+	}
+
+	@Override
+	public IList list(Type elementType) {
+		return PersistentList.EMPTY_LIST;
+	}
+
 	public ISetWriter setWriter(Type upperBoundType) {
 		return new SetWriter(upperBoundType, (a,b) -> tuple(a,b));
 	}
@@ -26,7 +26,7 @@ import io.usethesource.vallang.type.TypeFactory;
 import io.usethesource.vallang.visitors.IValueVisitor;
 
 /**
- * Specialized implementation for integer values that fall outside the 32-bit range.
+ * Specialized implementation for integer values that fall outside the 64-bit range.
  * 
  * @author Arnold Lankamp
  */
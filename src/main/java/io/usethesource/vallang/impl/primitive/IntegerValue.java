@@ -29,7 +29,8 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 /**
  * Implementation for IInteger.
  * <br /><br />
- * Integer values that fall outside the 32-bit range will be store in BigIntegerValue instead.
+ * Integer values that fall outside the 32-bit range will be stored in LongIntegerValue instead, and
+ * values that fall outside the 64-bit range in BigIntegerValue.
  * 
  * @author Arnold Lankamp
  */
@@ -60,10 +61,10 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 	 * TODO: Unify IntegerValue and BigIntegerValue in same java class file.
 	 */
 	/*package*/ static IInteger newInteger(BigInteger value) {
-		if (value.bitLength() > 31) {
+		if (value.bitLength() > 63) {
 			return new BigIntegerValue(value);
 		}
-		return newInteger(value.intValue());
+		return newInteger(value.longValue());
 	}
 	
 
@@ -79,29 +80,26 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 			if (integerValue.length() < 11 || (integerValue.length() == 11 && integerValue.compareTo(NEGATIVE_INTEGER_MAX_STRING) <= 0)) {
 				return newInteger(Integer.parseInt(integerValue));
 			}
-			return new BigIntegerValue(new BigInteger(integerValue));
+			if (integerValue.length() < 20) {
+				return newInteger(Long.parseLong(integerValue));
+			}
+			return newInteger(new BigInteger(integerValue));
 		}
 
 		if (integerValue.length() < 10 || (integerValue.length() == 10 && integerValue.compareTo(INTEGER_MAX_STRING) <= 0)) {
 			return newInteger(Integer.parseInt(integerValue));
 		}
-		return new BigIntegerValue(new BigInteger(integerValue));
+		if (integerValue.length() < 19) {
+			return newInteger(Long.parseLong(integerValue));
+		}
+		return newInteger(new BigInteger(integerValue));
 	}
 
 	/*package*/ static IInteger newInteger(long value) {
 		if (((value & 0x000000007fffffffL) == value) || ((value & 0xffffffff80000000L) == 0xffffffff80000000L)) {
 			return newInteger((int) value);
 		} else {
-			byte[] valueData = new byte[8];
-			valueData[0] = (byte) ((value >>> 56) & 0xff);
-			valueData[1] = (byte) ((value >>> 48) & 0xff);
-			valueData[2] = (byte) ((value >>> 40) & 0xff);
-			valueData[3] = (byte) ((value >>> 32) & 0xff);
-			valueData[4] = (byte) ((value >>> 24) & 0xff);
-			valueData[5] = (byte) ((value >>> 16) & 0xff);
-			valueData[6] = (byte) ((value >>> 8) & 0xff);
-			valueData[7] = (byte) (value & 0xff);
-			return newInteger(valueData);
+			return new LongIntegerValue(value);
 		}
 	}
 
@@ -114,7 +112,7 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 
 			return newInteger(value);
 		}
-		return new BigIntegerValue(new BigInteger(integerData));
+		return newInteger(new BigInteger(integerData));
 	}
 
 	private IntegerValue(int value){
@@ -181,7 +179,7 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 	
 	@Override
 	public BigInteger toBigInteger(){
-		return new BigInteger(getTwosComplementRepresentation());
+		return BigInteger.valueOf(value);
 	}
 	
 	@Override
@@ -194,7 +192,7 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		if(value == 0)
 			return other;
 		
-		if(other instanceof BigIntegerValue){
+		if(!(other instanceof IntegerValue)){
 			return other.add(this);
 		}
 		
@@ -203,28 +201,8 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		if(otherIntValue == 0)
 			return this;
 		
-		int result = value + otherIntValue;
-		if((value < 0) && (otherIntValue < 0) && (result >= 0)){// Overflow -> positive.
-			byte[] intValueData = new byte[5];
-			intValueData[0] = (byte) 0xff;
-			intValueData[1] = (byte)((result >>> 24) & 0xff);
-			intValueData[2] = (byte)((result >>> 16) & 0xff);
-			intValueData[3] = (byte)((result >>> 8) & 0xff);
-			intValueData[4] = (byte)(result & 0xff);
-			
-			return IntegerValue.newInteger(new BigInteger(intValueData));
-		}else if((value > 0) && (otherIntValue > 0) && (result < 0)){// Overflow -> negative.
-			byte[] intValueData = new byte[5];
-			intValueData[0] = 0;
-			intValueData[1] = (byte)((result >>> 24) & 0xff);
-			intValueData[2] = (byte)((result >>> 16) & 0xff);
-			intValueData[3] = (byte)((result >>> 8) & 0xff);
-			intValueData[4] = (byte)(result & 0xff);
-			
-			return IntegerValue.newInteger(new BigInteger(intValueData));
-		}
-		
-		return IntegerValue.newInteger(result);
+		// the sum of two ints always fits in a long
+		return IntegerValue.newInteger((long) value + otherIntValue);
 	}
 
 	@Override
@@ -247,6 +225,9 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		if(value == 0)
 			return other.negate();
 		
+		if(other instanceof LongIntegerValue){
+			return LongIntegerValue.subtract(value, other.longValue());
+		}
 		if(other instanceof BigIntegerValue){
 			return other.negate().subtract(this.negate());
 		}
@@ -256,28 +237,8 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		if(otherIntValue == 0)
 			return this;
 		
-		int result = value - otherIntValue;
-		if((value < 0) && (otherIntValue > 0) && (result > 0)){// Overflow -> positive.
-			byte[] intValueData = new byte[5];
-			intValueData[0] = (byte) 0xff;
-			intValueData[1] = (byte)((result >>> 24) & 0xff);
-			intValueData[2] = (byte)((result >>> 16) & 0xff);
-			intValueData[3] = (byte)((result >>> 8) & 0xff);
-			intValueData[4] = (byte)(result & 0xff);
-			
-			return IntegerValue.newInteger(new BigInteger(intValueData));
-		}else if((value > 0) && (otherIntValue < 0) && (result < 0)){// Overflow -> negative.
-			byte[] intValueData = new byte[5];
-			intValueData[0] = 0;
-			intValueData[1] = (byte)((result >>> 24) & 0xff);
-			intValueData[2] = (byte)((result >>> 16) & 0xff);
-			intValueData[3] = (byte)((result >>> 8) & 0xff);
-			intValueData[4] = (byte)(result & 0xff);
-			
-			return IntegerValue.newInteger(new BigInteger(intValueData));
-		}
-		
-		return IntegerValue.newInteger(result);
+		// the difference of two ints always fits in a long
+		return IntegerValue.newInteger((long) value - otherIntValue);
 	}
 	
 	@Override
@@ -292,7 +253,7 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		if(value == 1)
 			return other;
 		
-		if(other instanceof BigIntegerValue){
+		if(!(other instanceof IntegerValue)){
 			return other.multiply(this);
 		}
 		
@@ -300,32 +261,8 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		if(otherIntValue == 0) return other;
 		if(otherIntValue == 1) return this;
 		
-		boolean resultIsPositive = ((((value ^ otherIntValue) ^ 0x80000000) & 0x80000000) == 0x80000000);
-		if(resultIsPositive){
-			int div = Integer.MAX_VALUE / otherIntValue;
-			if((value > 0)){
-				if(value <= div){
-					return IntegerValue.newInteger(value * other.intValue());
-				}
-			}else{
-				if(value >= div){
-					return IntegerValue.newInteger(value * other.intValue());
-				}
-			}
-		}else{
-			int div = Integer.MIN_VALUE / otherIntValue;
-			if((value > 0)){
-				if(value <= div){
-					return IntegerValue.newInteger(value * other.intValue());
-				}
-			}else{
-				if(value >= div){
-					return IntegerValue.newInteger(value * other.intValue());
-				}
-			}
-		}
-		
-		return IntegerValue.newInteger(toBigInteger().multiply(((ICanBecomeABigInteger) other).toBigInteger()));
+		// the product of two ints always fits in a long
+		return IntegerValue.newInteger((long) value * otherIntValue);
 	}
 
 	@Override
@@ -348,6 +285,10 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 			return IntegerValue.newInteger(toBigInteger().divide(((ICanBecomeABigInteger) other).toBigInteger()));
 		}
 		
+		if(other instanceof LongIntegerValue){
+			return IntegerValue.newInteger(value / other.longValue());
+		}
+		
 		// other is an instance of IntegerValue
 		
 		/*
@@ -363,7 +304,7 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		}
 		if(otherIntValue == 1)
 			return this;
-		return IntegerValue.newInteger(value / otherIntValue);
+		return IntegerValue.newInteger((long) value / otherIntValue);
 	}
 	
 
@@ -398,6 +339,9 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 			}
 			return this;
 		}
+		if(other instanceof LongIntegerValue){
+			return LongIntegerValue.mod(value, other.longValue());
+		}
 		int otherVal = other.intValue();
 		int newValue = value % other.intValue();
 		newValue = newValue >= 0 ? newValue : newValue + otherVal;
@@ -409,6 +353,9 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		if(other instanceof BigIntegerValue){
 			return this;
 		}
+		if(other instanceof LongIntegerValue){
+			return IntegerValue.newInteger(value % other.longValue());
+		}
 		
 		return IntegerValue.newInteger(value % other.intValue());
 	}
@@ -498,7 +445,7 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 	 
 	@Override
 	public int compare(IInteger other){
-		if(other instanceof BigIntegerValue){
+		if(!(other instanceof IntegerValue)){
 			return ((~other.compare(this)) + 1);
 		}
 		
@@ -562,7 +509,7 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 	
 	@Override
 	public IInteger abs() {
-		return newInteger(Math.abs(value));
+		return newInteger(Math.abs((long) value));
 	}
 
 	@Override
@@ -0,0 +1,390 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.impl.primitive;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import io.usethesource.vallang.IBool;
+import io.usethesource.vallang.IInteger;
+import io.usethesource.vallang.INumber;
+import io.usethesource.vallang.IRational;
+import io.usethesource.vallang.IReal;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.type.Type;
+import io.usethesource.vallang.type.TypeFactory;
+import io.usethesource.vallang.visitors.IValueVisitor;
+
+/**
+ * Specialized implementation for integer values that fall outside the 32-bit range, but inside
+ * the 64-bit range.
+ * <br /><br />
+ * Arithmetic is done on <code>long</code>s with overflow checks; only results that do not fit in
+ * 64 bits are computed with (and stored in) a BigIntegerValue.
+ */
+/*package*/ class LongIntegerValue extends AbstractNumberValue implements IInteger, ICanBecomeABigInteger{
+	private final static Type INTEGER_TYPE = TypeFactory.getInstance().integerType();
+
+	protected final long value;
+
+	/**
+	 * DO NOT CALL OUTSIDE OF {@link IntegerValue#newInteger(long)}, values in the 32-bit range must
+	 * be an IntegerValue.
+	 */
+	/*package*/ LongIntegerValue(long value){
+		super();
+		assert value != (int) value;
+
+		this.value = value;
+	}
+
+	/*package*/ static IInteger add(long left, long right){
+		try{
+			return IntegerValue.newInteger(Math.addExact(left, right));
+		}catch(ArithmeticException e){
+			return IntegerValue.newInteger(BigInteger.valueOf(left).add(BigInteger.valueOf(right)));
+		}
+	}
+
+	/*package*/ static IInteger subtract(long left, long right){
+		try{
+			return IntegerValue.newInteger(Math.subtractExact(left, right));
+		}catch(ArithmeticException e){
+			return IntegerValue.newInteger(BigInteger.valueOf(left).subtract(BigInteger.valueOf(right)));
+		}
+	}
+
+	/*package*/ static IInteger multiply(long left, long right){
+		try{
+			return IntegerValue.newInteger(Math.multiplyExact(left, right));
+		}catch(ArithmeticException e){
+			return IntegerValue.newInteger(BigInteger.valueOf(left).multiply(BigInteger.valueOf(right)));
+		}
+	}
+
+	/*package*/ static IInteger mod(long value, long modulus){
+		long result = value % modulus;
+		return result >= 0 ? IntegerValue.newInteger(result) : add(result, modulus);
+	}
+
+	@Override
+	public IInteger toInteger() {
+		return this;
+	}
+
+	@Override
+	public Type getType(){
+		return INTEGER_TYPE;
+	}
+
+	@Override
+	public int intValue(){
+		return (int) value;
+	}
+
+	@Override
+	public long longValue(){
+		return value;
+	}
+
+	@Override
+	public double doubleValue(){
+		return value;
+	}
+
+	@Override
+	public IReal toReal(int precision){
+		return BigDecimalValue.newReal(BigDecimal.valueOf(value));
+	}
+
+	@Override
+	public IRational toRational(){
+		return RationalValue.newRational(this, IntegerValue.INTEGER_ONE);
+	}
+
+	@Override
+	public byte[] getTwosComplementRepresentation(){
+		// the sign bit needs to fit as well
+		int length = (64 - Long.numberOfLeadingZeros(value ^ (value >> 63))) / 8 + 1;
+		byte[] data = new byte[length];
+		for(int i = length - 1, shift = 0; i >= 0; i--, shift += 8){
+			data[i] = (byte) ((value >> shift) & 0xff);
+		}
+		return data;
+	}
+
+	@Override
+	public BigInteger toBigInteger(){
+		return BigInteger.valueOf(value);
+	}
+
+	@Override
+	public IInteger add(IInteger other){
+		if(other instanceof BigIntegerValue){
+			return other.add(this);
+		}
+		return add(value, other.longValue());
+	}
+
+	@Override
+	public IReal add(IReal other) {
+		return (IReal) other.add(this);
+	}
+
+	@Override
+	public IRational add(IRational other) {
+		return (IRational) other.add(this);
+	}
+
+	@Override
+	public IInteger subtract(IInteger other){
+		if(other instanceof BigIntegerValue){
+			return other.negate().add(this);
+		}
+		return subtract(value, other.longValue());
+	}
+
+	@Override
+	public INumber subtract(IReal other) {
+		return toReal(other.precision()).subtract(other);
+	}
+
+	@Override
+	public INumber subtract(IRational other) {
+		return toRational().subtract(other);
+	}
+
+	@Override
+	public IInteger multiply(IInteger other){
+		if(other instanceof BigIntegerValue){
+			return other.multiply(this);
+		}
+		return multiply(value, other.longValue());
+	}
+
+	@Override
+	public IReal multiply(IReal other) {
+		return (IReal) other.multiply(this);
+	}
+
+	@Override
+	public IRational multiply(IRational other) {
+		return (IRational) other.multiply(this);
+	}
+
+	@Override
+	public IInteger divide(IInteger other){
+		if(other instanceof BigIntegerValue){
+			return IntegerValue.newInteger(toBigInteger().divide(((ICanBecomeABigInteger) other).toBigInteger()));
+		}
+
+		long otherLongValue = other.longValue();
+		if(otherLongValue == 0) {
+			throw new IllegalArgumentException("Argument 'divisor' is 0");
+		}
+		if(otherLongValue == -1){
+			// Long.MIN_VALUE / -1 overflows
+			return negate();
+		}
+		return IntegerValue.newInteger(value / otherLongValue);
+	}
+
+	@Override
+	public IRational divide(IRational other) {
+		return toRational().divide(other);
+	}
+
+	@Override
+	public INumber divide(IInteger other, int precision) {
+		return toReal(precision).divide(other, precision);
+	}
+
+	@Override
+	public INumber divide(IRational other, int precision) {
+		return toReal(precision).divide(other, precision);
+	}
+
+	@Override
+	public IReal divide(IReal other, int precision) {
+		return toReal(precision).divide(other, precision);
+	}
+
+	@Override
+	public IInteger mod(IInteger other){
+		if(other instanceof BigIntegerValue){
+			return IntegerValue.newInteger(toBigInteger().mod(((ICanBecomeABigInteger) other).toBigInteger()));
+		}
+		return mod(value, other.longValue());
+	}
+
+	@Override
+	public IInteger remainder(IInteger other){
+		if(other instanceof BigIntegerValue){
+			return IntegerValue.newInteger(toBigInteger().remainder(((ICanBecomeABigInteger) other).toBigInteger()));
+		}
+		return IntegerValue.newInteger(value % other.longValue());
+	}
+
+	@Override
+	public IInteger negate(){
+		if(value == Long.MIN_VALUE){
+			return IntegerValue.newInteger(toBigInteger().negate());
+		}
+		return IntegerValue.newInteger(-value);
+	}
+
+	@Override
+	public IBool equal(IInteger other){
+		return BoolValue.getBoolValue(compare(other) == 0);
+	}
+
+	@Override
+	public IBool equal(IReal other) {
+		return other.equal(this);
+	}
+
+	@Override
+	public IBool equal(IRational other) {
+		return other.equal(this);
+	}
+
+	@Override
+	public IBool greater(IInteger other){
+		return BoolValue.getBoolValue(compare(other) > 0);
+	}
+
+	@Override
+	public IBool greater(IReal other) {
+		return other.less(this);
+	}
+
+	@Override
+	public IBool greater(IRational other) {
+		return other.less(this);
+	}
+
+	@Override
+	public IBool greaterEqual(IInteger other){
+		return BoolValue.getBoolValue(compare(other) >= 0);
+	}
+
+	@Override
+	public IBool greaterEqual(IReal other) {
+		return other.lessEqual(this);
+	}
+
+	@Override
+	public IBool greaterEqual(IRational other) {
+		return other.lessEqual(this);
+	}
+
+	@Override
+	public IBool less(IInteger other){
+		return BoolValue.getBoolValue(compare(other) < 0);
+	}
+
+	@Override
+	public IBool less(IReal other) {
+		return other.greater(this);
+	}
+
+	@Override
+	public IBool less(IRational other) {
+		return other.greater(this);
+	}
+
+	@Override
+	public IBool lessEqual(IInteger other){
+		return BoolValue.getBoolValue(compare(other) <= 0);
+	}
+
+	@Override
+	public IBool lessEqual(IReal other) {
+		return other.greaterEqual(this);
+	}
+
+	@Override
+	public IBool lessEqual(IRational other) {
+		return other.greaterEqual(this);
+	}
+
+	@Override
+	public int compare(IInteger other){
+		if(other instanceof BigIntegerValue){
+			return ((~other.compare(this)) + 1);
+		}
+		return Long.compare(value, other.longValue());
+	}
+
+	@Override
+	public int compare(INumber other) {
+		if (isIntegerType(other)) {
+			return compare(other.toInteger());
+		}
+		else if (isRationalType(other)) {
+			return toRational().compare(other);
+		}
+		else {
+			assert other instanceof IReal;
+			return toReal(((IReal) other).precision()).compare(other);
+		}
+	}
+
+	@Override
+	public <T, E extends Throwable> T accept(IValueVisitor<T,E> v) throws E{
+		return v.visitInteger(this);
+	}
+
+	public int hashCode(){
+		int h = (int) (value ^ (value >>> 32)) ^ 0x85ebca6b;
+		// same avalanching as IntegerValue#hashCode
+		h ^= h >>> 13;
+		h *= 0x5bd1e995;
+		h ^= h >>> 15;
+
+		return h;
+	}
+
+	public boolean equals(Object o){
+		if(o == null) return false;
+		else if(o == this) return true;
+
+		if(o.getClass() == getClass()){
+			LongIntegerValue otherInteger = (LongIntegerValue) o;
+			return value == otherInteger.value;
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean isEqual(IValue other){
+		return equals(other);
+	}
+
+	@Override
+	public boolean match(IValue other) {
+		return equals(other);
+	}
+
+	@Override
+	public String getStringRepresentation(){
+		return Long.toString(value);
+	}
+
+	@Override
+	public int signum() {
+		return Long.signum(value);
+	}
+
+	@Override
+	public IInteger abs() {
+		return value < 0 ? negate() : this;
+	}
+
+}
@@ -12,11 +12,14 @@
  *******************************************************************************/
 package io.usethesource.vallang.impl.primitive;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.nio.CharBuffer;
 
 import io.usethesource.vallang.IString;
 import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.impl.AbstractValue;
+import io.usethesource.vallang.impl.util.sharing.IShareable;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.type.TypeFactory;
 import io.usethesource.vallang.visitors.IValueVisitor;
@@ -29,6 +32,12 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 /*package*/ class StringValue {
 	private final static Type STRING_TYPE = TypeFactory.getInstance().stringType();
 
+	/**
+	 * Concatenations that result in strings of at least this many chars produce a
+	 * {@link RopeString} instead of copying both operands.
+	 */
+	private final static int ROPE_THRESHOLD = 512;
+
 	/*package*/ static IString newString(String value) {
 		if (value ==null) value = "";
 		return newString(value, containsSurrogatePairs(value));
@@ -54,7 +63,40 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		return false;
 	}
 
-	private static class FullUnicodeString  extends AbstractValue implements IString {
+	/*package*/ static IString concat(IString left, IString right) {
+		final int leftChars = charCount(left);
+		final int rightChars = charCount(right);
+
+		if (leftChars == 0) {
+			return right;
+		}
+		if (rightChars == 0) {
+			return left;
+		}
+		if (leftChars + rightChars < ROPE_THRESHOLD) {
+			return newString(left.getValue() + right.getValue());
+		}
+
+		if (left instanceof RopeString && !(right instanceof RopeString)) {
+			// merge small trailing fragments into one leaf, instead of growing a leaf per fragment 
+			final RopeString rope = (RopeString) left;
+
+			if (!(rope.right instanceof RopeString) && charCount(rope.right) + rightChars < ROPE_THRESHOLD) {
+				return RopeString.join(rope.left, newString(rope.right.getValue() + right.getValue()));
+			}
+		}
+
+		return RopeString.join(left, right);
+	}
+
+	private static int charCount(IString string) {
+		if (string instanceof RopeString) {
+			return ((RopeString) string).charCount;
+		}
+		return string.getValue().length();
+	}
+
+	private static class FullUnicodeString  extends AbstractValue implements IString, IShareable {
 		protected final String value;
 	
 	
@@ -76,6 +118,10 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		
 		@Override
 		public IString concat(IString other){
+			if (value.length() + charCount(other) >= ROPE_THRESHOLD) {
+				return StringValue.concat(this, other);
+			}
+			
 			StringBuilder buffer = new StringBuilder();
 			buffer.append(value);
 			buffer.append(other.getValue());
@@ -109,6 +155,9 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 				FullUnicodeString otherString = (FullUnicodeString) o;
 				return value.equals(otherString.value);
 			}
+			if(o instanceof RopeString){
+				return o.equals(this);
+			}
 			
 			return false;
 		}
@@ -260,6 +309,9 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 				SimpleUnicodeString otherString = (SimpleUnicodeString) o;
 				return value.equals(otherString.value);
 			}
+			if(o instanceof RopeString){
+				return o.equals(this);
+			}
 			
 			return false;
 		}
@@ -291,11 +343,276 @@ import io.usethesource.vallang.visitors.IValueVisitor;
 		
 		@Override
 		public IString concat(IString other) {
+			if (value.length() + charCount(other) >= ROPE_THRESHOLD) {
+				return StringValue.concat(this, other);
+			}
+			
 			StringBuilder buffer = new StringBuilder();
 			buffer.append(value);
 			buffer.append(other.getValue());
 			
+			if (other instanceof RopeString) {
+				// a short sub-rope may hold either kind of string, so scan for surrogate pairs
+				return StringValue.newString(buffer.toString());
+			}
+			
 			return StringValue.newString(buffer.toString(), other.getClass() != getClass());
 		}
 	}
+	
+	/**
+	 * Balanced binary tree of string fragments (a rope). The leaves are ordinary flat strings, and
+	 * the tree is kept height-balanced (AVL) on every concatenation, such that {@link #charAt(int)}
+	 * and {@link #substring(int, int)} are logarithmic in the number of fragments. The flat
+	 * {@link String} is only built when {@link #getValue()} is called, and is cached afterwards.
+	 */
+	private static final class RopeString extends AbstractValue implements IString, IShareable {
+		private final IString left;
+		private final IString right;
+		
+		/** length of {@link #left} in code points */
+		private final int leftLength;
+		/** length in code points */
+		private final int length;
+		/** length in UTF-16 chars */
+		private final int charCount;
+		private final int depth;
+		
+		private int hashCode = 0;
+		private String flattened = null;
+		
+		private RopeString(IString left, IString right) {
+			super();
+			
+			this.left = left;
+			this.right = right;
+			this.leftLength = left.length();
+			this.length = leftLength + right.length();
+			this.charCount = StringValue.charCount(left) + StringValue.charCount(right);
+			this.depth = Math.max(depth(left), depth(right)) + 1;
+		}
+		
+		private static int depth(IString string) {
+			return string instanceof RopeString ? ((RopeString) string).depth : 0;
+		}
+		
+		/**
+		 * Concatenation that restores the AVL balance by rotating along the spine of the deeper
+		 * operand.
+		 */
+		private static IString join(IString left, IString right) {
+			final int leftDepth = depth(left);
+			final int rightDepth = depth(right);
+			
+			if (leftDepth > rightDepth + 1) {
+				final RopeString rope = (RopeString) left;
+				final IString joined = join(rope.right, right);
+				
+				if (depth(joined) <= depth(rope.left) + 1) {
+					return new RopeString(rope.left, joined);
+				}
+				
+				final RopeString top = (RopeString) joined;
+				if (depth(top.left) <= depth(top.right)) {
+					return new RopeString(new RopeString(rope.left, top.left), top.right);
+				}
+				
+				final RopeString middle = (RopeString) top.left;
+				return new RopeString(new RopeString(rope.left, middle.left), new RopeString(middle.right, top.right));
+			}
+			
+			if (rightDepth > leftDepth + 1) {
+				final RopeString rope = (RopeString) right;
+				final IString joined = join(left, rope.left);
+				
+				if (depth(joined) <= depth(rope.right) + 1) {
+					return new RopeString(joined, rope.right);
+				}
+				
+				final RopeString top = (RopeString) joined;
+				if (depth(top.right) <= depth(top.left)) {
+					return new RopeString(top.left, new RopeString(top.right, rope.right));
+				}
+				
+				final RopeString middle = (RopeString) top.right;
+				return new RopeString(new RopeString(top.left, middle.left), new RopeString(middle.right, rope.right));
+			}
+			
+			return new RopeString(left, right);
+		}
+		
+		@Override
+		public Type getType() {
+			return STRING_TYPE;
+		}
+		
+		@Override
+		public String getValue() {
+			if (flattened == null) {
+				final StringBuilder buffer = new StringBuilder(charCount);
+				appendTo(buffer);
+				flattened = buffer.toString();
+			}
+			return flattened;
+		}
+		
+		private void appendTo(StringBuilder buffer) {
+			if (flattened != null) {
+				buffer.append(flattened);
+				return;
+			}
+			
+			if (left instanceof RopeString) {
+				((RopeString) left).appendTo(buffer);
+			} else {
+				buffer.append(left.getValue());
+			}
+			
+			if (right instanceof RopeString) {
+				((RopeString) right).appendTo(buffer);
+			} else {
+				buffer.append(right.getValue());
+			}
+		}
+		
+		@Override
+		public void write(Writer writer) throws IOException {
+			if (flattened != null) {
+				writer.write(flattened);
+				return;
+			}
+			
+			left.write(writer);
+			right.write(writer);
+		}
+		
+		@Override
+		public IString concat(IString other) {
+			return StringValue.concat(this, other);
+		}
+		
+		@Override
+		public int length() {
+			return length;
+		}
+		
+		@Override
+		public int charAt(int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException();
+			}
+			
+			IString node = this;
+			while (node instanceof RopeString) {
+				final RopeString rope = (RopeString) node;
+				
+				if (index < rope.leftLength) {
+					node = rope.left;
+				} else {
+					index -= rope.leftLength;
+					node = rope.right;
+				}
+			}
+			
+			return node.charAt(index);
+		}
+		
+		@Override
+		public IString substring(int start) {
+			return substring(start, length);
+		}
+		
+		@Override
+		public IString substring(int start, int end) {
+			if (start < 0 || end > length || start > end) {
+				throw new IndexOutOfBoundsException();
+			}
+			
+			if (start == 0 && end == length) {
+				return this;
+			}
+			if (end <= leftLength) {
+				return left.substring(start, end);
+			}
+			if (start >= leftLength) {
+				return right.substring(start - leftLength, end - leftLength);
+			}
+			
+			return StringValue.concat(left.substring(start, leftLength), right.substring(0, end - leftLength));
+		}
+		
+		@Override
+		public IString reverse() {
+			return newString(new StringBuilder(getValue()).reverse().toString());
+		}
+		
+		@Override
+		public IString replace(int first, int second, int end, IString repl) {
+			return newString(getValue()).replace(first, second, end, repl);
+		}
+		
+		@Override
+		public int compare(IString other) {
+			int result = getValue().compareTo(other.getValue());
+			
+			if(result > 0) return 1;
+			if(result < 0) return -1;
+			
+			return 0;
+		}
+		
+		@Override
+		public <T, E extends Throwable> T accept(IValueVisitor<T,E> v) throws E{
+			return v.visitString(this);
+		}
+		
+		/**
+		 * Equal to {@link String#hashCode()} of the flattened string, but computed from the
+		 * hashes of the fragments.
+		 */
+		@Override
+		public int hashCode() {
+			if (hashCode == 0) {
+				hashCode = left.hashCode() * power31(charCount(right)) + right.hashCode();
+			}
+			return hashCode;
+		}
+		
+		private static int power31(int exponent) {
+			int result = 1;
+			int base = 31;
+			
+			while (exponent > 0) {
+				if ((exponent & 1) != 0) {
+					result *= base;
+				}
+				base *= base;
+				exponent >>= 1;
+			}
+			
+			return result;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if(o == null) return false;
+			if(this == o) return true;
+			if(o instanceof RopeString || o instanceof FullUnicodeString){
+				IString otherString = (IString) o;
+				
+				if (charCount != charCount(otherString) || hashCode() != otherString.hashCode()) {
+					return false;
+				}
+				
+				return getValue().equals(otherString.getValue());
+			}
+			
+			return false;
+		}
+		
+		@Override
+		public boolean isEqual(IValue value){
+			return equals(value);
+		}
+	}
 }
@@ -23,6 +23,7 @@ import io.usethesource.vallang.type.Type;
 
 	private final Type type;
 	private final java.util.List<IValue> content;
+	private int fHash = 0;
 
 	/*package*/ List(Type elementType, java.util.List<IValue> content) {
 		super();
@@ -62,7 +63,10 @@ import io.usethesource.vallang.type.Type;
 
 	@Override
 	public int hashCode() {
-		return content.hashCode();
+		if (fHash == 0) {
+			fHash = content.hashCode();
+		}
+		return fHash;
 	}
 
 	@Override
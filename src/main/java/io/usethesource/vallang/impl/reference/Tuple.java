@@ -27,6 +27,7 @@ class Tuple extends AbstractValue implements ITuple {
 
 	protected final Type fType;
 	protected final IValue[] fElements;
+	private int fHash = 0;
 
 	/*package*/ Tuple(IValue... elements) {
 		super();
@@ -90,12 +91,15 @@ class Tuple extends AbstractValue implements ITuple {
 
 	@Override
 	public int hashCode() {
-		int hash = 0;
+		if (fHash == 0) {
+			int hash = 0;
 
-		for (int i = 0; i < fElements.length; i++) {
-			hash = (hash << 1) ^ (hash >> 1) ^ fElements[i].hashCode();
+			for (int i = 0; i < fElements.length; i++) {
+				hash = (hash << 1) ^ (hash >> 1) ^ fElements[i].hashCode();
+			}
+			fHash = hash;
 		}
-		return hash;
+		return fHash;
 	}
 
 	@Override
@@ -14,6 +14,8 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.util.ShareableHashSet;
@@ -252,6 +254,14 @@ public final class ShareableValuesHashMap implements Map<IValue, IValue>{
 		return new ValuesIterator(data);
 	}
 	
+	/**
+	 * Splits the keys on ranges of buckets. This map must not be modified anymore while the
+	 * spliterator is in use, as is the case for the maps that back immutable values.
+	 */
+	public Spliterator<IValue> keysSpliterator(){
+		return new KeysSpliterator(data, 0, data.length, load, true);
+	}
+	
 	@SuppressWarnings("unchecked")
 	public void putAll(Map<? extends IValue, ? extends IValue> otherMap){
 		Set<Map.Entry<IValue, IValue>> entrySet = (Set<Map.Entry<IValue, IValue>>) (Set<?>) otherMap.entrySet(); // Generics stink.
@@ -504,6 +514,71 @@ public final class ShareableValuesHashMap implements Map<IValue, IValue>{
 		}
 	}
 	
+	private static class KeysSpliterator implements Spliterator<IValue>{
+		private final Entry<IValue, IValue>[] data;
+		private final int fence;
+		
+		private int index;
+		private Entry<IValue, IValue> current;
+		private long estimate;
+		private boolean exact;
+		
+		public KeysSpliterator(Entry<IValue, IValue>[] data, int index, int fence, long estimate, boolean exact){
+			super();
+			
+			this.data = data;
+			this.index = index;
+			this.fence = fence;
+			this.estimate = estimate;
+			this.exact = exact;
+		}
+		
+		public Spliterator<IValue> trySplit(){
+			int middle = (index + fence) >>> 1;
+			if(current != null || middle <= index) return null;
+			
+			KeysSpliterator prefix = new KeysSpliterator(data, index, middle, estimate >>>= 1, false);
+			index = middle;
+			exact = false;
+			return prefix;
+		}
+		
+		public boolean tryAdvance(Consumer<? super IValue> action){
+			while(current == null){
+				if(index >= fence) return false;
+				current = data[index++];
+			}
+			
+			action.accept(current.key);
+			current = current.next;
+			if(exact) estimate--;
+			return true;
+		}
+		
+		public void forEachRemaining(Consumer<? super IValue> action){
+			Entry<IValue, IValue> entry = current;
+			current = null;
+			
+			for(;;){
+				for(; entry != null; entry = entry.next){
+					action.accept(entry.key);
+				}
+				if(index >= fence) break;
+				entry = data[index++];
+			}
+			
+			if(exact) estimate = 0;
+		}
+		
+		public long estimateSize(){
+			return estimate;
+		}
+		
+		public int characteristics(){
+			return DISTINCT | NONNULL | IMMUTABLE | (exact ? SIZED : 0);
+		}
+	}
+	
 	private static class EntryIterator implements Iterator<Map.Entry<IValue, IValue>>{
 		private final Entry<IValue, IValue>[] data;
 		
@@ -14,6 +14,8 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 import io.usethesource.vallang.IValue;
 
@@ -239,6 +241,14 @@ public final class ShareableValuesHashSet implements Set<IValue>, Iterable<IValu
 		return new SetIterator(data);
 	}
 	
+	/**
+	 * Splits on ranges of buckets. This set must not be modified anymore while the spliterator is in
+	 * use, as is the case for the sets that back immutable values.
+	 */
+	public Spliterator<IValue> spliterator(){
+		return new SetSpliterator(data, 0, data.length, load, true);
+	}
+	
 	public boolean addAll(Collection<? extends IValue> collection){
 		boolean changed = false;
 		
@@ -437,6 +447,71 @@ public final class ShareableValuesHashSet implements Set<IValue>, Iterable<IValu
 		}
 	}
 	
+	private static class SetSpliterator implements Spliterator<IValue>{
+		private final Entry<IValue>[] data;
+		private final int fence;
+		
+		private int index;
+		private Entry<IValue> current;
+		private long estimate;
+		private boolean exact;
+		
+		public SetSpliterator(Entry<IValue>[] data, int index, int fence, long estimate, boolean exact){
+			super();
+			
+			this.data = data;
+			this.index = index;
+			this.fence = fence;
+			this.estimate = estimate;
+			this.exact = exact;
+		}
+		
+		public Spliterator<IValue> trySplit(){
+			int middle = (index + fence) >>> 1;
+			if(current != null || middle <= index) return null;
+			
+			SetSpliterator prefix = new SetSpliterator(data, index, middle, estimate >>>= 1, false);
+			index = middle;
+			exact = false;
+			return prefix;
+		}
+		
+		public boolean tryAdvance(Consumer<? super IValue> action){
+			while(current == null){
+				if(index >= fence) return false;
+				current = data[index++];
+			}
+			
+			action.accept(current.value);
+			current = current.next;
+			if(exact) estimate--;
+			return true;
+		}
+		
+		public void forEachRemaining(Consumer<? super IValue> action){
+			Entry<IValue> entry = current;
+			current = null;
+			
+			for(;;){
+				for(; entry != null; entry = entry.next){
+					action.accept(entry.value);
+				}
+				if(index >= fence) break;
+				entry = data[index++];
+			}
+			
+			if(exact) estimate = 0;
+		}
+		
+		public long estimateSize(){
+			return estimate;
+		}
+		
+		public int characteristics(){
+			return DISTINCT | NONNULL | IMMUTABLE | (exact ? SIZED : 0);
+		}
+	}
+	
 	private static class SetIterator implements Iterator<IValue>{
 		private final Entry<IValue>[] data;
 		
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.impl.util.sharing;
+
+import java.util.Map;
+
+import io.usethesource.vallang.IConstructor;
+import io.usethesource.vallang.INode;
+import io.usethesource.vallang.IString;
+import io.usethesource.vallang.ITuple;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+import io.usethesource.vallang.exceptions.FactTypeUseException;
+import io.usethesource.vallang.impl.AbstractValueFactoryAdapter;
+import io.usethesource.vallang.type.Type;
+
+/**
+ * A value factory that hash-conses every string, tuple, node and constructor it creates, on top of
+ * an existing value factory.
+ * <br />
+ * <br />
+ * Structurally equal values built by this factory are the same object, so equal values compare
+ * with <code>==</code> inside {@link Object#equals(Object)}, and since children are shared as
+ * well, comparing two unequal values stops at the first child (or hash code) that differs.
+ * Equality stays structural though: two unequal canonical values with the same hash code are
+ * still compared child by child, because the values do not know whether they are canonical. The
+ * canonical values are only weakly referenced by the pool, unused values are removed after they
+ * are garbage collected (see {@link ShareableValuesFactory}).
+ * <br />
+ * <br />
+ * Only values created by this factory are canonical. Values that are the result of operations on
+ * values (for example {@link IString#concat(IString)} or {@link IConstructor#set(int, IValue)}) are
+ * not, unless they are passed through {@link #share(IValue)}. Values of the adapted factory that do
+ * not support sharing are returned as is.
+ * <br />
+ * <br />
+ * This implementation is thread-safe.
+ */
+public class MaximalSharingValueFactory extends AbstractValueFactoryAdapter {
+	private final ShareableValuesFactory<IShareable> pool;
+
+	public MaximalSharingValueFactory(IValueFactory adapted) {
+		super(adapted);
+
+		pool = new ShareableValuesFactory<>();
+	}
+
+	/**
+	 * Returns the canonical version of the given value.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends IValue> T share(T value) {
+		if (value instanceof IShareable) {
+			return (T) pool.build((IShareable) value);
+		}
+		return value;
+	}
+
+	/**
+	 * Removes the entries of garbage collected values from the pool. This also happens automatically
+	 * after garbage collections, so calling it is only needed to release memory eagerly.
+	 */
+	public void cleanup() {
+		pool.cleanup();
+	}
+
+	/**
+	 * @return the (approximate) number of canonical values
+	 */
+	public int size() {
+		return pool.size();
+	}
+
+	/**
+	 * @return the number of created values that were replaced by an existing canonical value
+	 */
+	public long getHits() {
+		return pool.getHits();
+	}
+
+	/**
+	 * @return the number of created values that became a new canonical value
+	 */
+	public long getMisses() {
+		return pool.getMisses();
+	}
+
+	@Override
+	public IString string(String s) {
+		return share(adapted.string(s));
+	}
+
+	@Override
+	public IString string(int[] chars) throws IllegalArgumentException {
+		return share(adapted.string(chars));
+	}
+
+	@Override
+	public IString string(int ch) throws IllegalArgumentException {
+		return share(adapted.string(ch));
+	}
+
+	@Override
+	public ITuple tuple() {
+		return share(adapted.tuple());
+	}
+
+	@Override
+	public ITuple tuple(IValue... args) {
+		return share(adapted.tuple(args));
+	}
+
+	@Override
+	public ITuple tuple(Type type, IValue... args) {
+		return share(adapted.tuple(type, args));
+	}
+
+	@Override
+	public INode node(String name) {
+		return share(adapted.node(name));
+	}
+
+	@Override
+	public INode node(String name, IValue... children) {
+		return share(adapted.node(name, children));
+	}
+
+	@Override
+	public INode node(String name, Map<String, IValue> annotations, IValue... children) throws FactTypeUseException {
+		return share(adapted.node(name, annotations, children));
+	}
+
+	@Override
+	public INode node(String name, IValue[] children, Map<String, IValue> keyArgValues) throws FactTypeUseException {
+		return share(adapted.node(name, children, keyArgValues));
+	}
+
+	@Override
+	public IConstructor constructor(Type constructor) {
+		return share(adapted.constructor(constructor));
+	}
+
+	@Override
+	public IConstructor constructor(Type constructor, IValue... children) throws FactTypeUseException {
+		return share(adapted.constructor(constructor, children));
+	}
+
+	@Override
+	public IConstructor constructor(Type constructor, Map<String, IValue> annotations, IValue... children) throws FactTypeUseException {
+		return share(adapted.constructor(constructor, annotations, children));
+	}
+
+	@Override
+	public IConstructor constructor(Type constructor, IValue[] children, Map<String, IValue> kwParams) throws FactTypeUseException {
+		return share(adapted.constructor(constructor, children, kwParams));
+	}
+
+	@Override
+	public String toString() {
+		return "VF_SHARING(" + adapted + ")";
+	}
+}
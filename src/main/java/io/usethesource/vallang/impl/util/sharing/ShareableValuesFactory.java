@@ -11,6 +11,7 @@
 package io.usethesource.vallang.impl.util.sharing;
 
 import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This is a 'weak' constant pool for uniquely represented objects.
@@ -32,6 +33,9 @@ public final class ShareableValuesFactory<E extends IShareable>{
 	private final int logNrOfSegments;
 	private final Segment<E>[] segments;
 	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	
 	/**
 	 * Default constructor.
 	 */
@@ -82,6 +86,39 @@ public final class ShareableValuesFactory<E extends IShareable>{
 		}
 	}
 	
+	/**
+	 * @return the number of calls to {@link #build(IShareable)} that returned an already present
+	 *         shareable.
+	 */
+	public long getHits(){
+		return hits.sum();
+	}
+	
+	/**
+	 * @return the number of calls to {@link #build(IShareable)} that added the given shareable.
+	 */
+	public long getMisses(){
+		return misses.sum();
+	}
+	
+	/**
+	 * Returns the number of entries, which may include entries which have been garbage collected
+	 * but not yet cleaned up.
+	 * 
+	 * @return the (approximate) number of shareables in this pool
+	 */
+	public int size(){
+		int size = 0;
+		int nrOfSegments = segments.length;
+		for(int i = 0; i < nrOfSegments; i++){
+			Segment<E> segment = segments[i];
+			synchronized(segment){
+				size += segment.load;
+			}
+		}
+		return size;
+	}
+	
 	/**
 	 * Returns statistics.
 	 * 
@@ -116,10 +153,27 @@ public final class ShareableValuesFactory<E extends IShareable>{
 	 * @return The reference to the unique version of the given shareable.
 	 */
 	public E build(E shareable){
-		int hash = shareable.hashCode();
-		int segmentNr = hash >>> (32 - DEFAULT_LOG_NR_OF_SEGMENTS);
+		int hash = spread(shareable.hashCode());
+		int segmentNr = hash >>> (32 - logNrOfSegments);
 		
-		return segments[segmentNr].get(shareable, hash);
+		E result = segments[segmentNr].get(shareable, hash);
+		if(result == shareable){
+			misses.increment();
+		}else{
+			hits.increment();
+		}
+		return result;
+	}
+	
+	/**
+	 * Mixes the bits of the given hash code, since the segment is selected by the high bits (which
+	 * are often unused by small hash codes) and the bucket by the low bits.
+	 */
+	private static int spread(int hash){
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		return hash;
 	}
 	
 	/**
@@ -12,6 +12,7 @@ package io.usethesource.vallang.io;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.channels.WritableByteChannel;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -32,6 +33,7 @@ import io.usethesource.vallang.IString;
 import io.usethesource.vallang.ITuple;
 import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.IWithKeywordParameters;
+import io.usethesource.vallang.io.binary.util.Utf8ChannelWriter;
 import io.usethesource.vallang.type.ITypeVisitor;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.type.TypeStore;
@@ -80,16 +82,37 @@ public class StandardTextWriter implements IValueTextWriter {
 		write(value, stream);
 	}
 	
+	/**
+	 * Writes the value as UTF-8 to a channel, encoding directly into a pooled direct buffer instead
+	 * of going through a {@link java.io.Writer} and encoder. The channel is not closed.
+	 */
+	public void write(IValue value, WritableByteChannel channel) throws IOException {
+		try (Utf8ChannelWriter stream = new Utf8ChannelWriter(channel)) {
+			// the buffer is written to the channel when it is full, so no intermediate flushes
+			value.accept(new Writer(stream, indent, tabSize, false));
+		}
+	}
+	
 	protected static class Writer implements IValueVisitor<IValue, IOException> {
 		private final java.io.Writer stream;
 		private final int tabSize;
 		private final boolean indent;
+		private final boolean flushIntermediate;
 		private int tab = 0;
 
 		public Writer(java.io.Writer stream, boolean indent, int tabSize) {
+			this(stream, indent, tabSize, true);
+		}
+
+		/**
+		 * @param flushIntermediate whether to flush the stream after every constructor, to get
+		 *        intermediate output
+		 */
+		public Writer(java.io.Writer stream, boolean indent, int tabSize, boolean flushIntermediate) {
 			this.stream = stream;
 			this.indent = indent;
 			this.tabSize = tabSize;
+			this.flushIntermediate = flushIntermediate;
 		}
 		
 		private void append(String string) throws IOException {
@@ -253,12 +276,14 @@ public class StandardTextWriter implements IValueTextWriter {
 				indent();
 				append(']');
 			}
-			try {
-                stream.flush();
-            }
-            catch (IOException e) {
-                // flushing is just to make sure we get some intermediate output
-            }
+			if (flushIntermediate) {
+				try {
+					stream.flush();
+				}
+				catch (IOException e) {
+					// flushing is just to make sure we get some intermediate output
+				}
+			}
 			
 			return o;
 		}
@@ -497,54 +522,73 @@ public class StandardTextWriter implements IValueTextWriter {
 		}
 
 		public IValue visitString(IString o) throws IOException {
-			printString(o.getValue());
+			append('\"');
+			// lets the string stream its fragments, such that large (rope) strings are never flattened
+			o.write(new java.io.Writer() {
+			  @Override
+			  public void write(char[] cbuf, int off, int len) throws IOException {
+			    printEscaped(cbuf, off, off + len);
+			  }
+
+			  @Override
+			  public void flush() throws IOException {
+			  }
+
+			  @Override
+			  public void close() throws IOException {
+			  }
+			});
+			append('\"');
 			return o;
 		}
 
     private void printString(String o) throws IOException {
       append('\"');
       char[] chars = o.toCharArray();
-      for (int i = 0; i < chars.length; i++) {
+      printEscaped(chars, 0, chars.length);
+      append('\"');
+    }
+
+    private void printEscaped(char[] chars, int offset, int limit) throws IOException {
+      // characters that need no escaping are written in bulk, from the start of the current run
+      int run = offset;
+
+      for (int i = offset; i < limit; i++) {
         char ch = chars[i];
+        // a surrogate pair is handled as a single character
+        int width = Character.isHighSurrogate(ch) && i + 1 < limit ? 2 : 1;
+        String escaped = null;
+
         switch (ch) {
         case '\"':
-          append('\\');
-          append('\"');
+          escaped = "\\\"";
           break;
         case '>':
-          append('\\');
-          append('>');
+          escaped = "\\>";
           break;
         case '<':
-          append('\\');
-          append('<');
+          escaped = "\\<";
           break;
         case '\'':
-          append('\\');
-          append('\'');
+          escaped = "\\'";
           break;
         case '\\':
-          append('\\');
-          append('\\');
+          escaped = "\\\\";
           break;
         case '\n':
-          append('\\');
-          append('n');
+          escaped = "\\n";
           break;
         case '\r':
-          append('\\');
-          append('r');
+          escaped = "\\r";
           break;
         case '\t':
-          append('\\');
-          append('t');
+          escaped = "\\t";
           break;
         case ' ':
           // needed because other space chars will be escaped in the default branch
-          append(' ');
           break;
         default:
-          int cp = Character.codePointAt(chars, i);
+          int cp = Character.codePointAt(chars, i, limit);
 
           if (Character.isSpaceChar(cp)
               || Character.isISOControl(cp)
@@ -553,29 +597,30 @@ public class StandardTextWriter implements IValueTextWriter {
             // for clarity of the serialized string
             
             if (cp <= Byte.MAX_VALUE) {
-              append("\\a" + String.format("%02x", (int) ch));
+              escaped = "\\a" + String.format("%02x", (int) ch);
             }
             else if (cp <= Character.MAX_VALUE) {
-              append("\\u" + String.format("%04x", (int) ch));
+              escaped = "\\u" + String.format("%04x", (int) ch);
             }
             else {
-              append("\\U" + String.format("%06x", (int) ch));
-            }
-            
-            if (Character.isHighSurrogate(ch)) {
-              i++; // skip the next char
+              escaped = "\\U" + String.format("%06x", (int) ch);
             }
           }
-          else {
-            append(ch);
+        }
 
-            if (Character.isHighSurrogate(ch) && i + 1 < chars.length) {
-              append(chars[++i]);
-            }
+        if (escaped != null) {
+          if (i > run) {
+            stream.write(chars, run, i - run);
           }
+          append(escaped);
+          run = i + width;
         }
+        i += width - 1;
+      }
+
+      if (limit > run) {
+        stream.write(chars, run, limit - run);
       }
-      append('\"');
     }
     
 		public IValue visitTuple(ITuple o) throws IOException {
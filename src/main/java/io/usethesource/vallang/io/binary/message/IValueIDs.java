@@ -50,6 +50,7 @@ public class IValueIDs {
     // above 32 for less often occuring messages (they take a byte extra to encode and decode)
     private static final int DATETIME_VALUE_ID = 32; 
     private static final int RAT_VALUE_ID = 33;
+    private static final int BLOCK_REFERENCE_ID = 34;
     
     // Compound values
 
@@ -66,6 +67,14 @@ public class IValueIDs {
         public static final int CAN_BE_BACK_REFERENCED = 31;
     }
     
+    /**
+     * A value that was written as a separate block of an indexed file.
+     */
+    public static class BlockReference {
+        public static final int ID = BLOCK_REFERENCE_ID;
+        public static final int BLOCK = 1;
+    }
+
     public static class PreviousValue {
         public static final int ID = PREVIOUS_VALUE_ID;
         public static final int HOW_FAR_BACK = 1;    
@@ -291,7 +300,7 @@ public class IValueIDs {
     public static final class Ranges {
         // these ranges are for splitting up the reader
         public static final int VALUES_MIN = PREVIOUS_VALUE_ID;
-        public static final int VALUES_MAX = RAT_VALUE_ID;
+        public static final int VALUES_MAX = BLOCK_REFERENCE_ID;
         public static final int COMMON_VALUES_MIN = PREVIOUS_VALUE_ID;
         public static final int COMMON_VALUES_MAX = SET_VALUE_ID;
 
@@ -12,11 +12,13 @@
  */ 
 package io.usethesource.vallang.io.binary.message;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.URISyntaxException;
 import java.util.Collections;
+import java.util.NoSuchElementException;
 import java.util.function.Supplier;
 
 import io.usethesource.capsule.Map;
@@ -34,6 +36,8 @@ import io.usethesource.vallang.IValueFactory;
 import io.usethesource.vallang.io.binary.stream.IValueInputStream;
 import io.usethesource.vallang.io.binary.util.TrackLastRead;
 import io.usethesource.vallang.io.binary.util.WindowCacheFactory;
+import io.usethesource.vallang.io.binary.util.WindowStatistics;
+import io.usethesource.vallang.io.binary.wire.FieldKind;
 import io.usethesource.vallang.io.binary.wire.IWireInputStream;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.type.TypeFactory;
@@ -51,6 +55,32 @@ public class IValueReader {
      * In most cases you want to use the {@linkplain IValueInputStream}!
      */
     public static IValue readValue(IWireInputStream reader, IValueFactory vf, Supplier<TypeStore> typeStoreSupplier) throws IOException {
+        return readValue(reader, vf, typeStoreSupplier, null);
+    }
+
+    /**
+     * Read a value from the wire reader, and collect statistics on the usage of the back-reference windows.
+     * @param stats where to collect the statistics, or null
+     */
+    public static IValue readValue(IWireInputStream reader, IValueFactory vf, Supplier<TypeStore> typeStoreSupplier, WindowStatistics stats) throws IOException {
+        return readValue(reader, vf, typeStoreSupplier, stats, null);
+    }
+
+    /**
+     * Reads the values that were written as a separate block, see {@link IValueWriter#write(io.usethesource.vallang.io.binary.wire.IWireOutputStream, IValueFactory, io.usethesource.vallang.io.binary.util.WindowSizes, IValue, WindowStatistics, java.util.function.ToIntFunction)}.
+     */
+    @FunctionalInterface
+    public interface BlockReader {
+        IValue read(int block) throws IOException;
+    }
+
+    /**
+     * Read a value from the wire reader, in which some sub-values may have been replaced by a reference to a separate block.
+     * @param stats where to collect the statistics, or null
+     * @param blocks reads the referenced blocks, or null if the value does not refer to blocks
+     */
+    public static IValue readValue(IWireInputStream reader, IValueFactory vf, Supplier<TypeStore> typeStoreSupplier, WindowStatistics stats, BlockReader blocks) throws IOException {
+        long start = stats == null ? 0 : System.nanoTime();
         int typeWindowSize = 0;
         int valueWindowSize = 0;
         int uriWindowSize = 0;
@@ -63,13 +93,58 @@ public class IValueReader {
                 case IValueIDs.Header.TYPE_WINDOW: typeWindowSize = reader.getInteger();  break;
                 case IValueIDs.Header.SOURCE_LOCATION_WINDOW: uriWindowSize = reader.getInteger();  break;
                 case IValueIDs.Header.VALUE: {
-                    IValueReader valueReader = new IValueReader(vf, typeStoreSupplier, typeWindowSize, valueWindowSize, uriWindowSize);
+                    IValueReader valueReader = new IValueReader(vf, typeStoreSupplier, typeWindowSize, valueWindowSize, uriWindowSize, stats, blocks);
+                    IValue result = null;
                     try {
-                        IValue result = valueReader.readValue(reader);
+                        result = valueReader.readValue(reader);
                         reader.skipMessage();
                         return result;
                     } finally {
                         valueReader.done();
+                        if (stats != null) {
+                            stats.addSerialized(WindowStatistics.kindOf(result), System.nanoTime() - start);
+                        }
+                    }
+                }
+                default:
+                    reader.skipNestedField();
+                    break;
+            }
+        }
+        throw new IOException("Missing Value in the stream");
+    }
+
+    /**
+     * Start reading a value from the wire reader without materializing it. <br/>
+     * <br/>
+     * If the value is a list, set or map (and thus also a relation), the returned {@link ElementReader} yields its elements one at a time, 
+     * map entries are yielded as a tuple of the key and the value. Any other value is yielded as a single element.
+     * Only the back-reference windows are kept in memory, not the elements that have already been read. <br/>
+     * <br/>
+     * The wire reader should not be used until the {@link ElementReader} is closed, afterwards it is positioned after the value.
+     * @param stats where to collect the statistics, or null
+     */
+    public static ElementReader readElements(IWireInputStream reader, IValueFactory vf, Supplier<TypeStore> typeStoreSupplier, WindowStatistics stats) throws IOException {
+        long start = stats == null ? 0 : System.nanoTime();
+        int typeWindowSize = 0;
+        int valueWindowSize = 0;
+        int uriWindowSize = 0;
+        if (reader.next() != IWireInputStream.MESSAGE_START || reader.message() != IValueIDs.Header.ID) {
+            throw new IOException("Missing header at start of stream");
+        }
+        while (reader.next() != IWireInputStream.MESSAGE_END) {
+            switch (reader.field()) {
+                case IValueIDs.Header.VALUE_WINDOW: valueWindowSize = reader.getInteger();  break;
+                case IValueIDs.Header.TYPE_WINDOW: typeWindowSize = reader.getInteger();  break;
+                case IValueIDs.Header.SOURCE_LOCATION_WINDOW: uriWindowSize = reader.getInteger();  break;
+                case IValueIDs.Header.VALUE: {
+                    IValueReader valueReader = new IValueReader(vf, typeStoreSupplier, typeWindowSize, valueWindowSize, uriWindowSize, stats, null);
+                    try {
+                        return new ElementReader(reader, valueReader, stats, start);
+                    } 
+                    catch (IOException | RuntimeException e) {
+                        valueReader.done();
+                        throw e;
                     }
                 }
                 default:
@@ -80,6 +155,139 @@ public class IValueReader {
         throw new IOException("Missing Value in the stream");
     }
 
+    /**
+     * Pull reader for the elements of a single serialized value, see {@link IValueReader#readElements}.
+     */
+    public static final class ElementReader implements Closeable {
+        private final IWireInputStream reader;
+        private final IValueReader valueReader;
+        private final WindowStatistics stats;
+        private final long start;
+        private final int kind;
+        private final String kindName;
+        private final int size;
+        private int remaining;
+        private IValue single;
+        private boolean insideValue;
+        private boolean finished;
+
+        private ElementReader(IWireInputStream reader, IValueReader valueReader, WindowStatistics stats, long start) throws IOException {
+            this.reader = reader;
+            this.valueReader = valueReader;
+            this.stats = stats;
+            this.start = start;
+            reader.next();
+            kind = reader.message();
+            switch (kind) {
+                case IValueIDs.ListValue.ID:
+                case IValueIDs.SetValue.ID:
+                case IValueIDs.MapValue.ID:
+                    int elements = 0;
+                    // the elements are always the last field of a collection message
+                    while (reader.next() != IWireInputStream.MESSAGE_END) {
+                        if (reader.getFieldType() == FieldKind.REPEATED && reader.getRepeatedType() == FieldKind.NESTED) {
+                            elements = reader.getRepeatedLength();
+                            break;
+                        }
+                        reader.skipNestedField();
+                    }
+                    size = kind == IValueIDs.MapValue.ID ? elements / 2 : elements;
+                    kindName = kind == IValueIDs.ListValue.ID ? "list" : kind == IValueIDs.SetValue.ID ? "set" : "map";
+                    remaining = size;
+                    insideValue = reader.current() != IWireInputStream.MESSAGE_END;
+                    if (remaining == 0) {
+                        finish();
+                    }
+                    break;
+                default:
+                    single = valueReader.readCurrentValue(reader);
+                    kindName = WindowStatistics.kindOf(single);
+                    size = 1;
+                    remaining = 1;
+                    break;
+            }
+        }
+
+        public boolean isList() {
+            return kind == IValueIDs.ListValue.ID;
+        }
+
+        public boolean isSet() {
+            return kind == IValueIDs.SetValue.ID;
+        }
+
+        public boolean isMap() {
+            return kind == IValueIDs.MapValue.ID;
+        }
+
+        /**
+         * @return the total number of elements of the value, or 1 if it is not a collection
+         */
+        public int size() {
+            return size;
+        }
+
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        /**
+         * Read the next element, for lists in the order they were written.
+         * @throws NoSuchElementException if all elements have been read 
+         */
+        public IValue next() throws IOException {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            IValue result;
+            if (single != null) {
+                result = single;
+                single = null;
+            }
+            else if (kind == IValueIDs.MapValue.ID) {
+                IValue key = valueReader.readValue(reader);
+                IValue value = valueReader.readValue(reader);
+                result = valueReader.vf.tuple(key, value);
+            }
+            else {
+                result = valueReader.readValue(reader);
+            }
+            if (--remaining == 0) {
+                finish();
+            }
+            return result;
+        }
+
+        private void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            try {
+                if (insideValue) {
+                    reader.skipMessage(); // rest of the collection message
+                }
+                reader.skipMessage(); // rest of the header
+            }
+            finally {
+                valueReader.done();
+                if (stats != null) {
+                    stats.addSerialized(kindName, System.nanoTime() - start);
+                }
+            }
+        }
+
+        /**
+         * Skip the elements that have not been read yet.
+         */
+        @Override
+        public void close() throws IOException {
+            remaining = 0;
+            single = null;
+            finish();
+        }
+    }
+
     /**
      * Read a type from the wire reader. 
      */
@@ -96,7 +304,7 @@ public class IValueReader {
                 case IValueIDs.Header.TYPE_WINDOW: typeWindowSize = reader.getInteger();  break;
                 case IValueIDs.Header.SOURCE_LOCATION_WINDOW: uriWindowSize = reader.getInteger();  break;
                 case IValueIDs.Header.TYPE: {
-                    IValueReader valueReader = new IValueReader(vf, typeStoreSupplier, typeWindowSize, valueWindowSize, uriWindowSize);
+                    IValueReader valueReader = new IValueReader(vf, typeStoreSupplier, typeWindowSize, valueWindowSize, uriWindowSize, null, null);
                     try {
                         Type result = valueReader.readType(reader);
                         reader.skipMessage();
@@ -113,13 +321,24 @@ public class IValueReader {
         throw new IOException("Missing Type in the stream");
     }
 
-    private IValueReader(IValueFactory vf, Supplier<TypeStore> typeStoreSupplier, int typeWindowSize, int valueWindowSize, int uriWindowSize) {
+    private IValueReader(IValueFactory vf, Supplier<TypeStore> typeStoreSupplier, int typeWindowSize, int valueWindowSize, int uriWindowSize, WindowStatistics stats, BlockReader blocks) {
         WindowCacheFactory windowFactory = WindowCacheFactory.getInstance();
-        typeWindow = windowFactory.getTrackLastRead(typeWindowSize);
-        valueWindow = windowFactory.getTrackLastRead(valueWindowSize);
-        uriWindow = windowFactory.getTrackLastRead(uriWindowSize);
+        pooledTypeWindow = windowFactory.getTrackLastRead(typeWindowSize);
+        pooledValueWindow = windowFactory.getTrackLastRead(valueWindowSize);
+        pooledUriWindow = windowFactory.getTrackLastRead(uriWindowSize);
+        if (stats == null) {
+            typeWindow = pooledTypeWindow;
+            valueWindow = pooledValueWindow;
+            uriWindow = pooledUriWindow;
+        }
+        else {
+            typeWindow = stats.getTypes().track(pooledTypeWindow, typeWindowSize);
+            valueWindow = stats.getValues().track(pooledValueWindow, valueWindowSize);
+            uriWindow = stats.getSourceLocations().track(pooledUriWindow, uriWindowSize);
+        }
 
         this.typeStoreSupplier = typeStoreSupplier;
+        this.blocks = blocks;
 
         this.vf = vf;
         this.store = typeStoreSupplier.get();
@@ -127,12 +346,13 @@ public class IValueReader {
 
     private void done() {
         WindowCacheFactory windowFactory = WindowCacheFactory.getInstance();
-        windowFactory.returnTrackLastRead(typeWindow);
-        windowFactory.returnTrackLastRead(valueWindow);
-        windowFactory.returnTrackLastRead(uriWindow);
+        windowFactory.returnTrackLastRead(pooledTypeWindow);
+        windowFactory.returnTrackLastRead(pooledValueWindow);
+        windowFactory.returnTrackLastRead(pooledUriWindow);
     }
 
     private final Supplier<TypeStore> typeStoreSupplier;
+    private final BlockReader blocks;
 
     private final IValueFactory vf;
     private final TypeStore store;
@@ -140,6 +360,9 @@ public class IValueReader {
     private final TrackLastRead<Type> typeWindow;
     private final TrackLastRead<IValue> valueWindow;
     private final TrackLastRead<ISourceLocation> uriWindow;
+    private final TrackLastRead<Type> pooledTypeWindow;
+    private final TrackLastRead<IValue> pooledValueWindow;
+    private final TrackLastRead<ISourceLocation> pooledUriWindow;
     
     private Type readType(final IWireInputStream reader) throws IOException{
         reader.next();
@@ -440,6 +663,10 @@ public class IValueReader {
 
     private IValue readValue(final IWireInputStream reader) throws IOException{
         reader.next();
+        return readCurrentValue(reader);
+    }
+
+    private IValue readCurrentValue(final IWireInputStream reader) throws IOException{
         assert reader.current() == IWireInputStream.MESSAGE_START;
         switch (reader.message()) {
             case IValueIDs.BoolValue.ID: return readBoolean(reader);
@@ -456,11 +683,26 @@ public class IValueReader {
             case IValueIDs.StringValue.ID: return readString(reader);
             case IValueIDs.TupleValue.ID: return readTuple(reader);
             case IValueIDs.PreviousValue.ID: return readPreviousValue(reader);
+            case IValueIDs.BlockReference.ID: return readBlockReference(reader);
             default:
                 throw new IllegalArgumentException("readValue: " + reader.message());
         }
     }
 
+    private IValue readBlockReference(final IWireInputStream reader) throws IOException {
+        int block = -1;
+        while (reader.next() != IWireInputStream.MESSAGE_END) {
+            if (reader.field() == IValueIDs.BlockReference.BLOCK) {
+                block = reader.getInteger();
+            }
+        }
+
+        if (blocks == null) {
+            throw new IOException("Reference to block " + block + " outside of an indexed file");
+        }
+        return blocks.read(block);
+    }
+
     private IValue readPreviousValue(final IWireInputStream reader) throws IOException {
         int n = -1;
         while(reader.next() != IWireInputStream.MESSAGE_END){
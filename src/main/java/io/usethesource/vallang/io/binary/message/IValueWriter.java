@@ -14,6 +14,7 @@ package io.usethesource.vallang.io.binary.message;
 
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.function.ToIntFunction;
 
 import io.usethesource.vallang.IDateTime;
 import io.usethesource.vallang.IInteger;
@@ -24,9 +25,11 @@ import io.usethesource.vallang.ISet;
 import io.usethesource.vallang.ISourceLocation;
 import io.usethesource.vallang.IString;
 import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.io.binary.util.CountingWireOutputStream;
 import io.usethesource.vallang.io.binary.util.TrackLastWritten;
 import io.usethesource.vallang.io.binary.util.WindowCacheFactory;
 import io.usethesource.vallang.io.binary.util.WindowSizes;
+import io.usethesource.vallang.io.binary.util.WindowStatistics;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.type.TypeStore;
 import io.usethesource.vallang.IBool;
@@ -56,18 +59,63 @@ public class IValueWriter {
      * @param value the value to write   @throws IOException
      */
     public static void write(IWireOutputStream writer, IValueFactory vf, WindowSizes size, IValue value) throws IOException {
+        write(writer, vf, size, value, null);
+    }
+
+    /**
+     * Write an IValue to an exisiting wire stream, and collect statistics on the usage of the back-reference windows.
+     *  
+     * @param writer the wire writer to use
+     * @param vf the value factory used to rewrite external value types
+     * @param size the window sizes to use
+     * @param value the value to write
+     * @param stats where to collect the statistics, or null
+     * @throws IOException
+     */
+    public static void write(IWireOutputStream writer, IValueFactory vf, WindowSizes size, IValue value, WindowStatistics stats) throws IOException {
+        write(writer, vf, size, value, stats, null);
+    }
+
+    /**
+     * Write an IValue to an exisiting wire stream, replacing some of its sub-values by a reference to a block that was written before,
+     * see {@link io.usethesource.vallang.io.binary.stream.IValueIndexedOutputStream IValueIndexedOutputStream}.
+     *  
+     * @param writer the wire writer to use
+     * @param vf the value factory used to rewrite external value types
+     * @param size the window sizes to use
+     * @param value the value to write
+     * @param stats where to collect the statistics, or null
+     * @param blocks the block of a sub-value, or -1 if it should be written in place. Or null if there are no blocks.
+     * @throws IOException
+     */
+    public static void write(IWireOutputStream writer, IValueFactory vf, WindowSizes size, IValue value, WindowStatistics stats, ToIntFunction<IValue> blocks) throws IOException {
         final WindowCacheFactory windowFactory = WindowCacheFactory.getInstance();
         TrackLastWritten<Type> typeCache = windowFactory.getTrackLastWrittenReferenceEquality(size.typeWindow);
-        TrackLastWritten<IValue> valueCache = windowFactory.getTrackLastWrittenReferenceEquality(size.valueWindow);
+        TrackLastWritten<IValue> valueCache = size.structuralEquality ? windowFactory.getTrackLastWrittenStructuralEquality(size.valueWindow) : windowFactory.getTrackLastWrittenReferenceEquality(size.valueWindow);
         TrackLastWritten<ISourceLocation> uriCache = windowFactory.getTrackLastWrittenReferenceEquality(size.uriWindow);
+        long start = stats == null ? 0 : System.nanoTime();
         try {
             writeHeader(writer, size.valueWindow, size.typeWindow, size.uriWindow);
             writer.writeNestedField(IValueIDs.Header.VALUE);
-            write(writer, vf, value, typeCache, valueCache, uriCache);
+            if (stats == null) {
+                write(writer, vf, value, typeCache, valueCache, uriCache, blocks);
+            }
+            else {
+                CountingWireOutputStream counter = new CountingWireOutputStream(writer);
+                write(counter, vf, value, stats.getTypes().track(typeCache, size.typeWindow, counter), stats.getValues().track(valueCache, size.valueWindow, counter), stats.getSourceLocations().track(uriCache, size.uriWindow, counter), blocks);
+            }
             writer.endMessage();
         } finally {
+            if (stats != null) {
+                stats.addSerialized(WindowStatistics.kindOf(value), System.nanoTime() - start);
+            }
             windowFactory.returnTrackLastWrittenReferenceEquality(typeCache);
-            windowFactory.returnTrackLastWrittenReferenceEquality(valueCache);
+            if (size.structuralEquality) {
+                windowFactory.returnTrackLastWrittenStructuralEquality(valueCache);
+            }
+            else {
+                windowFactory.returnTrackLastWrittenReferenceEquality(valueCache);
+            }
             windowFactory.returnTrackLastWrittenReferenceEquality(uriCache);
         }
     }
@@ -185,7 +233,7 @@ public class IValueWriter {
 
                 writer.writeNestedField(IValueIDs.ExternalType.SYMBOL);
                 IConstructor symbol = type.asSymbol(vf, new TypeStore(), vf.setWriter(), new HashSet<>());
-                write(writer, vf, symbol, typeCache, valueCache, uriCache);
+                write(writer, vf, symbol, typeCache, valueCache, uriCache, null);
 
                 writer.endMessage();
                 typeCache.write(type);
@@ -367,12 +415,21 @@ public class IValueWriter {
         writer.writeField(IValueIDs.Common.CAN_BE_BACK_REFERENCED, 1);
     }
 
-    private static void write(final IWireOutputStream writer, IValueFactory vf, final IValue value, final TrackLastWritten<Type> typeCache, final TrackLastWritten<IValue> valueCache, final TrackLastWritten<ISourceLocation> uriCache) throws IOException {
+    private static void write(final IWireOutputStream writer, IValueFactory vf, final IValue value, final TrackLastWritten<Type> typeCache, final TrackLastWritten<IValue> valueCache, final TrackLastWritten<ISourceLocation> uriCache, final ToIntFunction<IValue> blocks) throws IOException {
         final IInteger MININT = vf.integer(Integer.MIN_VALUE);
         final IInteger MAXINT = vf.integer(Integer.MAX_VALUE);
 
         StacklessStructuredVisitor.accept(value, new StructuredIValueVisitor<IOException>() {
 
+            private boolean writeFromBlock(IValue val) throws IOException {
+                int block = blocks == null ? -1 : blocks.applyAsInt(val);
+                if (block != -1) {
+                    writeSingleValueMessage(writer, IValueIDs.BlockReference.ID, IValueIDs.BlockReference.BLOCK, block);
+                    return true;
+                }
+                return false;
+            }
+
             private boolean writeFromCache(IValue val) throws IOException {
                 int lastSeen = valueCache.howLongAgo(val);
                 if (lastSeen != -1) {
@@ -384,7 +441,7 @@ public class IValueWriter {
 
             @Override
             public boolean enterConstructor(IConstructor cons, int children) throws IOException {
-                if (writeFromCache(cons)) {
+                if (writeFromBlock(cons) || writeFromCache(cons)) {
                     return false;
                 }
                 writer.startMessage(IValueIDs.ConstructorValue.ID);
@@ -418,7 +475,7 @@ public class IValueWriter {
 
             @Override
             public boolean enterNode(INode node, int children) throws IOException {
-                if (writeFromCache(node)) {
+                if (writeFromBlock(node) || writeFromCache(node)) {
                     return false;
                 }
                 writer.startMessage(IValueIDs.NodeValue.ID);
@@ -461,7 +518,7 @@ public class IValueWriter {
 
             @Override
             public boolean enterList(IList lst, int children) throws IOException {
-                if (writeFromCache(lst)) {
+                if (writeFromBlock(lst) || writeFromCache(lst)) {
                     return false;
                 }
                 writer.startMessage(IValueIDs.ListValue.ID);
@@ -478,7 +535,7 @@ public class IValueWriter {
 
             @Override
             public boolean enterSet(ISet lst, int elements) throws IOException {
-                if (writeFromCache(lst)) {
+                if (writeFromBlock(lst) || writeFromCache(lst)) {
                     return false;
                 }
                 writer.startMessage(IValueIDs.SetValue.ID);
@@ -495,7 +552,7 @@ public class IValueWriter {
 
             @Override
             public boolean enterMap(IMap map, int elements) throws IOException {
-                if (writeFromCache(map)) {
+                if (writeFromBlock(map) || writeFromCache(map)) {
                     return false;
                 }
                 writer.startMessage(IValueIDs.MapValue.ID);
@@ -512,7 +569,7 @@ public class IValueWriter {
 
             @Override
             public boolean enterTuple(ITuple tuple, int arity) throws IOException {
-                if (writeFromCache(tuple)) {
+                if (writeFromBlock(tuple) || writeFromCache(tuple)) {
                     return false;
                 }
                 writer.startMessage(IValueIDs.TupleValue.ID);
@@ -25,6 +25,7 @@ package io.usethesource.vallang.io.binary.stream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
@@ -38,6 +39,7 @@ import com.github.luben.zstd.util.Native;
 
 import io.usethesource.vallang.io.binary.util.ByteBufferInputStream;
 import io.usethesource.vallang.io.binary.util.DirectZstdInputStream;
+import io.usethesource.vallang.io.binary.util.ParallelBlockDecompressionInputStream;
 
 /* package */ final class Compressor {
 
@@ -70,6 +72,19 @@ import io.usethesource.vallang.io.binary.util.DirectZstdInputStream;
     }
 
     public static InputStream wrapStream(InputStream raw, int algorithm) throws IOException {
+        return wrapStream(raw, algorithm, ParallelBlockDecompressionInputStream.sharedWorkers(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param blockWorkers decompress blocked streams, see {@link ParallelBlockDecompressionInputStream}
+     * @param blockParallelism the number of blocks that are decompressed at the same time
+     */
+    public static InputStream wrapStream(InputStream raw, int algorithm, ExecutorService blockWorkers, int blockParallelism) throws IOException {
+        if ((algorithm & Header.Compression.BLOCKED) != 0) {
+            final int blockAlgorithm = algorithm & ~Header.Compression.BLOCKED;
+            return new ParallelBlockDecompressionInputStream(raw, blockWorkers, blockParallelism, 
+                block -> wrapStream(block, blockAlgorithm));
+        }
         switch (algorithm) {
             case Header.Compression.NONE:
                 return raw;
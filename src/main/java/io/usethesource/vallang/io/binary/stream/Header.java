@@ -14,11 +14,17 @@ package io.usethesource.vallang.io.binary.stream;
 
 /*package*/ final class Header {
     public static final byte[] MAIN = { 'R', 'V', 1,0,0 };
+    public static final byte[] INDEXED = { 'R', 'V', 'X', 1,0 };
+    public static final byte[] INDEXED_TRAILER = { 'R', 'V', 'X', 'E', 'N', 'D' };
     public static final class Compression {
         public static final byte NONE = 0;
         public static final byte GZIP = 1;
         public static final byte XZ = 2;
         public static final byte ZSTD = 3;
+        /**
+         * Flag combined with one of the algorithms, the stream is split in independently compressed blocks
+         */
+        public static final byte BLOCKED = 0x10;
     }
 
 }
@@ -0,0 +1,217 @@
+/** 
+ * Copyright (c) 2016, Davy Landman, Paul Klint, Centrum Wiskunde & Informatica (CWI) 
+ * All rights reserved. 
+ *  
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met: 
+ *  
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer. 
+ *  
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution. 
+ *  
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */ 
+package io.usethesource.vallang.io.binary.stream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import io.usethesource.vallang.INode;
+import io.usethesource.vallang.ITuple;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+import io.usethesource.vallang.io.binary.message.IValueReader;
+import io.usethesource.vallang.io.binary.util.ByteBufferInputStream;
+import io.usethesource.vallang.io.binary.wire.binary.BinaryWireInputStream;
+import io.usethesource.vallang.type.TypeStore;
+
+/**
+ * Random access reader for files written using the {@linkplain IValueIndexedOutputStream}. <br />
+ * <br />
+ * The file is memory-mapped and only the footer is read on opening, a value is only deserialized when it is requested with {@linkplain #read(int)}.
+ * A large field of a value, which was written as a block of its own, can be read without the rest of the value with {@linkplain #readField(int, int)}.
+ * Since every read works on its own view of the mapped file, different values can be read concurrently.
+ */
+public class IValueIndexedInputStream implements Closeable {
+    private static final int TRAILER_SIZE = Long.BYTES + Header.INDEXED_TRAILER.length;
+    /**
+     * blocks that are larger are mapped in consecutive windows of this size
+     */
+    private static final int MAX_MAPPING = 1 << 30;
+
+    private final FileChannel channel;
+    private final IValueFactory vf;
+    private final Supplier<TypeStore> typeStoreSupplier;
+    /**
+     * the start of every block, followed by the start of the footer
+     */
+    private final long[] offsets;
+    private final int[] values;
+    /**
+     * the blocks of the fields of every value, -1 if the field is stored in the block of the value
+     */
+    private final int[][] fields;
+    /**
+     * null if the file is too big to map in one go, then every block is mapped on demand
+     */
+    private final MappedByteBuffer mapped;
+
+    public IValueIndexedInputStream(FileChannel channel, IValueFactory vf, Supplier<TypeStore> typeStoreSupplier) throws IOException {
+        this.channel = channel;
+        this.vf = vf;
+        this.typeStoreSupplier = typeStoreSupplier;
+
+        long size = channel.size();
+        if (size < Header.INDEXED.length + Integer.BYTES + TRAILER_SIZE) {
+            throw new IOException("Unsupported file");
+        }
+        mapped = size <= Integer.MAX_VALUE ? channel.map(MapMode.READ_ONLY, 0, size) : null;
+
+        ByteBuffer header = map(0, Header.INDEXED.length);
+        byte[] currentHeader = new byte[Header.INDEXED.length];
+        header.get(currentHeader);
+        if (!Arrays.equals(Header.INDEXED, currentHeader)) {
+            throw new IOException("Unsupported file");
+        }
+
+        ByteBuffer trailer = map(size - TRAILER_SIZE, TRAILER_SIZE);
+        long footer = trailer.getLong();
+        byte[] currentTrailer = new byte[Header.INDEXED_TRAILER.length];
+        trailer.get(currentTrailer);
+        if (!Arrays.equals(Header.INDEXED_TRAILER, currentTrailer) || footer < Header.INDEXED.length || footer > size - TRAILER_SIZE - Integer.BYTES) {
+            throw new IOException("Corrupt or incomplete indexed file");
+        }
+
+        ByteBuffer index = map(footer, size - TRAILER_SIZE - footer);
+        try {
+            int blockCount = index.getInt();
+            if (blockCount < 0 || index.remaining() < (long)blockCount * Long.BYTES) {
+                throw new IOException("Corrupt or incomplete indexed file");
+            }
+            offsets = new long[blockCount + 1];
+            for (int i = 0; i < blockCount; i++) {
+                offsets[i] = index.getLong();
+            }
+            offsets[blockCount] = footer;
+
+            int count = index.getInt();
+            if (count < 0 || index.remaining() < (long)count * 2 * Integer.BYTES) {
+                throw new IOException("Corrupt or incomplete indexed file");
+            }
+            values = new int[count];
+            fields = new int[count][];
+            for (int i = 0; i < count; i++) {
+                values[i] = checkBlock(index.getInt());
+                fields[i] = new int[index.getInt()];
+                for (int f = 0; f < fields[i].length; f++) {
+                    int block = index.getInt();
+                    fields[i][f] = block == -1 ? -1 : checkBlock(block);
+                }
+            }
+            if (index.hasRemaining()) {
+                throw new IOException("Corrupt or incomplete indexed file");
+            }
+        }
+        catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Corrupt or incomplete indexed file", e);
+        }
+    }
+
+    private int checkBlock(int block) throws IOException {
+        if (block < 0 || block >= offsets.length - 1) {
+            throw new IOException("Corrupt or incomplete indexed file");
+        }
+        return block;
+    }
+
+    private ByteBuffer map(long offset, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Block too large to map: " + length);
+        }
+        if (mapped == null) {
+            return channel.map(MapMode.READ_ONLY, offset, length);
+        }
+        ByteBuffer result = mapped.duplicate();
+        result.position((int)offset);
+        result.limit((int)(offset + length));
+        return result.slice();
+    }
+
+    private ByteBufferInputStream block(final long offset, final long length) throws IOException {
+        if (length <= MAX_MAPPING) {
+            return new ByteBufferInputStream(map(offset, length));
+        }
+        return new ByteBufferInputStream(map(offset, MAX_MAPPING)) {
+            private long next = offset + MAX_MAPPING;
+
+            @Override
+            protected ByteBuffer refill(ByteBuffer torefill) throws IOException {
+                final long end = offset + length;
+                if (next >= end) {
+                    return torefill;
+                }
+                final ByteBuffer result = map(next, Math.min(MAX_MAPPING, end - next));
+                next += result.remaining();
+                return result;
+            }
+        };
+    }
+
+    /**
+     * @return the number of values in the file
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Deserialize the value at a certain index, the other values in the file are not touched.
+     */
+    public IValue read(int index) throws IOException {
+        checkIndex(index);
+        return readBlock(values[index]);
+    }
+
+    /**
+     * Deserialize a field of the value at a certain index: an argument of a node or constructor, or an element of a tuple. <br/>
+     * <br/>
+     * If the field was written as a block of its own, only that block is read. Otherwise the whole value is read.
+     */
+    public IValue readField(int index, int field) throws IOException {
+        checkIndex(index);
+        if (field >= 0 && field < fields[index].length && fields[index][field] != -1) {
+            return readBlock(fields[index][field]);
+        }
+        IValue value = read(index);
+        if (value instanceof INode) {
+            return ((INode) value).get(field);
+        }
+        if (value instanceof ITuple) {
+            return ((ITuple) value).get(field);
+        }
+        throw new IllegalArgumentException("Value has no fields: " + value.getType());
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+        }
+    }
+
+    private IValue readBlock(int block) throws IOException {
+        try (BinaryWireInputStream reader = new BinaryWireInputStream(block(offsets[block], offsets[block + 1] - offsets[block]))) {
+            return IValueReader.readValue(reader, vf, typeStoreSupplier, null, this::readBlock);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,264 @@
+/** 
+ * Copyright (c) 2016, Davy Landman, Paul Klint, Centrum Wiskunde & Informatica (CWI) 
+ * All rights reserved. 
+ *  
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met: 
+ *  
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer. 
+ *  
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution. 
+ *  
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */ 
+package io.usethesource.vallang.io.binary.stream;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import io.usethesource.vallang.IList;
+import io.usethesource.vallang.IMap;
+import io.usethesource.vallang.INode;
+import io.usethesource.vallang.ISet;
+import io.usethesource.vallang.ITuple;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+import io.usethesource.vallang.io.binary.message.IValueWriter;
+import io.usethesource.vallang.io.binary.util.WindowSizes;
+import io.usethesource.vallang.io.binary.wire.binary.BinaryWireOutputStream;
+
+/**
+ * A binary serializer for IValues that supports random access on read-back, see {@linkplain IValueIndexedInputStream}. <br/>
+ * <br />
+ * Every written value is stored as an uncompressed block, with fresh sharing windows, so a block never refers back into an earlier one.
+ * The fields of a node, constructor or tuple (its arguments or elements) that consist of at least <code>blockThreshold</code> values are written first,
+ * as blocks of their own, and the value only contains a reference to their block. This applies recursively to the fields of those fields.
+ * When the stream is closed, a footer with the offsets of all the blocks, and the blocks of every value and its fields, is appended. <br/>
+ * <br />
+ * The {@linkplain IValueIndexedInputStream} can therefore read a large field without the rest of its value, see {@linkplain IValueIndexedInputStream#readField(int, int)}.
+ * Other parts of a value, like the elements of a big list, are not indexed; write those as separate values to access them lazily.
+ * Blocks are written straight to the underlying stream, so they are not limited in size and are not buffered in memory.
+ */
+public class IValueIndexedOutputStream implements Closeable {
+    public static final int DEFAULT_BLOCK_THRESHOLD = 64 * 1024;
+    private static final int[] NO_FIELDS = new int[0];
+
+    private final OutputStream raw;
+    private final PositionOutputStream out;
+    private final IValueFactory vf;
+    private final WindowSizes sizes;
+    private final int blockThreshold;
+    private long[] offsets = new long[16];
+    private int blockCount = 0;
+    // the block of every value, and the blocks of its fields (-1 if a field is in the block of the value)
+    private int[] values = new int[16];
+    private int[][] fields = new int[16][];
+    private int count = 0;
+    private boolean closed = false;
+
+    public IValueIndexedOutputStream(OutputStream out, IValueFactory vf) throws IOException {
+        this(out, vf, WindowSizes.NORMAL_WINDOW);
+    }
+
+    public IValueIndexedOutputStream(FileChannel channel, IValueFactory vf) throws IOException {
+        this(Channels.newOutputStream(channel), vf);
+    }
+
+    public IValueIndexedOutputStream(OutputStream out, IValueFactory vf, WindowSizes sizes) throws IOException {
+        this(out, vf, sizes, DEFAULT_BLOCK_THRESHOLD);
+    }
+
+    /**
+     * @param blockThreshold the number of values a field should at least consist of to be written as a block of its own, 
+     * {@link Integer#MAX_VALUE} to only write the values as blocks
+     */
+    public IValueIndexedOutputStream(OutputStream out, IValueFactory vf, WindowSizes sizes, int blockThreshold) throws IOException {
+        if (blockThreshold < 2) {
+            throw new IllegalArgumentException("Block threshold must be at least 2");
+        }
+        this.raw = out;
+        this.out = new PositionOutputStream(new BufferedOutputStream(out));
+        this.vf = vf;
+        this.sizes = sizes;
+        this.blockThreshold = blockThreshold;
+        this.out.write(Header.INDEXED);
+    }
+
+    /**
+     * Keeps track of the position in the file, and stays open when the wire stream of a block is closed.
+     */
+    private static final class PositionOutputStream extends FilterOutputStream {
+        private long position = 0;
+
+        PositionOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * Write a value as a new block, after its large fields.
+     * @return the index of the value, to be used in {@linkplain IValueIndexedInputStream#read(int)}
+     */
+    public int write(IValue value) throws IOException {
+        if (closed) {
+            throw new IOException("Already closed");
+        }
+        final Map<IValue, Integer> written = new IdentityHashMap<>();
+        final int[] fieldBlocks = writeFields(value, written);
+        final int block = writeBlock(value, written);
+
+        if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+            fields = Arrays.copyOf(fields, count * 2);
+        }
+        values[count] = block;
+        fields[count] = fieldBlocks;
+        return count++;
+    }
+
+    /**
+     * Write the large fields of a value as blocks.
+     * @param written the sub-values that already have a block, by identity
+     * @return the block of every field, or -1 if it is written in place
+     */
+    private int[] writeFields(IValue value, Map<IValue, Integer> written) throws IOException {
+        if (!(value instanceof INode || value instanceof ITuple)) {
+            return NO_FIELDS;
+        }
+        final int arity = value instanceof INode ? ((INode) value).arity() : ((ITuple) value).arity();
+        final int[] result = new int[arity];
+        for (int i = 0; i < arity; i++) {
+            final IValue field = value instanceof INode ? ((INode) value).get(i) : ((ITuple) value).get(i);
+            final Integer block = written.get(field);
+            if (block != null) {
+                result[i] = block;
+            }
+            else if (isLarge(field)) {
+                writeFields(field, written);
+                result[i] = writeBlock(field, written);
+                written.put(field, result[i]);
+            }
+            else {
+                result[i] = -1;
+            }
+        }
+        return result;
+    }
+
+    private int writeBlock(IValue value, Map<IValue, Integer> written) throws IOException {
+        if (blockCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, blockCount * 2);
+        }
+        offsets[blockCount] = out.position;
+        try (BinaryWireOutputStream writer = new BinaryWireOutputStream(out, sizes.stringsWindow)) {
+            if (written.isEmpty()) {
+                IValueWriter.write(writer, vf, sizes, value);
+            }
+            else {
+                IValueWriter.write(writer, vf, sizes, value, null, v -> v == value ? -1 : written.getOrDefault(v, -1));
+            }
+        }
+        return blockCount++;
+    }
+
+    /**
+     * @return true if the value consists of at least <code>blockThreshold</code> values, only that many values are visited
+     */
+    private boolean isLarge(IValue value) {
+        int seen = 0;
+        final ArrayDeque<Iterator<IValue>> todo = new ArrayDeque<>();
+        todo.push(Arrays.asList(value).iterator());
+        while (!todo.isEmpty()) {
+            final Iterator<IValue> current = todo.peek();
+            if (!current.hasNext()) {
+                todo.pop();
+                continue;
+            }
+            final IValue next = current.next();
+            if (++seen >= blockThreshold) {
+                return true;
+            }
+            if (next instanceof INode) {
+                todo.push(((INode) next).getChildren().iterator());
+            }
+            else if (next instanceof IMap) {
+                todo.push(((IMap) next).valueIterator());
+                todo.push(((IMap) next).iterator());
+            }
+            else if (next instanceof ITuple) {
+                todo.push(((ITuple) next).iterator());
+            }
+            else if (next instanceof IList) {
+                todo.push(((IList) next).iterator());
+            }
+            else if (next instanceof ISet) {
+                todo.push(((ISet) next).iterator());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of values written so far
+     */
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (OutputStream toClose = raw) {
+            final long footer = out.position;
+            final DataOutputStream data = new DataOutputStream(out);
+            // footer: the start of every block, the last block ends where the footer starts
+            data.writeInt(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                data.writeLong(offsets[i]);
+            }
+            // then the block of every value, and the blocks of its fields
+            data.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                data.writeInt(values[i]);
+                data.writeInt(fields[i].length);
+                for (int block : fields[i]) {
+                    data.writeInt(block);
+                }
+            }
+            // trailer: where to find the footer
+            data.writeLong(footer);
+            data.write(Header.INDEXED_TRAILER);
+            data.flush();
+        }
+    }
+}
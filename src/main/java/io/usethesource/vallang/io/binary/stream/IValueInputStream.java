@@ -19,12 +19,15 @@ import java.io.InputStream;
 import java.io.SequenceInputStream;
 import java.nio.channels.FileChannel;
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Supplier;
 
 import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.IValueFactory;
 import io.usethesource.vallang.io.binary.message.IValueReader;
 import io.usethesource.vallang.io.binary.util.FileChannelDirectInputStream;
+import io.usethesource.vallang.io.binary.util.ParallelBlockDecompressionInputStream;
+import io.usethesource.vallang.io.binary.util.WindowStatistics;
 import io.usethesource.vallang.io.binary.wire.binary.BinaryWireInputStream;
 import io.usethesource.vallang.io.old.BinaryReader;
 import io.usethesource.vallang.type.TypeStore;
@@ -40,6 +43,7 @@ public class IValueInputStream implements Closeable {
     private final BinaryWireInputStream reader;
     private final IValueFactory vf;
     private final Supplier<TypeStore> typeStoreSupplier;
+    private WindowStatistics statistics = null;
 
     private final boolean legacy;
     private final BinaryReader legacyReader;
@@ -48,6 +52,16 @@ public class IValueInputStream implements Closeable {
      * This will <strong>consume</strong> the whole stream (or at least more than needed due to buffering), don't use the InputStream afterwards!
      */
     public IValueInputStream(InputStream in, IValueFactory vf, Supplier<TypeStore> typeStoreSupplier) throws IOException {
+        this(in, vf, typeStoreSupplier, ParallelBlockDecompressionInputStream.sharedWorkers(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * This will <strong>consume</strong> the whole stream (or at least more than needed due to buffering), don't use the InputStream afterwards!
+     * 
+     * @param decompressionWorkers decompress the blocks of streams written with more than one compression thread, they are not shut down by this stream
+     * @param decompressionThreads the number of blocks that are decompressed at the same time
+     */
+    public IValueInputStream(InputStream in, IValueFactory vf, Supplier<TypeStore> typeStoreSupplier, ExecutorService decompressionWorkers, int decompressionThreads) throws IOException {
         this.vf = vf;
         this.typeStoreSupplier = typeStoreSupplier;
         byte[] currentHeader = new byte[Header.MAIN.length];
@@ -72,7 +86,7 @@ public class IValueInputStream implements Closeable {
         legacyReader = null;
 
         int compression = in.read();
-        in = Compressor.wrapStream(in, compression);
+        in = Compressor.wrapStream(in, compression, decompressionWorkers, decompressionThreads);
         reader = new BinaryWireInputStream(in);
     }
     
@@ -81,11 +95,31 @@ public class IValueInputStream implements Closeable {
         this(new FileChannelDirectInputStream(channel), vf, typeStoreSupplier);
     }
 
+    /**
+     * Collect statistics on the back-reference windows for the values read after this call, pass null to stop collecting.
+     * Not supported for the legacy format.
+     */
+    public void setWindowStatistics(WindowStatistics statistics) {
+        this.statistics = statistics;
+    }
+
     public IValue read() throws IOException {
         if (legacy) {
             return legacyReader.deserialize();
         }
-        return IValueReader.readValue(reader, vf, typeStoreSupplier);
+        return IValueReader.readValue(reader, vf, typeStoreSupplier, statistics);
+    }
+
+    /**
+     * Read the next value element by element, instead of materializing it completely. Memory is then bounded by the back-reference windows, not by the size of the value.
+     * See {@link IValueReader#readElements} for details, this stream can only be used again after the returned reader is closed.
+     * Not supported for the legacy format.
+     */
+    public IValueReader.ElementReader readElements() throws IOException {
+        if (legacy) {
+            throw new IOException("Streaming elements is not supported for the old value format");
+        }
+        return IValueReader.readElements(reader, vf, typeStoreSupplier, statistics);
     }
     
     @Override
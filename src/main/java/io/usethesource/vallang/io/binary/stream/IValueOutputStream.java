@@ -24,7 +24,9 @@ import io.usethesource.vallang.io.binary.util.ByteBufferOutputStream;
 import io.usethesource.vallang.io.binary.util.DelayedCompressionOutputStream;
 import io.usethesource.vallang.io.binary.util.DelayedZstdOutputStream;
 import io.usethesource.vallang.io.binary.util.FileChannelDirectOutputStream;
+import io.usethesource.vallang.io.binary.util.ParallelBlockCompressionOutputStream;
 import io.usethesource.vallang.io.binary.util.WindowSizes;
+import io.usethesource.vallang.io.binary.util.WindowStatistics;
 import io.usethesource.vallang.io.binary.wire.IWireOutputStream;
 import io.usethesource.vallang.io.binary.wire.binary.BinaryWireOutputStream;
             
@@ -67,9 +69,12 @@ public class IValueOutputStream implements Closeable {
     
     
     private CompressionRate compression;
+    private final int compressionThreads;
     private OutputStream rawStream;
     private IWireOutputStream writer;
     private final IValueFactory vf;
+    private WindowStatistics statistics = null;
+    private boolean structuralEquality = false;
 
     public IValueOutputStream(OutputStream out, IValueFactory vf) throws IOException {
         this(out, vf, CompressionRate.Normal);
@@ -79,11 +84,27 @@ public class IValueOutputStream implements Closeable {
         this(byteBufferedOutput(channel), vf, compression);
     }
 
+    public IValueOutputStream(FileChannel channel, IValueFactory vf, CompressionRate compression, int compressionThreads) throws IOException {
+        this(byteBufferedOutput(channel), vf, compression, compressionThreads);
+    }
+
     
     public IValueOutputStream(OutputStream out, IValueFactory vf, CompressionRate compression) throws IOException {
+        this(out, vf, compression, 1);
+    }
+
+    /**
+     * @param compressionThreads if more than one, the stream is split in blocks that are compressed in parallel by this many threads.
+     * This trades a slightly worse compression ratio for throughput on large values.
+     */
+    public IValueOutputStream(OutputStream out, IValueFactory vf, CompressionRate compression, int compressionThreads) throws IOException {
+        if (compressionThreads < 1) {
+            throw new IllegalArgumentException("At least one compression thread is needed");
+        }
         out.write(Header.MAIN);
         this.rawStream = out;
         this.compression = compression;
+        this.compressionThreads = compressionThreads;
         this.writer = null;
         this.vf = vf;
     }
@@ -93,12 +114,30 @@ public class IValueOutputStream implements Closeable {
     }
     
     
+    /**
+     * Collect statistics on the back-reference windows for the values written after this call, pass null to stop collecting.
+     */
+    public void setWindowStatistics(WindowStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Also write structurally equal (but not identical) values as back-references, see {@link WindowSizes#withStructuralEquality()}.
+     * This makes the output smaller for redundant values that do not share their sub-terms in memory, at the cost of more hashing while writing.
+     */
+    public void setStructuralEquality(boolean structuralEquality) {
+        this.structuralEquality = structuralEquality;
+    }
+
     public void write(IValue value) throws IOException {
         WindowSizes sizes = compression.compressionLevel == 0 ? WindowSizes.NO_WINDOW : WindowSizes.NORMAL_WINDOW;
         if (writer == null) {
             writer = initializeWriter(sizes);
         }
-        IValueWriter.write(writer, vf, sizes, value);
+        if (structuralEquality) {
+            sizes = sizes.withStructuralEquality();
+        }
+        IValueWriter.write(writer, vf, sizes, value, statistics);
     }
 
 
@@ -115,7 +154,13 @@ public class IValueOutputStream implements Closeable {
             compression = CompressionRate.None;
         }
         int algorithm = fallbackIfNeeded(compression.compressionAlgorithm);
-        if (rawStream instanceof ByteBufferOutputStream && algorithm == Header.Compression.ZSTD && ((ByteBufferOutputStream)rawStream).getBuffer().isDirect()) {
+        if (compressionThreads > 1 && algorithm != Header.Compression.NONE) {
+            rawStream.write(algorithm | Header.Compression.BLOCKED);
+            rawStream = new ParallelBlockCompressionOutputStream(rawStream, compressionThreads, o ->
+                Compressor.wrapStream(o, algorithm, compression.compressionLevel)
+            );
+        }
+        else if (rawStream instanceof ByteBufferOutputStream && algorithm == Header.Compression.ZSTD && ((ByteBufferOutputStream)rawStream).getBuffer().isDirect()) {
             rawStream = new DelayedZstdOutputStream((ByteBufferOutputStream)rawStream, algorithm, compression.compressionLevel);
         }
         else {
@@ -0,0 +1,174 @@
+/** 
+ * Copyright (c) 2016, Davy Landman, Centrum Wiskunde & Informatica (CWI) 
+ * All rights reserved. 
+ *  
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met: 
+ *  
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer. 
+ *  
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution. 
+ *  
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */ 
+package io.usethesource.vallang.io.binary.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongConsumer;
+
+import io.usethesource.vallang.io.binary.wire.FieldKind;
+import io.usethesource.vallang.io.binary.wire.IWireOutputStream;
+
+/**
+ * Wraps a wire stream and counts how many bytes the messages take in the encoding of the 
+ * {@link io.usethesource.vallang.io.binary.wire.binary.BinaryWireOutputStream BinaryWireOutputStream}. <br/>
+ * <br/>
+ * Strings are counted in full, the binary wire stream may replace a repeated string by a reference into its own string window,
+ * which this stream cannot see.
+ */
+public class CountingWireOutputStream implements IWireOutputStream {
+    private final IWireOutputStream out;
+    private long written = 0;
+    private int depth = 0;
+
+    private LongConsumer pending = null;
+    private long pendingStart;
+    private int pendingDepth;
+
+    public CountingWireOutputStream(IWireOutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * @return the bytes written so far
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * Measure the next field or message written at the current nesting level, the size is passed to the consumer once it is complete.
+     */
+    public void measureNext(LongConsumer size) {
+        pending = size;
+        pendingStart = written;
+        pendingDepth = depth;
+    }
+
+    private void completed() {
+        if (pending != null && depth == pendingDepth) {
+            final LongConsumer size = pending;
+            pending = null;
+            size.accept(written - pendingStart);
+        }
+    }
+
+    private static int sizeOf(int value) {
+        int result = 1;
+        while ((value & ~0x7F) != 0) {
+            result++;
+            value >>>= 7;
+        }
+        return result;
+    }
+
+    private static int sizeOfTag(int fieldId, int type) {
+        return sizeOf(TaggedInt.make(fieldId, type));
+    }
+
+    private static int sizeOfLength(int length, int type) {
+        if (length < TaggedInt.MAX_ORIGINAL_VALUE) {
+            return sizeOf(TaggedInt.make(length, type));
+        }
+        return sizeOf(TaggedInt.make(TaggedInt.MAX_ORIGINAL_VALUE, type)) + sizeOf(length);
+    }
+
+    private static int sizeOf(String value) {
+        final int bytes = value.getBytes(StandardCharsets.UTF_8).length;
+        return sizeOf(bytes) + bytes;
+    }
+
+    @Override
+    public void startMessage(int messageId) throws IOException {
+        out.startMessage(messageId);
+        written += sizeOfTag(messageId, 0);
+        depth++;
+    }
+
+    @Override
+    public void writeField(int fieldId, int value) throws IOException {
+        out.writeField(fieldId, value);
+        written += sizeOfTag(fieldId, FieldKind.INT) + sizeOf(value);
+        completed();
+    }
+
+    @Override
+    public void writeField(int fieldId, byte[] value) throws IOException {
+        out.writeField(fieldId, value);
+        written += sizeOfTag(fieldId, FieldKind.REPEATED) + sizeOfLength(value.length, FieldKind.Repeated.BYTES) + value.length;
+        completed();
+    }
+
+    @Override
+    public void writeField(int fieldId, String value) throws IOException {
+        out.writeField(fieldId, value);
+        written += sizeOfTag(fieldId, FieldKind.STRING) + sizeOf(value);
+        completed();
+    }
+
+    @Override
+    public void writeField(int fieldId, int[] values) throws IOException {
+        out.writeField(fieldId, values);
+        written += sizeOfTag(fieldId, FieldKind.REPEATED) + sizeOfLength(values.length, FieldKind.Repeated.INTS);
+        for (int v : values) {
+            written += sizeOf(v);
+        }
+        completed();
+    }
+
+    @Override
+    public void writeField(int fieldId, String[] values) throws IOException {
+        out.writeField(fieldId, values);
+        written += sizeOfTag(fieldId, FieldKind.REPEATED) + sizeOfLength(values.length, FieldKind.Repeated.STRINGS);
+        for (String s : values) {
+            written += sizeOf(TaggedInt.make(0, FieldKind.STRING)) + sizeOf(s);
+        }
+        completed();
+    }
+
+    @Override
+    public void writeNestedField(int fieldId) throws IOException {
+        out.writeNestedField(fieldId);
+        written += sizeOfTag(fieldId, FieldKind.NESTED);
+    }
+
+    @Override
+    public void writeRepeatedNestedField(int fieldId, int numberOfNestedElements) throws IOException {
+        out.writeRepeatedNestedField(fieldId, numberOfNestedElements);
+        written += sizeOfTag(fieldId, FieldKind.REPEATED);
+        if (numberOfNestedElements <= TaggedInt.MAX_ORIGINAL_VALUE) {
+            written += sizeOf(TaggedInt.make(numberOfNestedElements, FieldKind.Repeated.NESTEDS));
+        }
+        else {
+            written += sizeOf(TaggedInt.make(TaggedInt.MAX_ORIGINAL_VALUE, FieldKind.Repeated.NESTEDS)) + sizeOf(numberOfNestedElements);
+        }
+    }
+
+    @Override
+    public void endMessage() throws IOException {
+        out.endMessage();
+        written += sizeOfTag(0, 0);
+        depth--;
+        completed();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -12,6 +12,12 @@
  */ 
 package io.usethesource.vallang.io.binary.util;
 
+import io.usethesource.vallang.IList;
+import io.usethesource.vallang.INode;
+import io.usethesource.vallang.IString;
+import io.usethesource.vallang.ITuple;
+import io.usethesource.vallang.IValue;
+
 /**
  * A track last written implementation that uses linear open addressing to implement the very specific hashmap
  * 
@@ -70,6 +76,30 @@ public abstract class OpenAddressingLastWritten<T> implements TrackLastWritten<T
         };
     }
 
+    /**
+     * Create a n OpenAddressingLastWritten container for values that uses structural equality for values with cheap (cached) hash codes, 
+     * so nodes, constructors, lists, tuples and strings. Other values (sets, maps, ...) fall back to reference equality.
+     * All value factories of this library cache the hash codes of these values, with other implementations writing deep values gets quadratic.
+     * @param maximumEntries larger than 0 and smaller than Integer.MAX_VALUE  / 2
+     */
+    public static OpenAddressingLastWritten<IValue> structuralEquality(int maximumEntries) {
+        return new OpenAddressingLastWritten<IValue>(maximumEntries) {
+            @Override
+            protected boolean equals(IValue a, IValue b) {
+                return a == b || (hashedStructurally(a) && a.equals(b));
+            }
+
+            @Override
+            protected int hash(IValue obj) {
+                return hashedStructurally(obj) ? obj.hashCode() : System.identityHashCode(obj);
+            }
+        };
+    }
+
+    private static boolean hashedStructurally(IValue obj) {
+        return obj instanceof INode || obj instanceof IList || obj instanceof ITuple || obj instanceof IString;
+    }
+
     /**
      * @param maximumEntries larger than 0 and smaller than Integer.MAX_VALUE  / 2
      */
@@ -0,0 +1,167 @@
+/** 
+ * Copyright (c) 2016, Davy Landman, Centrum Wiskunde & Informatica (CWI) 
+ * All rights reserved. 
+ *  
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met: 
+ *  
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer. 
+ *  
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution. 
+ *  
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */ 
+package io.usethesource.vallang.io.binary.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import io.usethesource.vallang.io.binary.util.DelayedCompressionOutputStream.WrappingCompressorFunction;
+
+/**
+ * Splits the stream in blocks that are compressed independently, and in parallel, by a pool of worker threads. <br/>
+ * <br/>
+ * Every block is written as: the uncompressed size, the compressed size, and the compressed bytes. An uncompressed size of 0 marks the end of the stream.
+ * See {@link ParallelBlockDecompressionInputStream} for the reading side.
+ */
+public class ParallelBlockCompressionOutputStream extends OutputStream {
+
+    public static final int BLOCK_SIZE = 1024*1024;
+
+    private static final class CompressedBlock {
+        private final int uncompressedSize;
+        private final byte[] compressed;
+
+        CompressedBlock(int uncompressedSize, byte[] compressed) {
+            this.uncompressedSize = uncompressedSize;
+            this.compressed = compressed;
+        }
+    }
+
+    private final DataOutputStream out;
+    private final WrappingCompressorFunction compress;
+    private final ExecutorService workers;
+    private final int maxInFlight;
+    private final ArrayDeque<Future<CompressedBlock>> inFlight = new ArrayDeque<>();
+    private byte[] buffer = new byte[BLOCK_SIZE];
+    private int written = 0;
+    private boolean closed = false;
+
+    public ParallelBlockCompressionOutputStream(OutputStream out, int threads, WrappingCompressorFunction compress) {
+        this.out = new DataOutputStream(out);
+        this.compress = compress;
+        this.workers = newWorkerPool(threads, "vallang-block-compressor");
+        this.maxInFlight = threads * 2;
+    }
+
+    private static ExecutorService newWorkerPool(int threads, String name) {
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (written == BLOCK_SIZE) {
+            submitBlock();
+        }
+        buffer[written++] = (byte)b;
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (written == BLOCK_SIZE) {
+                submitBlock();
+            }
+            int chunk = Math.min(len, BLOCK_SIZE - written);
+            System.arraycopy(b, off, buffer, written, chunk);
+            written += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if (written == 0) {
+            return;
+        }
+        final byte[] block = buffer;
+        final int size = written;
+        inFlight.add(workers.submit(() -> {
+            ByteArrayOutputStream result = new ByteArrayOutputStream(size / 2);
+            try (OutputStream compressor = compress.wrap(result)) {
+                compressor.write(block, 0, size);
+            }
+            return new CompressedBlock(size, result.toByteArray());
+        }));
+        buffer = new byte[BLOCK_SIZE];
+        written = 0;
+        while (inFlight.size() > maxInFlight) {
+            writeFinishedBlock();
+        }
+    }
+
+    private void writeFinishedBlock() throws IOException {
+        CompressedBlock block;
+        try {
+            block = inFlight.remove().get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        out.writeInt(block.uncompressedSize);
+        out.writeInt(block.compressed.length);
+        out.write(block.compressed);
+    }
+
+    /**
+     * Writes out all the blocks that are finished, the current partial block is kept since it would hurt the compression ratio.
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!inFlight.isEmpty() && inFlight.peek().isDone()) {
+            writeFinishedBlock();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (OutputStream out2 = out) {
+            submitBlock();
+            while (!inFlight.isEmpty()) {
+                writeFinishedBlock();
+            }
+            out.writeInt(0);
+        }
+        finally {
+            workers.shutdownNow();
+        }
+    }
+}
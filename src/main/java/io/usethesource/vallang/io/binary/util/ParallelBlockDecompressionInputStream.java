@@ -0,0 +1,181 @@
+/** 
+ * Copyright (c) 2016, Davy Landman, Centrum Wiskunde & Informatica (CWI) 
+ * All rights reserved. 
+ *  
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met: 
+ *  
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer. 
+ *  
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution. 
+ *  
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */ 
+package io.usethesource.vallang.io.binary.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the blocks written by {@link ParallelBlockCompressionOutputStream}. <br/>
+ * <br/>
+ * While the current block is consumed, the next blocks are already being decompressed by a pool of worker threads.
+ * The stream does not own this pool; closing the stream only cancels the blocks it still has in flight.
+ */
+public class ParallelBlockDecompressionInputStream extends InputStream {
+
+    @FunctionalInterface
+    public interface WrappingDecompressorFunction {
+        InputStream wrap(InputStream toWrap) throws IOException;
+    }
+
+    private final DataInputStream in;
+    private final WrappingDecompressorFunction decompress;
+    private final ExecutorService workers;
+    private final int readAhead;
+    private final ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private boolean endOfBlocks = false;
+    private byte[] current = new byte[0];
+    private int position = 0;
+    private boolean closed = false;
+
+    /**
+     * Decompress the blocks on the {@link #sharedWorkers() shared pool}.
+     */
+    public ParallelBlockDecompressionInputStream(InputStream in, int parallelism, WrappingDecompressorFunction decompress) {
+        this(in, sharedWorkers(), parallelism, decompress);
+    }
+
+    /**
+     * @param workers decompress the blocks, they are not shut down when this stream is closed
+     * @param parallelism the number of blocks that are decompressed at the same time, twice as many blocks are read ahead
+     */
+    public ParallelBlockDecompressionInputStream(InputStream in, ExecutorService workers, int parallelism, WrappingDecompressorFunction decompress) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be at least 1");
+        }
+        this.in = new DataInputStream(in);
+        this.decompress = decompress;
+        this.workers = workers;
+        this.readAhead = parallelism * 2;
+    }
+
+    /**
+     * A pool of daemon threads, one per available processor, shared by all the streams that are not given a pool.
+     * Idle threads stop after a few seconds, so streams that are never closed do not keep threads alive.
+     */
+    public static ExecutorService sharedWorkers() {
+        return SharedWorkers.POOL;
+    }
+
+    private static final class SharedWorkers {
+        private static final ExecutorService POOL = createPool();
+
+        private static ExecutorService createPool() {
+            int threads = Runtime.getRuntime().availableProcessors();
+            ThreadPoolExecutor result = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "vallang-block-decompressor");
+                t.setDaemon(true);
+                return t;
+            });
+            result.allowCoreThreadTimeOut(true);
+            return result;
+        }
+    }
+
+    private void scheduleBlocks() throws IOException {
+        while (!endOfBlocks && inFlight.size() < readAhead) {
+            final int size = in.readInt();
+            if (size == 0) {
+                endOfBlocks = true;
+                return;
+            }
+            final byte[] compressed = new byte[in.readInt()];
+            in.readFully(compressed);
+            inFlight.add(workers.submit(() -> {
+                byte[] result = new byte[size];
+                try (DataInputStream block = new DataInputStream(decompress.wrap(new ByteArrayInputStream(compressed)))) {
+                    block.readFully(result);
+                }
+                return result;
+            }));
+        }
+    }
+
+    /**
+     * @return false if there are no more blocks
+     */
+    private boolean nextBlock() throws IOException {
+        scheduleBlocks();
+        if (inFlight.isEmpty()) {
+            return false;
+        }
+        try {
+            current = inFlight.remove().get();
+            position = 0;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof EOFException) {
+                throw new IOException("Corrupt block", e.getCause());
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        scheduleBlocks();
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == current.length && !nextBlock()) {
+            return -1;
+        }
+        return Byte.toUnsignedInt(current[position++]);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == current.length && !nextBlock()) {
+            return -1;
+        }
+        int chunk = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, chunk);
+        position += chunk;
+        return chunk;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try (InputStream in2 = in) {
+                inFlight.forEach(f -> f.cancel(true));
+                inFlight.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.io.binary.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@link Writer} that encodes characters as UTF-8 directly into a pooled direct buffer (see
+ * {@link DirectByteBufferCache}), and writes that buffer to a channel when it is full or flushed.
+ * There is no intermediate encoder, and the channel does not have to copy the bytes to a direct
+ * buffer of its own.
+ * <br /><br />
+ * Unpaired surrogates are written as <code>'?'</code>, like the default replacement of the JDK
+ * encoders. Closing this writer returns the buffer to the cache, but does not close the channel.
+ * This writer is not thread-safe.
+ */
+public class Utf8ChannelWriter extends Writer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte REPLACEMENT = (byte) '?';
+
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer;
+
+    /** first half of a surrogate pair of which the second half was not written yet */
+    private char highSurrogate = 0;
+
+    public Utf8ChannelWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = DirectByteBufferCache.getInstance().get(BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        for (int i = off, end = off + len; i < end; i++) {
+            final char c = cbuf[i];
+            if (c < 0x80 && highSurrogate == 0 && buffer.hasRemaining()) {
+                buffer.put((byte) c);
+            }
+            else {
+                encode(c);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        for (int i = off, end = off + len; i < end; i++) {
+            final char c = str.charAt(i);
+            if (c < 0x80 && highSurrogate == 0 && buffer.hasRemaining()) {
+                buffer.put((byte) c);
+            }
+            else {
+                encode(c);
+            }
+        }
+    }
+
+    private void encode(char c) throws IOException {
+        if (highSurrogate != 0) {
+            final char high = highSurrogate;
+            highSurrogate = 0;
+
+            if (Character.isLowSurrogate(c)) {
+                final int cp = Character.toCodePoint(high, c);
+                reserve(4);
+                buffer.put((byte) (0xF0 | (cp >> 18)));
+                buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (cp & 0x3F)));
+                return;
+            }
+
+            reserve(1);
+            buffer.put(REPLACEMENT);
+        }
+
+        if (c < 0x80) {
+            reserve(1);
+            buffer.put((byte) c);
+        }
+        else if (c < 0x800) {
+            reserve(2);
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+        else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        }
+        else if (Character.isLowSurrogate(c)) {
+            reserve(1);
+            buffer.put(REPLACEMENT);
+        }
+        else {
+            reserve(3);
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (buffer == null) {
+            throw new IOException("Writer closed");
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer != null) {
+            try {
+                if (highSurrogate != 0) {
+                    highSurrogate = 0;
+                    reserve(1);
+                    buffer.put(REPLACEMENT);
+                }
+                drain();
+            }
+            finally {
+                DirectByteBufferCache.getInstance().put(buffer);
+                buffer = null;
+            }
+        }
+    }
+}
@@ -14,6 +14,8 @@ package io.usethesource.vallang.io.binary.util;
 
 import java.util.concurrent.TimeUnit;
 
+import io.usethesource.vallang.IValue;
+
 /**
  * Since we are constructing and deconstructing a lot of windows, use this factory to build them.
  * For caching reasons, also return the windows to this factory, so they can be reused again.
@@ -31,6 +33,7 @@ public class WindowCacheFactory {
     private final CacheFactory<TrackLastRead<Object>> lastReads = new CacheFactory<>(60, TimeUnit.SECONDS, WindowCacheFactory::clear);
     private final CacheFactory<TrackLastWritten<Object>> lastWrittenReference = new CacheFactory<>(60, TimeUnit.SECONDS, WindowCacheFactory::clear);
     private final CacheFactory<TrackLastWritten<Object>> lastWrittenObject = new CacheFactory<>(60, TimeUnit.SECONDS, WindowCacheFactory::clear);
+    private final CacheFactory<TrackLastWritten<IValue>> lastWrittenStructural = new CacheFactory<>(60, TimeUnit.SECONDS, WindowCacheFactory::clear);
     
     private final TrackLastRead<Object> disabledReadWindow = new TrackLastRead<Object>() {
         @Override
@@ -68,6 +71,17 @@ public class WindowCacheFactory {
         return (TrackLastWritten<T>) lastWrittenObject.get(size, OpenAddressingLastWritten::objectEquality);
     }
     
+    /**
+     * A window for values that also finds structurally equal values, see {@link OpenAddressingLastWritten#structuralEquality(int)}.
+     */
+    @SuppressWarnings("unchecked")
+    public TrackLastWritten<IValue> getTrackLastWrittenStructuralEquality(int size) {
+        if (size == 0) {
+            return (TrackLastWritten<IValue>) (TrackLastWritten<?>) disabledWriteWindow;
+        }
+        return lastWrittenStructural.get(size, OpenAddressingLastWritten::structuralEquality);
+    }
+    
     @SuppressWarnings("unchecked")
     public <T> void returnTrackLastRead(TrackLastRead<T> returned) {
         if (returned != disabledReadWindow) {
@@ -88,6 +102,12 @@ public class WindowCacheFactory {
         }
     }
     
+    public void returnTrackLastWrittenStructuralEquality(TrackLastWritten<IValue> returned) {
+        if (returned != (TrackLastWritten<?>) disabledWriteWindow) {
+            doReturn(lastWrittenStructural, returned);
+        }
+    }
+    
     private <T> void doReturn(CacheFactory<T> target, T returned) {
         if (returned instanceof ClearableWindow) {
             target.put(((ClearableWindow)returned).size(), returned);
@@ -17,6 +17,10 @@ public class WindowSizes {
     public final int typeWindow;
     public final int valueWindow;
     public final int stringsWindow;
+    /**
+     * If set, structurally equal values are also written as back-references, instead of only identical ones.
+     */
+    public final boolean structuralEquality;
 
 
     /**
@@ -34,10 +38,27 @@ public class WindowSizes {
      * @param stringsWindow the size of the window for the wire strings, normally not more than a 1_000
      */
     public WindowSizes(int valueWindow, int uriWindow, int typeWindow, int stringsWindow) {
+        this(valueWindow, uriWindow, typeWindow, stringsWindow, false);
+    }
+
+    private WindowSizes(int valueWindow, int uriWindow, int typeWindow, int stringsWindow, boolean structuralEquality) {
         this.stringsWindow = stringsWindow;
         this.typeWindow = typeWindow;
         this.uriWindow = uriWindow;
         this.valueWindow = valueWindow;
+        this.structuralEquality = structuralEquality;
+    }
+
+    /**
+     * The same window sizes, but the value window also finds structurally equal values (nodes, constructors, lists, tuples and strings),
+     * so that equal values that are not shared in memory (for example ASTs from different parse runs) are written only once. 
+     * This costs a hash code and equality check per value, which is cheap for values with cached hash codes.
+     */
+    public WindowSizes withStructuralEquality() {
+        if (structuralEquality || valueWindow == 0) {
+            return this;
+        }
+        return new WindowSizes(valueWindow, uriWindow, typeWindow, stringsWindow, true);
     }
     public static final WindowSizes NO_WINDOW = new WindowSizes(0, 0, 0, 0);
     public static final WindowSizes TINY_WINDOW = new WindowSizes(500, 200, 100, 500);
@@ -0,0 +1,303 @@
+/** 
+ * Copyright (c) 2016, Davy Landman, Centrum Wiskunde & Informatica (CWI) 
+ * All rights reserved. 
+ *  
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met: 
+ *  
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer. 
+ *  
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution. 
+ *  
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */ 
+package io.usethesource.vallang.io.binary.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.usethesource.vallang.IConstructor;
+import io.usethesource.vallang.IList;
+import io.usethesource.vallang.IMap;
+import io.usethesource.vallang.INode;
+import io.usethesource.vallang.ISet;
+import io.usethesource.vallang.ISourceLocation;
+import io.usethesource.vallang.IString;
+import io.usethesource.vallang.ITuple;
+import io.usethesource.vallang.IValue;
+
+/**
+ * Optional statistics on how effective the back-reference windows are during (de)serialization. <br/>
+ * <br/>
+ * Pass an instance to {@link io.usethesource.vallang.io.binary.message.IValueWriter IValueWriter} or
+ * {@link io.usethesource.vallang.io.binary.message.IValueReader IValueReader} (or the streams) to collect them,
+ * the same instance can be reused to aggregate over multiple values. 
+ * Use the maximum back-reference distance and the evictions to tune the {@link WindowSizes}. <br/>
+ * <br/>
+ * Lookups, hits and the bytes saved are only counted while writing, a reader only follows the back-references it is given and cannot miss.
+ * The bytes saved are counted in the encoding of the binary wire stream, see {@link CountingWireOutputStream} for the exception of strings.
+ * The time is bucketed by the kind of the top-level value, the time spent on nested values is part of the time of their top-level value. <br/>
+ * <br/>
+ * Not thread-safe, use an instance per thread.
+ */
+public class WindowStatistics {
+
+    public static final class Window {
+        private final String name;
+        private long lookups;
+        private long hits;
+        private long insertions;
+        private long evictions;
+        private long bytesSaved;
+        private int maxDistance;
+
+        private Window(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return how many times the window was searched, only counted while writing
+         */
+        public long getLookups() {
+            return lookups;
+        }
+
+        /**
+         * @return how many times the window produced a back-reference, only counted while writing
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return lookups - hits;
+        }
+
+        public double getHitRate() {
+            return lookups == 0 ? 0.0 : hits / (double) lookups;
+        }
+
+        /**
+         * @return the encoded size of the values that were replaced by a back-reference, minus the size of those back-references, 
+         * only counted while writing
+         */
+        public long getBytesSaved() {
+            return bytesSaved;
+        }
+
+        public long getInsertions() {
+            return insertions;
+        }
+
+        /**
+         * @return how many entries fell out of the window since it was full
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * @return the largest back-reference used, a window smaller than this would have missed at least one back-reference
+         */
+        public int getMaxDistance() {
+            return maxDistance;
+        }
+
+        private void reset() {
+            lookups = hits = insertions = evictions = bytesSaved = 0;
+            maxDistance = 0;
+        }
+
+        private void followed(int distance) {
+            if (distance > maxDistance) {
+                maxDistance = distance;
+            }
+        }
+
+        /**
+         * Wrap a window so that its usage is counted, the original window should still be returned to the {@link WindowCacheFactory}.
+         */
+        public <T> TrackLastWritten<T> track(final TrackLastWritten<T> window, final int windowSize) {
+            return track(window, windowSize, null);
+        }
+
+        /**
+         * Wrap a window so that its usage and the bytes saved by its back-references are counted, 
+         * the original window should still be returned to the {@link WindowCacheFactory}. <br/>
+         * <br/>
+         * Every miss should be followed by writing the object to <code>out</code> and then to the window, and every hit by writing the back-reference, 
+         * as the {@link io.usethesource.vallang.io.binary.message.IValueWriter IValueWriter} does.
+         * @param out the stream the objects are written to, or null to not count the bytes saved
+         */
+        public <T> TrackLastWritten<T> track(final TrackLastWritten<T> window, final int windowSize, final CountingWireOutputStream out) {
+            return new TrackLastWritten<T>() {
+                private long inserted = 0;
+                // encoded size of the objects in the window, at their insertion count modulo the window size
+                private long[] sizes = new long[0];
+                // start of the objects that are being written
+                private long[] starts = new long[16];
+                private int depth = 0;
+
+                @Override
+                public void write(T obj) {
+                    window.write(obj);
+                    if (out != null && windowSize > 0) {
+                        final int index = (int) (inserted % windowSize);
+                        if (index >= sizes.length) {
+                            sizes = Arrays.copyOf(sizes, Math.min(windowSize, Math.max(16, sizes.length * 2)));
+                        }
+                        sizes[index] = out.getWritten() - starts[--depth];
+                    }
+                    countInsert(windowSize, inserted++);
+                }
+
+                @Override
+                public int howLongAgo(T obj) {
+                    lookups++;
+                    int result = window.howLongAgo(obj);
+                    if (result != -1) {
+                        hits++;
+                        followed(result);
+                        if (out != null) {
+                            final long replaced = sizes[(int) ((inserted - 1 - result) % windowSize)];
+                            out.measureNext(reference -> bytesSaved += replaced - reference);
+                        }
+                    }
+                    else if (out != null && windowSize > 0) {
+                        if (depth == starts.length) {
+                            starts = Arrays.copyOf(starts, depth * 2);
+                        }
+                        starts[depth++] = out.getWritten();
+                    }
+                    return result;
+                }
+            };
+        }
+
+        /**
+         * Wrap a window so that its usage is counted, the original window should still be returned to the {@link WindowCacheFactory}.
+         */
+        public <T> TrackLastRead<T> track(final TrackLastRead<T> window, final int windowSize) {
+            return new TrackLastRead<T>() {
+                private long inserted = 0;
+
+                @Override
+                public void read(T obj) {
+                    window.read(obj);
+                    countInsert(windowSize, inserted++);
+                }
+
+                @Override
+                public T lookBack(int howLongBack) {
+                    followed(howLongBack);
+                    return window.lookBack(howLongBack);
+                }
+            };
+        }
+
+        private void countInsert(int windowSize, long alreadyInserted) {
+            insertions++;
+            if (windowSize > 0 && alreadyInserted >= windowSize) {
+                evictions++;
+            }
+        }
+
+        @Override
+        public String toString() {
+            if (lookups == 0) {
+                return String.format("%s: %d insertions, %d evictions, max distance %d", name, insertions, evictions, maxDistance);
+            }
+            return String.format("%s: %d lookups, %d hits (%.1f%%), %d bytes saved, %d insertions, %d evictions, max distance %d", 
+                name, lookups, hits, getHitRate() * 100, bytesSaved, insertions, evictions, maxDistance);
+        }
+    }
+
+    private final Window types = new Window("types");
+    private final Window values = new Window("values");
+    private final Window sourceLocations = new Window("source locations");
+    private long serialized;
+    private long elapsedNanos;
+    private final Map<String, Long> elapsedNanosPerKind = new TreeMap<>();
+
+    public Window getTypes() {
+        return types;
+    }
+
+    public Window getValues() {
+        return values;
+    }
+
+    public Window getSourceLocations() {
+        return sourceLocations;
+    }
+
+    /**
+     * @return the number of top-level values and types that were (de)serialized
+     */
+    public long getSerialized() {
+        return serialized;
+    }
+
+    /**
+     * @return the time spent (de)serializing, including the time spent in the wire stream
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the time spent (de)serializing, per kind of top-level value (see {@link #kindOf(IValue)})
+     */
+    public Map<String, Long> getElapsedNanosPerKind() {
+        return Collections.unmodifiableMap(elapsedNanosPerKind);
+    }
+
+    public void addSerialized(String kind, long nanos) {
+        serialized++;
+        elapsedNanos += nanos;
+        elapsedNanosPerKind.merge(kind, nanos, Long::sum);
+    }
+
+    /**
+     * @return the kind of value under which its time is bucketed
+     */
+    public static String kindOf(IValue value) {
+        if (value instanceof IConstructor) {
+            return "constructor";
+        } else if (value instanceof INode) {
+            return "node";
+        } else if (value instanceof IList) {
+            return "list";
+        } else if (value instanceof ISet) {
+            return "set";
+        } else if (value instanceof IMap) {
+            return "map";
+        } else if (value instanceof ITuple) {
+            return "tuple";
+        } else if (value instanceof IString) {
+            return "string";
+        } else if (value instanceof ISourceLocation) {
+            return "source location";
+        }
+        return "other";
+    }
+
+    public void reset() {
+        types.reset();
+        values.reset();
+        sourceLocations.reset();
+        serialized = 0;
+        elapsedNanos = 0;
+        elapsedNanosPerKind.clear();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder perKind = new StringBuilder();
+        for (Map.Entry<String, Long> entry : elapsedNanosPerKind.entrySet()) {
+            perKind.append(String.format("%n  %s: %.3f ms", entry.getKey(), entry.getValue() / 1e6));
+        }
+        return String.format("%d serialized in %.3f ms%s%n  %s%n  %s%n  %s", serialized, elapsedNanos / 1e6, perKind, types, values, sourceLocations);
+    }
+}
@@ -150,6 +150,11 @@ import io.usethesource.vallang.type.TypeFactory.TypeReifier;
     
     @Override
     protected boolean isSupertypeOf(Type type) {
+        return TypeLatticeCache.isSubtype(type, this);
+    }
+
+    @Override
+    /*package*/ boolean isSupertypeOfUncached(Type type) {
         return type.isSubtypeOfAbstractData(this);
     }
 
@@ -160,11 +165,21 @@ import io.usethesource.vallang.type.TypeFactory.TypeReifier;
 
     @Override
     public Type lub(Type other) {
+        return TypeLatticeCache.lub(this, other);
+    }
+
+    @Override
+    /*package*/ Type lubUncached(Type other) {
         return other.lubWithAbstractData(this);
     }
 
     @Override
     public Type glb(Type type) {
+        return TypeLatticeCache.glb(this, type);
+    }
+
+    @Override
+    /*package*/ Type glbUncached(Type type) {
         return type.glbWithAbstractData(this);
     }
 
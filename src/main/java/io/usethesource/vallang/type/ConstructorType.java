@@ -305,16 +305,31 @@ import io.usethesource.vallang.type.TypeFactory.TypeReifier;
 
 	@Override
 	protected boolean isSupertypeOf(Type type) {
+		return TypeLatticeCache.isSubtype(type, this);
+	}
+
+	@Override
+	/*package*/ boolean isSupertypeOfUncached(Type type) {
 		return type.isSubtypeOfConstructor(this);
 	}
 
 	@Override
 	public Type lub(Type type) {
+		return TypeLatticeCache.lub(this, type);
+	}
+
+	@Override
+	/*package*/ Type lubUncached(Type type) {
 		return type.lubWithConstructor(this);
 	}
 
 	@Override
 	public Type glb(Type type) {
+		return TypeLatticeCache.glb(this, type);
+	}
+
+	@Override
+	/*package*/ Type glbUncached(Type type) {
 		return type.glbWithConstructor(this);
 	}
 
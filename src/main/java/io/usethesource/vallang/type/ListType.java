@@ -232,6 +232,11 @@ import io.usethesource.vallang.type.TypeFactory.TypeReifier;
 
 	@Override
 	protected boolean isSupertypeOf(Type type) {
+		return TypeLatticeCache.isSubtype(type, this);
+	}
+
+	@Override
+	/*package*/ boolean isSupertypeOfUncached(Type type) {
 		return type.isSubtypeOfList(this);
 	}
 
@@ -242,11 +247,21 @@ import io.usethesource.vallang.type.TypeFactory.TypeReifier;
 
 	@Override
 	public Type lub(Type other) {
+		return TypeLatticeCache.lub(this, other);
+	}
+
+	@Override
+	/*package*/ Type lubUncached(Type other) {
 		return other.lubWithList(this);
 	}
 
 	@Override
 	public Type glb(Type type) {
+		return TypeLatticeCache.glb(this, type);
+	}
+
+	@Override
+	/*package*/ Type glbUncached(Type type) {
 		return type.glbWithList(this);
 	}
 
@@ -487,16 +487,31 @@ import io.usethesource.vallang.exceptions.UndeclaredFieldException;
 	
 	@Override
 	protected boolean isSupertypeOf(Type type) {
+	  return TypeLatticeCache.isSubtype(type, this);
+	}
+
+	@Override
+	/*package*/ boolean isSupertypeOfUncached(Type type) {
 	  return type.isSubtypeOfTuple(this);
 	}
 	
 	@Override
 	public Type lub(Type other) {
+	  return TypeLatticeCache.lub(this, other);
+	}
+
+	@Override
+	/*package*/ Type lubUncached(Type other) {
 	  return other.lubWithTuple(this);
 	}
 	
 	@Override
 	public Type glb(Type type) {
+	  return TypeLatticeCache.glb(this, type);
+	}
+
+	@Override
+	/*package*/ Type glbUncached(Type type) {
 	  return type.glbWithTuple(this);
 	}
 	
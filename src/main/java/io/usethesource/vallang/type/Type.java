@@ -23,6 +23,7 @@ import io.usethesource.vallang.IValueFactory;
 import io.usethesource.vallang.exceptions.FactTypeUseException;
 import io.usethesource.vallang.exceptions.IllegalOperationException;
 import io.usethesource.vallang.ISetWriter;
+import io.usethesource.vallang.impl.util.sharing.IShareable;
 
 /**
  * This class is the abstract implementation for all types. Types are ordered in
@@ -43,7 +44,7 @@ import io.usethesource.vallang.ISetWriter;
  *        relevant methods. Calling a method that is not present on any of the
  *        specific types will lead to a @{link FactTypeError} exception.
  */
-public abstract class Type implements Iterable<Type>, Comparable<Type> {
+public abstract class Type implements Iterable<Type>, Comparable<Type>, IShareable {
   protected static final TypeFactory TF = TypeFactory.getInstance();
 
   // these constants are cached to avoid having to compute their hash-codes
@@ -381,6 +382,9 @@ public abstract class Type implements Iterable<Type>, Comparable<Type> {
   }
 
   /**
+   * The lub is idempotent, so code that accumulates the lub of a sequence of types
+   * only needs to compute it when the type differs from the previous one.
+   * 
    * @return the least upper bound type of the receiver and the argument type
    */
   public abstract Type lub(Type type);
@@ -404,6 +408,22 @@ public abstract class Type implements Iterable<Type>, Comparable<Type> {
 
   protected abstract boolean isSupertypeOf(Type type);
 
+  /*
+   * Structured types memoize isSupertypeOf, lub and glb through the TypeLatticeCache, 
+   * and implement the actual computation in these methods.
+   */
+  /*package*/ boolean isSupertypeOfUncached(Type type) {
+    return isSupertypeOf(type);
+  }
+
+  /*package*/ Type lubUncached(Type type) {
+    return lub(type);
+  }
+
+  /*package*/ Type glbUncached(Type type) {
+    return glb(type);
+  }
+
   /**
    * Return whether an ADT or an alias Type has any type parameters
    * 
@@ -596,6 +616,16 @@ public abstract class Type implements Iterable<Type>, Comparable<Type> {
     return 0;
   }
 
+  /**
+   * Types are canonicalized by the {@link TypeFactory} using {@link #equals(Object)}.
+   * 
+   * @see IShareable#equivalent(IShareable)
+   */
+  @Override
+  public boolean equivalent(IShareable shareable) {
+    return equals(shareable);
+  }
+
   protected boolean isSubtypeOfParameter(Type type) {
     return isSubtypeOf(type.getBound());
   }
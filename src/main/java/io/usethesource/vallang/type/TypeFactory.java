@@ -41,6 +41,7 @@ import io.usethesource.vallang.exceptions.IllegalFieldNameException;
 import io.usethesource.vallang.exceptions.IllegalFieldTypeException;
 import io.usethesource.vallang.exceptions.IllegalIdentifierException;
 import io.usethesource.vallang.exceptions.NullTypeException;
+import io.usethesource.vallang.impl.util.sharing.ShareableValuesFactory;
 
 /**
  * Use this class to produce any kind of {@link Type}, after which the make
@@ -52,9 +53,10 @@ import io.usethesource.vallang.exceptions.NullTypeException;
  */
 public class TypeFactory {
 	/**
-	 * Caches all types to implement canonicalization
+	 * Caches all types to implement canonicalization. Lookups of existing types are lock-free, and
+	 * types which are no longer referenced elsewhere are removed from the cache.
 	 */
-	private final Map<Type, Type> fCache = new HashMap<Type, Type>();
+	private final ShareableValuesFactory<Type> fCache = new ShareableValuesFactory<>();
     private TypeValues typeValues;
     
 	private static class InstanceHolder {
@@ -106,16 +108,42 @@ public class TypeFactory {
 	}
 
 	private Type getFromCache(Type t) {
-		synchronized (fCache) {
-			Type result = fCache.get(t);
+		return fCache.build(t);
+	}
+	
+	/**
+	 * @return the number of type constructions that were answered by an existing canonical type
+	 */
+	public long getCacheHits() {
+		return fCache.getHits();
+	}
+	
+	/**
+	 * @return the number of type constructions that introduced a new canonical type
+	 */
+	public long getCacheMisses() {
+		return fCache.getMisses();
+	}
+	
+	/**
+	 * @return the (approximate) number of canonical types currently in the cache
+	 */
+	public int getCacheSize() {
+		return fCache.size();
+	}
 
-			if (result == null) {
-				fCache.put(t, t);
-				return t;
-			}
+	/**
+	 * @return the number of sub-type, lub and glb computations on structured types that were answered from the memo tables
+	 */
+	public long getLatticeCacheHits() {
+		return TypeLatticeCache.getHits();
+	}
 
-			return result;
-		}
+	/**
+	 * @return the number of sub-type, lub and glb computations on structured types that had to be computed
+	 */
+	public long getLatticeCacheMisses() {
+		return TypeLatticeCache.getMisses();
 	}
 
 	/**
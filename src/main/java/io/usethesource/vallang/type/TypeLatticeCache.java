@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.type;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memo tables for the sub-type relation, lub and glb of structured types.<br/>
+ * <br/>
+ * Since types are canonical (see {@link TypeFactory}), the tables are keyed on identity. 
+ * Every table is a fixed size, direct mapped array: a colliding entry simply replaces the older one. 
+ * Entries are immutable, so the racy reads and writes of the array are safe without any locking.
+ */
+/*package*/ final class TypeLatticeCache {
+    private static final int SIZE = 1 << 12;
+    private static final int MASK = SIZE - 1;
+
+    private static final class Entry {
+        private final Type left;
+        private final Type right;
+        private final Object result;
+
+        Entry(Type left, Type right, Object result) {
+            this.left = left;
+            this.right = right;
+            this.result = result;
+        }
+    }
+
+    private static final Entry[] subtypes = new Entry[SIZE];
+    private static final Entry[] lubs = new Entry[SIZE];
+    private static final Entry[] glbs = new Entry[SIZE];
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private TypeLatticeCache() { }
+
+    private static int index(Type left, Type right) {
+        int h = System.identityHashCode(left) * 31 + System.identityHashCode(right);
+        return (h ^ (h >>> 16)) & MASK;
+    }
+
+    private static Object lookup(Entry[] table, int index, Type left, Type right) {
+        Entry e = table[index];
+        if (e != null && e.left == left && e.right == right) {
+            hits.increment();
+            return e.result;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * @return the memoized result of <code>sub.isSubtypeOf(sup)</code>, where <code>sup.isSupertypeOf(sub)</code> does the actual work
+     */
+    static boolean isSubtype(Type sub, Type sup) {
+        if (sub == sup) {
+            return true;
+        }
+        int index = index(sub, sup);
+        Object result = lookup(subtypes, index, sub, sup);
+        if (result == null) {
+            result = sup.isSupertypeOfUncached(sub);
+            subtypes[index] = new Entry(sub, sup, result);
+        }
+        return (Boolean) result;
+    }
+
+    /**
+     * @return the memoized result of <code>left.lub(right)</code>, where <code>left.lubUncached(right)</code> does the actual work
+     */
+    static Type lub(Type left, Type right) {
+        if (left == right) {
+            return left;
+        }
+        int index = index(left, right);
+        Type result = (Type) lookup(lubs, index, left, right);
+        if (result == null) {
+            result = left.lubUncached(right);
+            lubs[index] = new Entry(left, right, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the memoized result of <code>left.glb(right)</code>, where <code>left.glbUncached(right)</code> does the actual work
+     */
+    static Type glb(Type left, Type right) {
+        if (left == right) {
+            return left;
+        }
+        int index = index(left, right);
+        Type result = (Type) lookup(glbs, index, left, right);
+        if (result == null) {
+            result = left.glbUncached(right);
+            glbs[index] = new Entry(left, right, result);
+        }
+        return result;
+    }
+
+    static long getHits() {
+        return hits.sum();
+    }
+
+    static long getMisses() {
+        return misses.sum();
+    }
+}
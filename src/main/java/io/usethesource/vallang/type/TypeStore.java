@@ -18,11 +18,13 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import io.usethesource.vallang.IValueFactory;
 import io.usethesource.vallang.exceptions.FactTypeDeclarationException;
 import io.usethesource.vallang.exceptions.FactTypeRedeclaredException;
 import io.usethesource.vallang.exceptions.FactTypeUseException;
+import io.usethesource.vallang.exceptions.FrozenTypeStoreException;
 import io.usethesource.vallang.exceptions.IllegalAnnotationDeclaration;
 import io.usethesource.vallang.exceptions.IllegalIdentifierException;
 import io.usethesource.vallang.exceptions.IllegalKeywordParameterDeclarationException;
@@ -51,6 +53,19 @@ public class TypeStore {
 	private final Map<Type, Map<String, Type>> fAnnotations = new HashMap<>();
 	private final Map<Type, Map<String, Type>> fkeywordParameters = new HashMap<>();
 	private final Set<TypeStore> fImports = new HashSet<>();
+
+	/*
+	 * Lock-free indexes for constructor resolution while reading values: constructors by name 
+	 * (the arrays are replaced, never changed) and a copy of fImports, both maintained under the existing locks.
+	 */
+	private final Map<String, Type[]> fConstructorsByName = new ConcurrentHashMap<>();
+	private volatile TypeStore[] fImportsSnapshot = new TypeStore[0];
+
+	/*
+	 * After freezing, the maps above are never changed again, so lookups can skip the locks.
+	 * The volatile write in freeze() publishes the final state of the maps to all readers.
+	 */
+	private volatile boolean fFrozen = false;
 	
 	/*
 	 * The ADTs for which overloading checking is turned off
@@ -67,6 +82,47 @@ public class TypeStore {
 	  importStore(imports);
 	}
 
+	/**
+	 * Freeze this store: from now on lookups do not acquire any locks, which makes them scale with the number of threads. 
+	 * Re-declaring types that are already in the store is still allowed (this is what the value readers do), 
+	 * but any declaration or import that would change the store throws a {@link FrozenTypeStoreException}.
+	 * Use {@link #extendStore(TypeStore)} on a fresh store to get a modifiable copy.<br/>
+	 * <br/>
+	 * Note that imported stores are not frozen, and that lookups do not lock them (as before).
+	 */
+	public void freeze() {
+	  synchronized (fADTs) {
+	    synchronized (fAliases) {
+	      synchronized (fConstructors) {
+	        synchronized (fAnnotations) {
+	          synchronized (fkeywordParameters) {
+	            synchronized (fImports) {
+	              fFrozen = true;
+	            }
+	          }
+	        }
+	      }
+	    }
+	  }
+	}
+
+	public boolean isFrozen() {
+	  return fFrozen;
+	}
+
+	private void checkNotFrozen() {
+	  if (fFrozen) {
+	    throw new FrozenTypeStoreException();
+	  }
+	}
+
+	private static Type unalias(Type type) {
+	  while (type.isAliased()) {
+	    type = type.getAliased();
+	  }
+	  return type;
+	}
+
 	/**
 	 * Retrieves all ADT's declared in this TypeStore. Note that it does
 	 * not return the ADT's of imported TypeStores.
@@ -141,9 +197,11 @@ public class TypeStore {
 	 */
 	public void importStore(TypeStore... stores) {
 	  synchronized(fImports) {
+	    checkNotFrozen();
 	    for (TypeStore s : stores) {
 	      doImport(s);
 	    }
+	    fImportsSnapshot = fImports.toArray(new TypeStore[fImports.size()]);
 	  }
 	}
 
@@ -155,7 +213,9 @@ public class TypeStore {
 	 */
 	public void unimportStores(TypeStore... stores) {
 	  synchronized (fImports) {
+	    checkNotFrozen();
 	    fImports.removeAll(Arrays.asList(stores));
+	    fImportsSnapshot = fImports.toArray(new TypeStore[fImports.size()]);
 	  }
 	}
 
@@ -170,38 +230,44 @@ public class TypeStore {
 	 * Blindly copy all declaration of the other store into the receiver.
 	 */
 	public void extendStore(TypeStore other) {
-	  synchronized (fAliases) {
-	    fAliases.putAll(other.fAliases);
-	  }
-
+	  // take the locks in the order of freeze(), such that the store can not be frozen half-way
 	  synchronized (fADTs) {
-	    fADTs.putAll(other.fADTs);
-	  }
+	    synchronized (fAliases) {
+	      synchronized (fConstructors) {
+	        synchronized (fAnnotations) {
+	          synchronized (fkeywordParameters) {
+	            synchronized (fImports) {
+	              checkNotFrozen();
+
+	              fAliases.putAll(other.fAliases);
+	              fADTs.putAll(other.fADTs);
+
+	              for (Type type : other.fConstructors.keySet()) {
+	                Set<Type> set = fConstructors.get(type);
+
+	                if (set == null) {
+	                  set = new HashSet<>();
+	                }
+
+	                for (Type constructor : other.fConstructors.get(type)) {
+	                  if (set.add(constructor)) {
+	                    indexConstructor(constructor);
+	                  }
+	                }
+	                fConstructors.put(type, set);
+	              }
 
-	  synchronized (fConstructors) {
-	    for (Type type : other.fConstructors.keySet()) {
-	      Set<Type> set = fConstructors.get(type);
+	              fAnnotations.putAll(other.fAnnotations);
+	              fkeywordParameters.putAll(other.fkeywordParameters);
 
-	      if (set == null) {
-	        set = new HashSet<>();
+	              fImports.addAll(other.fImports);
+	              fImportsSnapshot = fImports.toArray(new TypeStore[fImports.size()]);
+	            }
+	          }
+	        }
 	      }
-
-	      set.addAll(other.fConstructors.get(type));
-	      fConstructors.put(type, set);
 	    }
 	  }
-
-	  synchronized (fAnnotations) {
-	    fAnnotations.putAll(other.fAnnotations);
-	  }
-	  
-	  synchronized (fkeywordParameters) {
-		  fkeywordParameters.putAll(other.fkeywordParameters);
-		  }
-
-	  synchronized (fImports) {
-	    fImports.addAll(other.fImports);
-	  }
 	}
 
 	private void checkConstructorOverloading(TypeStore s) {
@@ -272,6 +338,7 @@ public class TypeStore {
 	        throw new FactTypeRedeclaredException(name, oldAlias);
 	      }
 
+	      checkNotFrozen();
 	      fAliases.put(name, alias);
 	    }
 	  }
@@ -306,6 +373,7 @@ public class TypeStore {
 	          throw new FactTypeRedeclaredException(name, oldAlias);
 	        }
 
+	        checkNotFrozen();
 	        fADTs.put(name, adt);
 
 	        if (fConstructors.get(adt) == null) {
@@ -355,6 +423,9 @@ public class TypeStore {
 		  }
 
 	      Set<Type> localSignature = fConstructors.get(adt);
+	      if (localSignature == null || !localSignature.contains(constructor)) {
+	        checkNotFrozen();
+	      }
 	      if (localSignature == null) {
 	        localSignature = new HashSet<>();
 	        fConstructors.put(adt, localSignature);
@@ -364,11 +435,28 @@ public class TypeStore {
 	        }
 	      }
 
-	      localSignature.add(constructor);
+	      if (localSignature.add(constructor)) {
+	        indexConstructor(constructor);
+	      }
 	    }
 	  }
 	}
 
+	/**
+	 * Should be called while holding the fConstructors lock
+	 */
+	private void indexConstructor(Type constructor) {
+	  Type[] old = fConstructorsByName.get(constructor.getName());
+	  if (old == null) {
+	    fConstructorsByName.put(constructor.getName(), new Type[] { constructor });
+	  }
+	  else {
+	    Type[] extended = Arrays.copyOf(old, old.length + 1);
+	    extended[old.length] = constructor;
+	    fConstructorsByName.put(constructor.getName(), extended);
+	  }
+	}
+
 	private void checkFieldNames(Set<Type> signature, Type tupleType) {
 	  if (!tupleType.hasFieldNames()) {
 	    return;
@@ -412,22 +500,29 @@ public class TypeStore {
 	 * @return the AliasType
 	 */
 	public Type lookupAlias(final String name) {
-	  synchronized (fAliases) {
+	  if (fFrozen) {
+	    return lookupAliasUnlocked(name);
+	  }
+	  else synchronized (fAliases) {
 	    synchronized (fImports) {
-	      Type result = fAliases.get(name);
+	      return lookupAliasUnlocked(name);
+	    }
+	  }
+	}
 
-	      if (result == null) {
-	        for (TypeStore i : fImports) {
-	          result = i.fAliases.get(name);
-	          if (result != null) {
-	            return result;
-	          }
-	        }
-	      }
+	private Type lookupAliasUnlocked(String name) {
+	  Type result = fAliases.get(name);
 
-	      return result;
+	  if (result == null) {
+	    for (TypeStore i : fImports) {
+	      result = i.fAliases.get(name);
+	      if (result != null) {
+	        return result;
+	      }
 	    }
 	  }
+
+	  return result;
 	}
 
 	/**
@@ -437,30 +532,32 @@ public class TypeStore {
 	 * @return all types that construct the given type
 	 */
 	public Set<Type> lookupAlternatives(Type adt) {
-	  synchronized (fConstructors) {
+	  final Type unaliased = unalias(adt);
+	  if (fFrozen) {
+	    return lookupAlternativesUnlocked(unaliased);
+	  }
+	  else synchronized (fConstructors) {
 	    synchronized (fImports) {
-	      while (adt.isAliased()) {
-	        adt = adt.getAliased();
-	      }
+	      return lookupAlternativesUnlocked(unaliased);
+	    }
+	  }
+	}
 
-	      Set<Type> result = fConstructors.get(adt);
+	private Set<Type> lookupAlternativesUnlocked(Type unaliased) {
+	  Set<Type> local = fConstructors.get(unaliased);
+	  // copy, the local set should not be changed by lookups
+	  Set<Type> result = local == null ? new HashSet<>() : new HashSet<>(local);
 
-	      if (result == null) {
-	        result = new HashSet<>();
+	  for (TypeStore s : fImports) {
+	    if (s != this) {
+	      Set<Type> imported = s.fConstructors.get(unaliased);
+	      if (imported != null) {
+	        result.addAll(imported);
 	      }
-
-	      for (TypeStore s : fImports) {
-	        if (s != this) {
-	          Set<Type> imported = s.fConstructors.get(adt);
-	          if (imported != null) {
-	            result.addAll(imported);
-	          }
-	        }
-	      }
-
-	      return result;
 	    }
 	  }
+
+	  return result;
 	}
 
 	/**
@@ -471,37 +568,42 @@ public class TypeStore {
 	 * @throws a FactTypeError if the type was not declared before
 	 */
 	public Set<Type> lookupConstructor(Type adt, String constructorName) throws FactTypeUseException {
-	  synchronized (fConstructors) {
+	  final Type unaliased = unalias(adt);
+	  if (fFrozen) {
+	    return lookupConstructorUnlocked(unaliased, constructorName);
+	  }
+	  else synchronized (fConstructors) {
 	    synchronized (fImports) {
-	      while (adt.isAliased()) {
-	        adt = adt.getAliased();
-	      }
-	      Type parameterizedADT = fADTs.get(adt.getName());
-	      Set<Type> local = parameterizedADT != null ? fConstructors.get(parameterizedADT) : null;
-	      Set<Type> result = new HashSet<>();
+	      return lookupConstructorUnlocked(unaliased, constructorName);
+	    }
+	  }
+	}
 
-	      if (local != null) {
-	        for (Type cand : local) {
-	          if (cand.getName().equals(constructorName)) {
-	            result.add(cand);
-	          }
-	        }
+	private Set<Type> lookupConstructorUnlocked(Type unaliased, String constructorName) {
+	  Type parameterizedADT = fADTs.get(unaliased.getName());
+	  Set<Type> local = parameterizedADT != null ? fConstructors.get(parameterizedADT) : null;
+	  Set<Type> result = new HashSet<>();
+
+	  if (local != null) {
+	    for (Type cand : local) {
+	      if (cand.getName().equals(constructorName)) {
+	        result.add(cand);
 	      }
+	    }
+	  }
 
-	      for (TypeStore i : fImports) {
-	        local = i.fConstructors.get(adt);
-	        if (local != null) {
-	          for (Type cand : local) {
-	            if (cand.getName().equals(constructorName)) {
-	              result.add(cand);
-	            }
-	          }
+	  for (TypeStore i : fImports) {
+	    local = i.fConstructors.get(unaliased);
+	    if (local != null) {
+	      for (Type cand : local) {
+	        if (cand.getName().equals(constructorName)) {
+	          result.add(cand);
 	        }
 	      }
-
-	      return result;
 	    }
 	  }
+
+	  return result;
 	}
 
 	/**
@@ -514,31 +616,34 @@ public class TypeStore {
 	 * @throws a FactTypeError if the type was not declared before
 	 */
 	public Type lookupFirstConstructor(final String cons, final Type args) {
-	  Collection<Type> adts = allAbstractDataTypes();
+	  // uses the indexes and does not take any locks, since this is called for every constructor while reading values
+	  Type result = firstMatchingConstructor(fConstructorsByName.get(cons), args);
+	  if (result != null) {
+	    return result;
+	  }
 
-	  for (Type adt : adts) {
-	    Type cand = lookupConstructor(adt, cons, args);
-	    if (cand != null) {
-	      return cand;
+	  for (TypeStore i : fImportsSnapshot) {
+	    if (i != this) {
+	      result = firstMatchingConstructor(i.fConstructorsByName.get(cons), args);
+	      if (result != null) {
+	        return result;
+	      }
 	    }
 	  }
 
 	  return null;
 	}
 
-	private Set<Type> allAbstractDataTypes() {
-	  synchronized (fADTs) {
-	    synchronized (fImports) {
-	      Set<Type> result = new HashSet<>();
-	      result.addAll(fADTs.values());
-
-	      for (TypeStore s : fImports) {
-	        result.addAll(s.fADTs.values());
+	private static Type firstMatchingConstructor(Type[] candidates, Type args) {
+	  if (candidates != null) {
+	    int arity = args.getArity();
+	    for (Type cand : candidates) {
+	      if (cand.getArity() == arity && args.isSubtypeOf(cand.getFieldTypes())) {
+	        return cand;
 	      }
-
-	      return result;
 	    }
 	  }
+	  return null;
 	}
 
 	/**
@@ -571,35 +676,23 @@ public class TypeStore {
 	 * @param constructName the name of the tree node
 	 */
 	public Set<Type> lookupConstructors(String constructorName) {
-	  synchronized (fConstructors) {
-	    synchronized (fImports) {
-	      Set<Type> result = new HashSet<>();
+	  Set<Type> result = new HashSet<>();
 
-	      for (Set<Type> adt : fConstructors.values()) {
-	        for (Type cand : adt) {
-	          String name = cand.getName();
-	          if (name.equals(constructorName)) {
-	            result.add(cand);
-	          }
-	        }
-	      }
+	  Type[] local = fConstructorsByName.get(constructorName);
+	  if (local != null) {
+	    result.addAll(Arrays.asList(local));
+	  }
 
-	      for (TypeStore i : fImports) {
-	        if (i != this) {
-	          for (Set<Type> adt : i.fConstructors.values()) {
-	            for (Type cand : adt) {
-	              String name = cand.getName();
-	              if (name.equals(constructorName)) {
-	                result.add(cand);
-	              }
-	            }
-	          }
-	        }
+	  for (TypeStore i : fImportsSnapshot) {
+	    if (i != this) {
+	      Type[] imported = i.fConstructorsByName.get(constructorName);
+	      if (imported != null) {
+	        result.addAll(Arrays.asList(imported));
 	      }
-
-	      return result;
 	    }
 	  }
+
+	  return result;
 	}
 
 	/**
@@ -608,25 +701,32 @@ public class TypeStore {
 	 * @return null if such type does not exist, or the type if it was declared earlier
 	 */
 	public Type lookupAbstractDataType(String name) {
-	  synchronized (fADTs) {
+	  if (fFrozen) {
+	    return lookupAbstractDataTypeUnlocked(name);
+	  }
+	  else synchronized (fADTs) {
 	    synchronized (fImports) {
+	      return lookupAbstractDataTypeUnlocked(name);
+	    }
+	  }
+	}
 
-	      Type result = fADTs.get(name);
+	private Type lookupAbstractDataTypeUnlocked(String name) {
 
-	      if (result != null) {
-	        return result;
-	      }
+	  Type result = fADTs.get(name);
 
-	      for (TypeStore s : fImports) {
-	        result = s.fADTs.get(name);
-	        if (result != null) {
-	          return result;
-	        }
-	      }
+	  if (result != null) {
+	    return result;
+	  }
 
+	  for (TypeStore s : fImports) {
+	    result = s.fADTs.get(name);
+	    if (result != null) {
 	      return result;
 	    }
 	  }
+
+	  return result;
 	}
 
 	/**
@@ -645,21 +745,15 @@ public class TypeStore {
 	  }
 
 	  synchronized (fAnnotations) {
-	    Map<String, Type> annotationsForType = fAnnotations.get(onType);
-
 	    if (!factory.isIdentifier(key)) {
 	      throw new IllegalIdentifierException(key);
 	    }
 
-	    if (annotationsForType == null) {
-	      annotationsForType = new HashMap<>();
-	      fAnnotations.put(onType, annotationsForType);
-	    }
-
 	    Map<String, Type> declaredEarlier = getAnnotations(onType);
 
 	    if (!declaredEarlier.containsKey(key)) {
-	      annotationsForType.put(key, valueType);
+	      checkNotFrozen();
+	      fAnnotations.computeIfAbsent(onType, t -> new HashMap<>()).put(key, valueType);
 	    }
 	    else if (!declaredEarlier.get(key).equivalent(valueType)) {
 	      throw new RedeclaredAnnotationException(key, declaredEarlier.get(key));
@@ -686,21 +780,15 @@ public class TypeStore {
 	  }
 
 	  synchronized (fkeywordParameters) {
-	    Map<String, Type> kwParamsForType = fkeywordParameters.get(onType);
-
 	    if (!factory.isIdentifier(key)) {
 	      throw new IllegalIdentifierException(key);
 	    }
 
-	    if (kwParamsForType == null) {
-	      kwParamsForType = new HashMap<>();
-	      fkeywordParameters.put(onType, kwParamsForType);
-	    }
-
 	    Map<String, Type> declaredEarlier = getKeywordParameters(onType);
 
 	    if (!declaredEarlier.containsKey(key)) {
-	      kwParamsForType.put(key, valueType);
+	      checkNotFrozen();
+	      fkeywordParameters.computeIfAbsent(onType, t -> new HashMap<>()).put(key, valueType);
 	    } 
 	    else if (!declaredEarlier.get(key).equivalent(valueType)) {
 	      throw new RedeclaredKeywordParameterException(key, declaredEarlier.get(key));
@@ -858,38 +946,45 @@ public class TypeStore {
 	    return Collections.<String,Type>emptyMap();
 	  }
 
-	  synchronized(fAnnotations) {
+	  if (fFrozen) {
+	    return getAnnotationsUnlocked(onType);
+	  }
+	  else synchronized (fAnnotations) {
 	    synchronized (fImports) {
-	      Map<String, Type> result = new HashMap<>();
+	      return getAnnotationsUnlocked(onType);
+	    }
+	  }
+	}
 
-	      if (onType != NODE_TYPE) {
-	        Map<String, Type> local = fAnnotations.get(onType);
-	        if (local != null) {
-	          result.putAll(local); 
-	        }
-	      }
+	private Map<String, Type> getAnnotationsUnlocked(Type onType) {
+	  Map<String, Type> result = new HashMap<>();
 
-	      Map<String, Type> onNode = fAnnotations.get(NODE_TYPE);
-	      if (onNode != null) {
-	        result.putAll(onNode);
-	      }
+	  if (onType != NODE_TYPE) {
+	    Map<String, Type> local = fAnnotations.get(onType);
+	    if (local != null) {
+	      result.putAll(local); 
+	    }
+	  }
 
+	  Map<String, Type> onNode = fAnnotations.get(NODE_TYPE);
+	  if (onNode != null) {
+	    result.putAll(onNode);
+	  }
 
-	      for (TypeStore s : fImports) {
-	        Map<String, Type> local = s.fAnnotations.get(onType);
-	        if (local != null) {
-	          result.putAll(local);
-	        }
 
-	        onNode = s.fAnnotations.get(NODE_TYPE);
-	        if (onNode != null) {
-	          result.putAll(onNode);
-	        }
-	      }
+	  for (TypeStore s : fImports) {
+	    Map<String, Type> local = s.fAnnotations.get(onType);
+	    if (local != null) {
+	      result.putAll(local);
+	    }
 
-	      return result;
+	    onNode = s.fAnnotations.get(NODE_TYPE);
+	    if (onNode != null) {
+	      result.putAll(onNode);
 	    }
 	  }
+
+	  return result;
 	}
 
 	/**
@@ -903,42 +998,49 @@ public class TypeStore {
 	    return Collections.<String,Type>emptyMap();
 	  }
 
-	  synchronized(fkeywordParameters) {
+	  if (fFrozen) {
+	    return getKeywordParametersUnlocked(onType);
+	  }
+	  else synchronized (fkeywordParameters) {
 	    synchronized (fImports) {
-	      Map<String, Type> result = new HashMap<>();
+	      return getKeywordParametersUnlocked(onType);
+	    }
+	  }
+	}
+
+	private Map<String, Type> getKeywordParametersUnlocked(Type onType) {
+	  Map<String, Type> result = new HashMap<>();
 
-	      Map<String, Type> local = fkeywordParameters.get(onType);
+	  Map<String, Type> local = fkeywordParameters.get(onType);
+	  if (local != null) {
+	  	  result.putAll(local); 
+	  }
+	  
+	  if (onType.isConstructor()) {
+	      local = fkeywordParameters.get(onType.getAbstractDataType());
 	      if (local != null) {
-	    	  result.putAll(local); 
-	      }
-	      
-	      if (onType.isConstructor()) {
-	          local = fkeywordParameters.get(onType.getAbstractDataType());
-	          if (local != null) {
-	              result.putAll(local);
-	          }
+	          result.putAll(local);
 	      }
+	  }
 
-	      for (TypeStore s : fImports) {
-	    	  if (s.fkeywordParameters == null) {
-	    		  continue;
-	    	  }
-	    	  Map<String, Type> here = s.fkeywordParameters.get(onType);
-	    	  if (here != null) {
-	    		  result.putAll(here);
-	    	  }
-	    	  
-	    	  if (onType.isConstructor()) {
+	  for (TypeStore s : fImports) {
+	  	  if (s.fkeywordParameters == null) {
+	  		  continue;
+	  	  }
+	  	  Map<String, Type> here = s.fkeywordParameters.get(onType);
+	  	  if (here != null) {
+	  		  result.putAll(here);
+	  	  }
+	  	  
+	  	  if (onType.isConstructor()) {
 		    	  here = s.fkeywordParameters.get(onType.getAbstractDataType());
 		    	  if (here != null) {
 		    		  result.putAll(here);
 		    	  }
 		      }
-	      }
-
-	      return result;
-	    }
 	  }
+
+	  return result;
 	}
 
 	/**
@@ -977,27 +1079,34 @@ public class TypeStore {
 			return false;
 		}
 
-		synchronized(fkeywordParameters) {
+		if (fFrozen) {
+			return hasKeywordParametersUnlocked(onType);
+		}
+		else synchronized (fkeywordParameters) {
 			synchronized (fImports) {
-				Map<String, Type> local = fkeywordParameters.get(onType);
-				if (local != null && local.size() > 0) {
-					return true; 
-				}
+				return hasKeywordParametersUnlocked(onType);
+			}
+		}
+	}
 
-				for (TypeStore s : fImports) {
-					if (s.fkeywordParameters == null) {
-						continue;
-					}
-					
-					Map<String, Type> here = s.fkeywordParameters.get(onType);
-					if (here != null && here.size() > 0) {
-						return true;
-					}
-				}
+	private boolean hasKeywordParametersUnlocked(Type onType) {
+		Map<String, Type> local = fkeywordParameters.get(onType);
+		if (local != null && local.size() > 0) {
+			return true; 
+		}
 
-				return false;
+		for (TypeStore s : fImports) {
+			if (s.fkeywordParameters == null) {
+				continue;
+			}
+			
+			Map<String, Type> here = s.fkeywordParameters.get(onType);
+			if (here != null && here.size() > 0) {
+				return true;
 			}
 		}
+
+		return false;
 	}
 	
 	public boolean hasKeywordParameter(Type onType, String label) {
@@ -1005,57 +1114,71 @@ public class TypeStore {
             return false;
         }
 
-        synchronized(fkeywordParameters) {
+        if (fFrozen) {
+            return hasKeywordParameterUnlocked(onType, label);
+        }
+        else synchronized (fkeywordParameters) {
             synchronized (fImports) {
-                Map<String, Type> local = fkeywordParameters.get(onType);
-                if (local != null && local.containsKey(label)) {
-                    return true;
-                }
-                
-                local = fkeywordParameters.get(onType.getAbstractDataType());
-                if (local != null && local.containsKey(label)) {
-                    return true;
-                }
-                
-                for (TypeStore s : fImports) {
-                    if (s.fkeywordParameters == null) {
-                        continue;
-                    }
-                    
-                    Map<String, Type> here = s.fkeywordParameters.get(onType);
-                    if (here != null && here.containsKey(label)) {
-                        return true;
-                    }
-                    
-                    here = s.fkeywordParameters.get(onType.getAbstractDataType());
-                    if (here != null && here.containsKey(label)) {
-                        return true;
-                    }
-                }
-
-                return false;
+                return hasKeywordParameterUnlocked(onType, label);
             }
         }
     }
 
+    private boolean hasKeywordParameterUnlocked(Type onType, String label) {
+        Map<String, Type> local = fkeywordParameters.get(onType);
+        if (local != null && local.containsKey(label)) {
+            return true;
+        }
+        
+        local = fkeywordParameters.get(onType.getAbstractDataType());
+        if (local != null && local.containsKey(label)) {
+            return true;
+        }
+        
+        for (TypeStore s : fImports) {
+            if (s.fkeywordParameters == null) {
+                continue;
+            }
+            
+            Map<String, Type> here = s.fkeywordParameters.get(onType);
+            if (here != null && here.containsKey(label)) {
+                return true;
+            }
+            
+            here = s.fkeywordParameters.get(onType.getAbstractDataType());
+            if (here != null && here.containsKey(label)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
 	public Type getAlias(String name) {
-	  synchronized (fAliases) {
+	  if (fFrozen) {
+	    return getAliasUnlocked(name);
+	  }
+	  else synchronized (fAliases) {
 	    synchronized (fImports) {
-	      Type result = fAliases.get(name);
+	      return getAliasUnlocked(name);
+	    }
+	  }
+	}
 
-	      if (result != null) {
-	        return result;
-	      }
+	private Type getAliasUnlocked(String name) {
+	  Type result = fAliases.get(name);
 
-	      for (TypeStore s : fImports) {
-	        result = s.fAliases.get(name);
-	        if (result != null) {
-	          return result;
-	        }
-	      }
+	  if (result != null) {
+	    return result;
+	  }
 
-	      return null;
+	  for (TypeStore s : fImports) {
+	    result = s.fAliases.get(name);
+	    if (result != null) {
+	      return result;
 	    }
 	  }
+
+	  return null;
 	}
 }
@@ -34,6 +34,15 @@ public abstract class AbstractTypeBag implements Cloneable {
 
   public abstract AbstractTypeBag decrease(Type t);
 
+  /**
+   * Applies a batch of count changes at once, e.g., all element types that a bulk operation added
+   * to or removed from a collection. This is cheaper than a call to {@link #increase(Type)} or
+   * {@link #decrease(Type)} for every element, which each copy the bag.
+   *
+   * @param deltas the (positive or negative) change of the count per type
+   */
+  public abstract AbstractTypeBag update(java.util.Map<Type, Integer> deltas);
+
   @Deprecated
   public abstract AbstractTypeBag setLabel(String label);
 
@@ -153,6 +162,41 @@ public abstract class AbstractTypeBag implements Cloneable {
       }
     }
 
+    @Override
+    public AbstractTypeBag update(java.util.Map<Type, Integer> deltas) {
+      if (deltas.isEmpty()) {
+        return this;
+      }
+
+      final Map.Transient<Type, Integer> newCountMap = countMap.asTransient();
+      Type newCachedLub = cachedLub;
+
+      for (java.util.Map.Entry<Type, Integer> delta : deltas.entrySet()) {
+        final Type t = delta.getKey();
+        final Integer oldCount = countMap.get(t);
+        final int newCount = (oldCount == null ? 0 : oldCount) + delta.getValue();
+
+        if (newCount < 0) {
+          throw new IllegalStateException(String.format("Type '%s' was not present.", t));
+        } else if (newCount == 0) {
+          if (oldCount != null) {
+            // remove entry and invalidate cached type
+            newCountMap.__remove(t);
+            newCachedLub = null;
+          }
+        } else {
+          newCountMap.__put(t, newCount);
+
+          if (oldCount == null && newCachedLub != null) {
+            // update cached type
+            newCachedLub = newCachedLub.lub(t);
+          }
+        }
+      }
+
+      return new TypeBag(label, newCountMap.freeze(), newCachedLub);
+    }
+
     @Deprecated
     @Override
     public AbstractTypeBag setLabel(String label) {
@@ -12,6 +12,8 @@ package io.usethesource.vallang.util;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
  * This list implementation is shareable and guarantees that the following operations can be done
@@ -463,6 +465,16 @@ public class ShareableList<E> implements Iterable<E>{
 		return (frontIndex + backIndex);
 	}
 	
+	/**
+	 * Splits on index ranges, since elements are retrieved in constant time. This list must not be
+	 * modified anymore while the spliterator is in use.
+	 * 
+	 * @return A spliterator over the elements of this list.
+	 */
+	public Spliterator<E> spliterator(){
+		return new ListSpliterator<>(this, 0, size());
+	}
+	
 	/**
 	 * Checks whether or not this list is empty.
 	 * 
@@ -641,4 +653,52 @@ public class ShareableList<E> implements Iterable<E>{
 			throw new UnsupportedOperationException("This iterator doesn't support removal.");
 		}
 	}
+	
+	/**
+	 * Spliterator for this list, over the index range [index, fence).
+	 */
+	private static class ListSpliterator<E> implements Spliterator<E>{
+		private final ShareableList<E> shareableList;
+		private final int fence;
+		
+		private int index;
+		
+		public ListSpliterator(ShareableList<E> shareableList, int index, int fence){
+			super();
+			
+			this.shareableList = shareableList;
+			this.index = index;
+			this.fence = fence;
+		}
+		
+		public Spliterator<E> trySplit(){
+			int middle = (index + fence) >>> 1;
+			if(middle <= index) return null;
+			
+			ListSpliterator<E> prefix = new ListSpliterator<>(shareableList, index, middle);
+			index = middle;
+			return prefix;
+		}
+		
+		public boolean tryAdvance(Consumer<? super E> action){
+			if(index >= fence) return false;
+			
+			action.accept(shareableList.get(index++));
+			return true;
+		}
+		
+		public void forEachRemaining(Consumer<? super E> action){
+			for(; index < fence; index++){
+				action.accept(shareableList.get(index));
+			}
+		}
+		
+		public long estimateSize(){
+			return fence - index;
+		}
+		
+		public int characteristics(){
+			return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+		}
+	}
 }
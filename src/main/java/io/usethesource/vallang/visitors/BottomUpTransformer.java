@@ -13,23 +13,24 @@ package io.usethesource.vallang.visitors;
 
 import io.usethesource.vallang.IConstructor;
 import io.usethesource.vallang.IExternalValue;
-import io.usethesource.vallang.IListWriter;
 import io.usethesource.vallang.IMap;
-import io.usethesource.vallang.IMapWriter;
 import io.usethesource.vallang.INode;
 import io.usethesource.vallang.ISet;
 import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.IValueFactory;
 import io.usethesource.vallang.IList;
-import io.usethesource.vallang.ISetWriter;
 import io.usethesource.vallang.ITuple;
 
 /**
- * This visitor will apply another visitor in a bottom-up fashion to an IValue 
- *
+ * This visitor will apply another visitor in a bottom-up fashion to an IValue. Values of which no
+ * child changed are not rebuilt. The traversal uses an explicit stack, see {@link StacklessVisitor}.
+ * Children are still dispatched through this visitor, so the visit methods of a subclass apply to
+ * them; only the children for which a subclass overrides a visit method of a value with children
+ * are visited recursively.
  */
 public class BottomUpTransformer<E extends Throwable> extends VisitorAdapter<IValue,E> {
 	protected IValueFactory fFactory;
+	private final StacklessVisitor.Delegate<IValue, E> children = StacklessVisitor.dispatchThrough(this, BottomUpTransformer.class);
 
 	public BottomUpTransformer(IValueVisitor<IValue,E> visitor, IValueFactory factory) {
 		super(visitor);
@@ -38,82 +39,46 @@ public class BottomUpTransformer<E extends Throwable> extends VisitorAdapter<IVa
 	
 	@Override
 	public IValue visitNode(INode o) throws E {
-		for (int i = 0; i < o.arity(); i++) {
-			o = o.set(i, o.get(i).accept(this));
-		}
-		
-		return fVisitor.visitNode(o);
+		return StacklessVisitor.transform(o, fVisitor, fFactory, children);
 	}
 	
+	@Override
 	public IValue visitConstructor(IConstructor o) throws E {
-		for (int i = 0; i < o.arity(); i++) {
-			o = o.set(i, o.get(i).accept(this));
-		}
-		
-		return fVisitor.visitConstructor(o);
+		return StacklessVisitor.transform(o, fVisitor, fFactory, children);
 	}
 	
 	@Override
 	public IValue visitList(IList o) throws E {
-		IListWriter w = fFactory.listWriter();
-		for (IValue elem : o) {
-			w.append(elem.accept(this));
-		}
-		
-		return fVisitor.visitList(w.done());
+		return StacklessVisitor.transform(o, fVisitor, fFactory, children);
 	}
 	
 	@Override
 	public IValue visitSet(ISet o) throws E {
-		ISetWriter w = fFactory.setWriter();
-		for (IValue elem : o) {
-			w.insert(elem.accept(this));
-		}
-		
-		return fVisitor.visitSet(w.done());
+		return StacklessVisitor.transform(o, fVisitor, fFactory, children);
 	}
 	
 	@Override
 	public IValue visitMap(IMap o) throws E {
-		IMapWriter w = fFactory.mapWriter();
-		for (IValue elem : o) {
-			w.put(elem.accept(this), o.get(elem).accept(this));
-		}
-		
-		return fVisitor.visitMap(w.done());
+		return StacklessVisitor.transform(o, fVisitor, fFactory, children);
 	}
-
+	
 	@Override
 	public IValue visitRelation(ISet o) throws E {
-		ISetWriter w = fFactory.setWriter();
-		
-		for (IValue tuple : o) {
-			w.insert((ITuple) tuple.accept(this));
-		}
-		
-		return fVisitor.visitRelation(w.done());
+		return StacklessVisitor.transform(o, fVisitor, fFactory, children);
 	}
 	
 	@Override
 	public IValue visitTuple(ITuple o) throws E {
-		for (int i = 0; i < o.arity(); i++) {
-			o.set(i, o.get(i).accept(this));
-		}
-		
-		return fVisitor.visitTuple(o);
+		return StacklessVisitor.transform(o, fVisitor, fFactory, children);
 	}
-
+	
+	@Override
+	public IValue visitListRelation(IList o) throws E {
+		return StacklessVisitor.transform(o, fVisitor, fFactory, children);
+	}
+	
+	@Override
 	public IValue visitExternal(IExternalValue externalValue) throws E {
 		return fVisitor.visitExternal(externalValue);
 	}
-
-	public IValue visitListRelation(IList o) throws E {
-		IListWriter w = fFactory.listWriter();
-		
-		for (IValue tuple : o) {
-			w.insert((ITuple) tuple.accept(this));
-		}
-		
-		return fVisitor.visitListRelation(w.done());
-	}
 }
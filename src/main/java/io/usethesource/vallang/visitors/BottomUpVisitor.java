@@ -14,22 +14,21 @@ package io.usethesource.vallang.visitors;
 import io.usethesource.vallang.IConstructor;
 import io.usethesource.vallang.IExternalValue;
 import io.usethesource.vallang.IMap;
-import io.usethesource.vallang.IMapWriter;
 import io.usethesource.vallang.INode;
 import io.usethesource.vallang.ISet;
-import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.IValueFactory;
 import io.usethesource.vallang.IList;
-import io.usethesource.vallang.IListWriter;
-import io.usethesource.vallang.ISetWriter;
 import io.usethesource.vallang.ITuple;
 
 /**
- * This visitor will apply another visitor in a bottom-up fashion to an IValue 
- *
+ * This visitor will apply another visitor in a bottom-up fashion to an IValue. The traversal uses
+ * an explicit stack, see {@link StacklessVisitor}. Children are still dispatched through this
+ * visitor, so the visit methods of a subclass apply to them; only the children for which a subclass
+ * overrides a visit method of a value with children are visited recursively.
  */
 public class BottomUpVisitor<T, E extends Throwable> extends VisitorAdapter<T, E> {
 	protected IValueFactory fFactory;
+	private final StacklessVisitor.Delegate<T, E> children = StacklessVisitor.dispatchThrough(this, BottomUpVisitor.class);
 
 	public BottomUpVisitor(IValueVisitor<T, E> visitor, IValueFactory factory) {
 		super(visitor);
@@ -38,83 +37,46 @@ public class BottomUpVisitor<T, E extends Throwable> extends VisitorAdapter<T, E
 	
 	@Override
 	public T visitNode(INode o) throws E {
-		for (int i = 0; i < o.arity(); i++) {
-			o.get(i).accept(this);
-		}
-		
-		return fVisitor.visitNode(o);
+		return StacklessVisitor.bottomUp(o, fVisitor, children);
 	}
 	
+	@Override
 	public T visitConstructor(IConstructor o) throws E {
-		for (int i = 0; i < o.arity(); i++) {
-			o.get(i).accept(this);
-		}
-		
-		return fVisitor.visitConstructor(o);
+		return StacklessVisitor.bottomUp(o, fVisitor, children);
 	}
 	
 	@Override
 	public T visitList(IList o) throws E {
-		IListWriter w = fFactory.listWriter();
-		for (IValue elem : o) {
-			elem.accept(this);
-		}
-		
-		return fVisitor.visitList(w.done());
+		return StacklessVisitor.bottomUp(o, fVisitor, children);
 	}
 	
 	@Override
 	public T visitSet(ISet o) throws E {
-		ISetWriter w = fFactory.setWriter();
-		for (IValue elem : o) {
-			elem.accept(this);
-		}
-		
-		return fVisitor.visitSet(w.done());
+		return StacklessVisitor.bottomUp(o, fVisitor, children);
 	}
 	
 	@Override
 	public T visitMap(IMap o) throws E {
-		IMapWriter w = fFactory.mapWriter();
-		for (IValue elem : o) {
-			elem.accept(this);
-			o.get(elem).accept(this);
-		}
-		
-		return fVisitor.visitMap(w.done());
+		return StacklessVisitor.bottomUp(o, fVisitor, children);
 	}
-
+	
 	@Override
 	public T visitRelation(ISet o) throws E {
-		ISetWriter w = fFactory.setWriter();
-		
-		for (IValue tuple : o) {
-			tuple.accept(this);
-		}
-		
-		return fVisitor.visitRelation(w.done());
+		return StacklessVisitor.bottomUp(o, fVisitor, children);
 	}
 	
 	@Override
 	public T visitTuple(ITuple o) throws E {
-		for (int i = 0; i < o.arity(); i++) {
-			o.get(i).accept(this);
-		}
-		
-		return fVisitor.visitTuple(o);
+		return StacklessVisitor.bottomUp(o, fVisitor, children);
 	}
-
+	
+	@Override
+	public T visitListRelation(IList o) throws E {
+		return StacklessVisitor.bottomUp(o, fVisitor, children);
+	}
+	
+	@Override
 	public T visitExternal(IExternalValue externalValue) throws E {
 		return fVisitor.visitExternal(externalValue);
 	}
-
-	public T visitListRelation(IList o) throws E {
-		IListWriter w = fFactory.listWriter();
-		
-		for (IValue tuple : o) {
-			tuple.accept(this);
-		}
-		
-		return fVisitor.visitListRelation(w.done());
-	}
 }
@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.visitors;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import io.usethesource.vallang.IConstructor;
+import io.usethesource.vallang.IList;
+import io.usethesource.vallang.IMap;
+import io.usethesource.vallang.INode;
+import io.usethesource.vallang.ISet;
+import io.usethesource.vallang.ITuple;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+
+/**
+ * A {@link BottomUpTransformer} that transforms the children of wide values in parallel.
+ * <br /><br />
+ * Values with at least <code>threshold</code> children (list elements, set elements, map entries,
+ * or node, constructor and tuple arguments) have their children split in chunks of at most
+ * <code>threshold</code> children, which are transformed as separate fork/join tasks. The value is
+ * then reassembled with the writers of the value factory, or not at all when no child changed.
+ * Narrower values are transformed by {@link StacklessVisitor}, which hands the wide values it finds
+ * below them back to this transformer. A narrow root over a wide child, like
+ * <code>program(list[decl] decls)</code>, is therefore still transformed in parallel.
+ * <br /><br />
+ * As in {@link BottomUpTransformer}, the children are dispatched through this transformer.
+ * <br /><br />
+ * The visitor and the value factory are called from several threads at the same time, so both
+ * must be thread-safe.
+ */
+public class ParallelBottomUpTransformer<E extends Throwable> extends BottomUpTransformer<E> {
+	public static final int DEFAULT_THRESHOLD = 256;
+
+	private final ForkJoinPool pool;
+	private final int threshold;
+
+	private final StacklessVisitor.Delegate<IValue, E> dispatch = StacklessVisitor.dispatchThrough(this, ParallelBottomUpTransformer.class);
+
+	private final StacklessVisitor.Delegate<IValue, E> wideValues = new StacklessVisitor.Delegate<IValue, E>() {
+		@Override
+		public boolean accepts(IValue value) {
+			return widthOf(value) >= threshold || dispatch.accepts(value);
+		}
+
+		@Override
+		public IValue visit(IValue value) throws E {
+			return transformChild(value);
+		}
+	};
+
+	public ParallelBottomUpTransformer(IValueVisitor<IValue,E> visitor, IValueFactory factory) {
+		this(visitor, factory, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+
+	public ParallelBottomUpTransformer(IValueVisitor<IValue,E> visitor, IValueFactory factory, ForkJoinPool pool, int threshold) {
+		super(visitor, factory);
+
+		if (threshold < 2) {
+			throw new IllegalArgumentException("Threshold must be at least 2.");
+		}
+		this.pool = pool;
+		this.threshold = threshold;
+	}
+
+	@Override
+	public IValue visitNode(INode o) throws E {
+		return transformInPool(o);
+	}
+
+	@Override
+	public IValue visitConstructor(IConstructor o) throws E {
+		return transformInPool(o);
+	}
+
+	@Override
+	public IValue visitList(IList o) throws E {
+		return transformInPool(o);
+	}
+
+	@Override
+	public IValue visitSet(ISet o) throws E {
+		return transformInPool(o);
+	}
+
+	@Override
+	public IValue visitMap(IMap o) throws E {
+		return transformInPool(o);
+	}
+
+	@Override
+	public IValue visitRelation(ISet o) throws E {
+		return transformInPool(o);
+	}
+
+	@Override
+	public IValue visitTuple(ITuple o) throws E {
+		return transformInPool(o);
+	}
+
+	@Override
+	public IValue visitListRelation(IList o) throws E {
+		return transformInPool(o);
+	}
+
+	@SuppressWarnings("unchecked")
+	private IValue transformInPool(IValue value) throws E {
+		if (widthOf(value) == 0) {
+			return value.accept(fVisitor);
+		}
+
+		try {
+			return pool.invoke(new TransformTask(value));
+		} catch (WrappedException e) {
+			Throwable cause = e.getCause();
+			// the fork/join framework may have wrapped a copy of the exception
+			while (cause instanceof WrappedException) {
+				cause = cause.getCause();
+			}
+			throw (E) cause;
+		}
+	}
+
+	private IValue transform(IValue value) throws E {
+		final int width = widthOf(value);
+		if (width < threshold) {
+			return StacklessVisitor.transform(value, fVisitor, fFactory, wideValues);
+		}
+
+		final IValue[] children = childrenOf(value, width);
+		final IValue[] results = new IValue[children.length];
+		new ChildrenTask(children, results, 0, children.length).invoke();
+
+		IValue result = value;
+		for (int i = 0; i < children.length; i++) {
+			if (results[i] != children[i]) {
+				result = StacklessVisitor.rebuild(value, results, 0, results.length, fFactory);
+				break;
+			}
+		}
+		return result.accept(fVisitor);
+	}
+
+	private IValue transformChild(IValue child) throws E {
+		if (widthOf(child) < threshold && dispatch.accepts(child)) {
+			return dispatch.visit(child);
+		}
+		return transform(child);
+	}
+
+	/**
+	 * @return the number of children, or 0 for values without children
+	 */
+	private static int widthOf(IValue value) {
+		if (value instanceof IList) {
+			return ((IList) value).length();
+		} else if (value instanceof ISet) {
+			return ((ISet) value).size();
+		} else if (value instanceof IMap) {
+			return ((IMap) value).size();
+		} else if (value instanceof ITuple) {
+			return ((ITuple) value).arity();
+		} else if (value instanceof INode) {
+			return ((INode) value).arity();
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the children in the order of {@link StacklessVisitor}; keys and values for maps
+	 */
+	private static IValue[] childrenOf(IValue value, int width) {
+		if (value instanceof IMap) {
+			final IValue[] children = new IValue[width * 2];
+			final Iterator<Entry<IValue, IValue>> entries = ((IMap) value).entryIterator();
+			for (int i = 0; entries.hasNext(); i += 2) {
+				final Entry<IValue, IValue> entry = entries.next();
+				children[i] = entry.getKey();
+				children[i + 1] = entry.getValue();
+			}
+			return children;
+		} else if (value instanceof ITuple) {
+			final IValue[] children = new IValue[width];
+			for (int i = 0; i < width; i++) {
+				children[i] = ((ITuple) value).get(i);
+			}
+			return children;
+		} else if (value instanceof INode) {
+			final IValue[] children = new IValue[width];
+			for (int i = 0; i < width; i++) {
+				children[i] = ((INode) value).get(i);
+			}
+			return children;
+		}
+
+		// lists and sets
+		final IValue[] children = new IValue[width];
+		int i = 0;
+		for (IValue child : (Iterable<IValue>) value) {
+			children[i++] = child;
+		}
+		return children;
+	}
+
+	/**
+	 * Only used to pass checked exceptions of the visitor through the fork/join framework.
+	 */
+	private static final class WrappedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		WrappedException(Throwable cause) {
+			super(cause);
+		}
+	}
+
+	private final class TransformTask extends RecursiveTask<IValue> {
+		private static final long serialVersionUID = 1L;
+
+		private final IValue value;
+
+		TransformTask(IValue value) {
+			this.value = value;
+		}
+
+		@Override
+		protected IValue compute() {
+			try {
+				return transform(value);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new WrappedException(e);
+			}
+		}
+	}
+
+	/**
+	 * Transforms the children in the range [from, to), splitting the range in halves until it is
+	 * at most as long as the threshold.
+	 */
+	private final class ChildrenTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final IValue[] children;
+		private final IValue[] results;
+		private final int from;
+		private final int to;
+
+		ChildrenTask(IValue[] children, IValue[] results, int from, int to) {
+			this.children = children;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > threshold) {
+				final int middle = (from + to) >>> 1;
+				invokeAll(new ChildrenTask(children, results, from, middle),
+						new ChildrenTask(children, results, middle, to));
+				return;
+			}
+
+			try {
+				for (int i = from; i < to; i++) {
+					results[i] = transformChild(children[i]);
+				}
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new WrappedException(e);
+			}
+		}
+	}
+}
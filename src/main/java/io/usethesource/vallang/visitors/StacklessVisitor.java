@@ -0,0 +1,388 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.visitors;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import io.usethesource.vallang.IConstructor;
+import io.usethesource.vallang.IList;
+import io.usethesource.vallang.IListWriter;
+import io.usethesource.vallang.IMap;
+import io.usethesource.vallang.IMapWriter;
+import io.usethesource.vallang.INode;
+import io.usethesource.vallang.ISet;
+import io.usethesource.vallang.ISetWriter;
+import io.usethesource.vallang.ITuple;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+import io.usethesource.vallang.type.Type;
+
+/**
+ * Applies a visitor to a value and all its (nested) children, using an explicit stack instead of
+ * recursion. Deeply nested values, like long cons-lists or deep syntax trees, therefore do not
+ * overflow the Java stack.
+ * <br /><br />
+ * The children of lists, sets, maps, tuples, nodes and constructors are visited; the children of
+ * a map are visited as key, value, key, value, etc. Keyword parameters and annotations are not
+ * visited, but they are kept when a node or constructor is rebuilt by
+ * {@link #transform(IValue, IValueVisitor, IValueFactory)}.
+ * <br /><br />
+ * The stack frames are reused, so the traversal itself only allocates for the iterators of
+ * collections and for the values that are rebuilt.
+ */
+public final class StacklessVisitor<T, E extends Throwable> {
+	private static final int LIST = 0;
+	private static final int SET = 1;
+	private static final int MAP = 2;
+	private static final int TUPLE = 3;
+	private static final int NODE = 4;
+
+	private final IValueVisitor<T, E> visitor;
+	private final IValueFactory factory;
+	private final boolean topDown;
+	private final boolean transform;
+	private final Delegate<T, E> delegate;
+
+	private Frame[] frames = new Frame[32];
+	private int depth = 0;
+
+	// results of the visited children, of all frames on the stack (only used by transform)
+	private IValue[] results;
+	private int resultCount = 0;
+
+	private StacklessVisitor(IValueVisitor<T, E> visitor, IValueFactory factory, boolean topDown, boolean transform, Delegate<T, E> delegate) {
+		this.visitor = visitor;
+		this.factory = factory;
+		this.topDown = topDown;
+		this.transform = transform;
+		this.delegate = delegate;
+		this.results = transform ? new IValue[64] : null;
+	}
+
+	/**
+	 * Visits the children of a value before the value itself.
+	 *
+	 * @return the result of the visitor for the root
+	 */
+	public static <T, E extends Throwable> T bottomUp(IValue root, IValueVisitor<T, E> visitor) throws E {
+		return new StacklessVisitor<>(visitor, null, false, false, null).run(root);
+	}
+
+	/**
+	 * Like {@link #bottomUp(IValue, IValueVisitor)}, but the descendants of the root that the
+	 * delegate accepts are visited by the delegate instead.
+	 */
+	static <T, E extends Throwable> T bottomUp(IValue root, IValueVisitor<T, E> visitor, Delegate<T, E> delegate) throws E {
+		return new StacklessVisitor<>(visitor, null, false, false, delegate).run(root);
+	}
+
+	/**
+	 * Visits a value before its children.
+	 *
+	 * @return the result of the visitor for the root
+	 */
+	public static <T, E extends Throwable> T topDown(IValue root, IValueVisitor<T, E> visitor) throws E {
+		return new StacklessVisitor<>(visitor, null, true, false, null).run(root);
+	}
+
+	/**
+	 * Transforms a value bottom-up: the children of a value are transformed first, the value is
+	 * rebuilt from the transformed children, and then the transformer is applied to the rebuilt
+	 * value. Values of which no child changed (by identity) are not rebuilt, so unchanged subtrees
+	 * are returned as is.
+	 *
+	 * @param factory used to rebuild the values of which a child changed
+	 * @return the transformed root
+	 */
+	public static <E extends Throwable> IValue transform(IValue root, IValueVisitor<IValue, E> transformer, IValueFactory factory) throws E {
+		return new StacklessVisitor<>(transformer, factory, false, true, null).run(root);
+	}
+
+	/**
+	 * Like {@link #transform(IValue, IValueVisitor, IValueFactory)}, but the descendants of the
+	 * root that the delegate accepts are transformed by the delegate instead.
+	 */
+	static <E extends Throwable> IValue transform(IValue root, IValueVisitor<IValue, E> transformer, IValueFactory factory, Delegate<IValue, E> delegate) throws E {
+		return new StacklessVisitor<>(transformer, factory, false, true, delegate).run(root);
+	}
+
+	private T run(IValue root) throws E {
+		if (kindOf(root) < 0) {
+			return root.accept(visitor);
+		}
+
+		final T rootResult = push(root);
+
+		while (true) {
+			final Frame frame = frames[depth - 1];
+
+			if (frame.hasNext()) {
+				final IValue child = frame.next();
+
+				if (delegate != null && delegate.accepts(child)) {
+					produce(frame, child, delegate.visit(child));
+				} else if (kindOf(child) < 0) {
+					produce(frame, child, child.accept(visitor));
+				} else {
+					push(child);
+				}
+			} else {
+				final T result = pop(frame);
+
+				if (depth == 0) {
+					return topDown ? rootResult : result;
+				}
+				produce(frames[depth - 1], frame.value, result);
+				frame.clear();
+			}
+		}
+	}
+
+	private static int kindOf(IValue value) {
+		if (value instanceof IList) {
+			return LIST;
+		} else if (value instanceof ISet) {
+			return SET;
+		} else if (value instanceof IMap) {
+			return MAP;
+		} else if (value instanceof ITuple) {
+			return TUPLE;
+		} else if (value instanceof INode) {
+			return NODE;
+		}
+		return -1;
+	}
+
+	private T push(IValue value) throws E {
+		if (depth == frames.length) {
+			frames = Arrays.copyOf(frames, depth << 1);
+		}
+		Frame frame = frames[depth];
+		if (frame == null) {
+			frame = frames[depth] = new Frame();
+		}
+		depth++;
+
+		frame.init(value, kindOf(value));
+		return topDown ? value.accept(visitor) : null;
+	}
+
+	private T pop(Frame frame) throws E {
+		depth--;
+
+		IValue value = frame.value;
+		if (transform) {
+			final int from = resultCount - frame.count;
+			if (frame.changed) {
+				value = rebuild(value, results, from, resultCount, factory);
+			}
+			Arrays.fill(results, from, resultCount, null);
+			resultCount = from;
+		}
+
+		return topDown ? null : value.accept(visitor);
+	}
+
+	private void produce(Frame parent, IValue child, T result) {
+		if (transform) {
+			if (resultCount == results.length) {
+				results = Arrays.copyOf(results, resultCount << 1);
+			}
+			results[resultCount++] = (IValue) result;
+			parent.changed |= result != child;
+		}
+	}
+
+	/**
+	 * Rebuilds a value from the (transformed) children in <code>children[from..to)</code>, which are
+	 * in the order this visitor visits them. The new value is created once, with the keyword
+	 * parameters or annotations of the old one.
+	 */
+	static IValue rebuild(IValue value, IValue[] children, int from, int to, IValueFactory factory) {
+		switch (kindOf(value)) {
+			case LIST: {
+				final IListWriter w = factory.listWriter();
+				w.append(Arrays.copyOfRange(children, from, to));
+				return w.done();
+			}
+			case SET: {
+				final ISetWriter w = factory.setWriter();
+				w.insert(Arrays.copyOfRange(children, from, to));
+				return w.done();
+			}
+			case MAP: {
+				final IMapWriter w = factory.mapWriter();
+				for (int i = from; i < to; i += 2) {
+					w.put(children[i], children[i + 1]);
+				}
+				return w.done();
+			}
+			case TUPLE:
+				return factory.tuple(Arrays.copyOfRange(children, from, to));
+			case NODE: {
+				final INode node = (INode) value;
+				final IValue[] args = Arrays.copyOfRange(children, from, to);
+				final Map<String, IValue> kwParams = node.mayHaveKeywordParameters() && node.asWithKeywordParameters().hasParameters()
+						? node.asWithKeywordParameters().getParameters() : null;
+
+				INode result;
+				if (node instanceof IConstructor) {
+					final Type type = ((IConstructor) node).getConstructorType();
+					result = kwParams == null ? factory.constructor(type, args) : factory.constructor(type, args, kwParams);
+				} else {
+					result = kwParams == null ? factory.node(node.getName(), args) : factory.node(node.getName(), args, kwParams);
+				}
+
+				if (node.isAnnotatable() && node.asAnnotatable().hasAnnotations()) {
+					result = result.asAnnotatable().setAnnotations(node.asAnnotatable().getAnnotations());
+				}
+				return result;
+			}
+			default:
+				throw new IllegalArgumentException("Value has no children: " + value);
+		}
+	}
+
+	/**
+	 * Takes over the visit of some of the values below the root, see {@link #dispatchThrough} and
+	 * {@link ParallelBottomUpTransformer}.
+	 */
+	interface Delegate<T, E extends Throwable> {
+		boolean accepts(IValue value);
+
+		T visit(IValue value) throws E;
+	}
+
+	/**
+	 * Dispatches children through an adapter, as the recursive adapters did before they used an
+	 * explicit stack, so that subclasses of the adapter see the children too. Values without
+	 * children are passed to the adapter. Values with children only leave the explicit stack for
+	 * the kinds of which the class of the adapter overrides a visit method of <code>base</code>;
+	 * <code>base</code> itself would just start another stackless traversal for them.
+	 */
+	static <T, E extends Throwable> Delegate<T, E> dispatchThrough(VisitorAdapter<T, E> adapter, Class<?> base) {
+		final Class<?> type = adapter.getClass();
+		final boolean[] overridden = new boolean[NODE + 1];
+		overridden[LIST] = overrides(type, base, "visitList", IList.class) || overrides(type, base, "visitListRelation", IList.class);
+		overridden[SET] = overrides(type, base, "visitSet", ISet.class) || overrides(type, base, "visitRelation", ISet.class);
+		overridden[MAP] = overrides(type, base, "visitMap", IMap.class);
+		overridden[TUPLE] = overrides(type, base, "visitTuple", ITuple.class);
+		overridden[NODE] = overrides(type, base, "visitNode", INode.class) || overrides(type, base, "visitConstructor", IConstructor.class);
+
+		return new Delegate<T, E>() {
+			@Override
+			public boolean accepts(IValue value) {
+				final int kind = kindOf(value);
+				return kind < 0 || overridden[kind];
+			}
+
+			@Override
+			public T visit(IValue value) throws E {
+				return value.accept(adapter);
+			}
+		};
+	}
+
+	private static boolean overrides(Class<?> type, Class<?> base, String name, Class<?> parameter) {
+		try {
+			return type.getMethod(name, parameter).getDeclaringClass() != base;
+		} catch (NoSuchMethodException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static final class Frame {
+		IValue value;
+		int kind;
+		boolean changed;
+
+		/** number of children that were handed out */
+		int count;
+
+		/** for tuples and nodes */
+		int arity;
+
+		/** for lists and sets */
+		Iterator<IValue> elements;
+
+		/** for maps; the value of an entry is handed out after its key */
+		Iterator<Entry<IValue, IValue>> entries;
+		IValue pendingValue;
+
+		void init(IValue value, int kind) {
+			this.value = value;
+			this.kind = kind;
+
+			switch (kind) {
+				case LIST:
+					elements = ((IList) value).iterator();
+					break;
+				case SET:
+					elements = ((ISet) value).iterator();
+					break;
+				case MAP:
+					entries = ((IMap) value).entryIterator();
+					break;
+				case TUPLE:
+					arity = ((ITuple) value).arity();
+					break;
+				default:
+					arity = ((INode) value).arity();
+					break;
+			}
+		}
+
+		boolean hasNext() {
+			switch (kind) {
+				case LIST:
+				case SET:
+					return elements.hasNext();
+				case MAP:
+					return pendingValue != null || entries.hasNext();
+				default:
+					return count < arity;
+			}
+		}
+
+		IValue next() {
+			switch (kind) {
+				case LIST:
+				case SET:
+					count++;
+					return elements.next();
+				case MAP:
+					count++;
+					if (pendingValue != null) {
+						final IValue result = pendingValue;
+						pendingValue = null;
+						return result;
+					}
+					final Entry<IValue, IValue> entry = entries.next();
+					pendingValue = entry.getValue();
+					return entry.getKey();
+				case TUPLE:
+					return ((ITuple) value).get(count++);
+				default:
+					return ((INode) value).get(count++);
+			}
+		}
+
+		void clear() {
+			value = null;
+			changed = false;
+			count = 0;
+			arity = 0;
+			elements = null;
+			entries = null;
+			pendingValue = null;
+		}
+	}
+}
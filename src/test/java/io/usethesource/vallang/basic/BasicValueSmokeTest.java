@@ -11,6 +11,8 @@
  *******************************************************************************/
 package io.usethesource.vallang.basic;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.net.URISyntaxException;
 
 import io.usethesource.vallang.IDateTime;
@@ -18,9 +20,11 @@ import io.usethesource.vallang.IInteger;
 import io.usethesource.vallang.INumber;
 import io.usethesource.vallang.IReal;
 import io.usethesource.vallang.ISourceLocation;
+import io.usethesource.vallang.IString;
 import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.IValueFactory;
 import io.usethesource.vallang.Setup;
+import io.usethesource.vallang.io.StandardTextWriter;
 import io.usethesource.vallang.type.TypeFactory;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -71,6 +75,68 @@ public final class BasicValueSmokeTest {
     assertTrue(vf.string("").length() == 0);
   }
 
+  @Test
+  public void testLargeStringConcatenation() throws IOException {
+    StringBuilder expected = new StringBuilder();
+    IString result = vf.string("");
+
+    for (int i = 0; i < 5000; i++) {
+      String fragment = (i % 7 == 0) ? "🍝\"" + i : "frag " + i + "\n";
+      expected.append(fragment);
+      result = result.concat(vf.string(fragment));
+    }
+
+    IString flat = vf.string(expected.toString());
+    int length = expected.codePointCount(0, expected.length());
+
+    assertEquals(length, result.length());
+    assertEquals(flat.hashCode(), result.hashCode());
+    assertEqual(flat, result);
+    assertEqual(result, flat);
+
+    for (int i = 0; i < length; i += 97) {
+      assertEquals(flat.charAt(i), result.charAt(i));
+      assertEqual(flat.substring(i, Math.min(length, i + 1000)), result.substring(i, Math.min(length, i + 1000)));
+      assertEqual(flat.substring(i), result.substring(i));
+    }
+
+    StringWriter flatOut = new StringWriter();
+    StringWriter ropeOut = new StringWriter();
+    new StandardTextWriter().write(flat, flatOut);
+    new StandardTextWriter().write(result, ropeOut);
+    assertEquals(flatOut.toString(), ropeOut.toString());
+
+    assertEquals(expected.toString(), result.getValue());
+  }
+
+  @Test
+  public void testConcatenationWithShortSubRope() {
+    String l = repeat('l', 10);
+    String m = repeat('m', 10);
+    String n = repeat('n', 600);
+    String x = repeat('x', 600);
+
+    // rebalancing this rope leaves the 20 character rope "l..m.." as its left child
+    IString rope = vf.string(l).concat(vf.string(m).concat(vf.string(n))).concat(vf.string(x));
+    IString subRope = rope.substring(0, 20);
+    assertEquals(l + m, subRope.getValue());
+
+    IString result = vf.string("q").concat(subRope);
+    IString flat = vf.string("q" + l + m);
+
+    assertEquals(flat, result);
+    assertEquals(result, flat);
+    assertEquals(flat.hashCode(), result.hashCode());
+  }
+
+  private static String repeat(char c, int count) {
+    StringBuilder b = new StringBuilder(count);
+    for (int i = 0; i < count; i++) {
+      b.append(c);
+    }
+    return b.toString();
+  }
+
   @Test
   public void testStringReverse() {
     assertTrue(vf.string("").reverse().isEqual(vf.string("")));
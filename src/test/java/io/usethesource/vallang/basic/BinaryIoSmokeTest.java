@@ -21,17 +21,28 @@ import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import io.usethesource.vallang.IConstructor;
+import io.usethesource.vallang.IList;
 import io.usethesource.vallang.IListWriter;
+import io.usethesource.vallang.IMap;
+import io.usethesource.vallang.IMapWriter;
+import io.usethesource.vallang.INode;
+import io.usethesource.vallang.ISet;
+import io.usethesource.vallang.ISetWriter;
 import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.Setup;
 import io.usethesource.vallang.io.StandardTextWriter;
 import io.usethesource.vallang.io.binary.message.IValueReader;
 import io.usethesource.vallang.io.binary.message.IValueWriter;
+import io.usethesource.vallang.io.binary.stream.IValueIndexedInputStream;
+import io.usethesource.vallang.io.binary.stream.IValueIndexedOutputStream;
 import io.usethesource.vallang.io.binary.stream.IValueInputStream;
 import io.usethesource.vallang.io.binary.stream.IValueOutputStream;
 import io.usethesource.vallang.io.binary.util.WindowSizes;
+import io.usethesource.vallang.io.binary.util.WindowStatistics;
 import io.usethesource.vallang.io.binary.wire.binary.BinaryWireInputStream;
 import io.usethesource.vallang.io.binary.wire.binary.BinaryWireOutputStream;
 import io.usethesource.vallang.io.old.BinaryWriter;
@@ -47,7 +58,10 @@ import io.usethesource.vallang.io.binary.wire.IWireInputStream;
 import io.usethesource.vallang.io.binary.wire.IWireOutputStream;
 import io.usethesource.vallang.type.Type;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -137,6 +151,249 @@ public final class BinaryIoSmokeTest {
   }
   
 
+  @Test
+  public void testRandomAccessBinaryFileIO() throws IOException {
+    TypeStore ts = new TypeStore();
+    Type name = RandomValues.addNameType(ts);
+    Random r = new Random(42);
+    IValue[] values = new IValue[20];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = RandomValues.generate(name, ts, vf, r, 10);
+    }
+
+    File target = File.createTempFile("valllang-test-file", "indexed");
+    target.deleteOnExit();
+    try {
+      try (IValueIndexedOutputStream w = new IValueIndexedOutputStream(FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE), vf)) {
+        for (int i = 0; i < values.length; i++) {
+          assertEquals(i, w.write(values[i]));
+        }
+      }
+      try (IValueIndexedInputStream read = new IValueIndexedInputStream(FileChannel.open(target.toPath(), StandardOpenOption.READ), vf, Setup.TYPE_STORE_SUPPLIER)) {
+        assertEquals(values.length, read.size());
+        // out of order, and some values twice
+        for (int i = values.length - 1; i >= 0; i -= 3) {
+          assertTrue(values[i].isEqual(read.read(i)));
+        }
+        for (int i = 0; i < values.length; i++) {
+          assertTrue(values[i].isEqual(read.read(i)));
+        }
+      }
+    }
+    finally {
+      target.delete();
+    }
+  }
+
+  @Test
+  public void testRandomAccessFields() throws IOException {
+    IListWriter big = vf.listWriter();
+    for (int i = 0; i < 1000; i++) {
+      big.append(vf.tuple(vf.integer(i), vf.string("element" + i)));
+    }
+    IList bigList = big.done();
+    IValue nested = vf.node("nested", vf.integer(1), bigList.sublist(0, 500));
+    IValue value = vf.node("program", vf.string("main"), bigList, nested, bigList);
+
+    File target = File.createTempFile("valllang-test-file", "indexed");
+    target.deleteOnExit();
+    try {
+      try (IValueIndexedOutputStream w = new IValueIndexedOutputStream(new FileOutputStream(target), vf, WindowSizes.NORMAL_WINDOW, 100)) {
+        assertEquals(0, w.write(value));
+        assertEquals(1, w.write(bigList));
+      }
+      try (IValueIndexedInputStream read = new IValueIndexedInputStream(FileChannel.open(target.toPath(), StandardOpenOption.READ), vf, Setup.TYPE_STORE_SUPPLIER)) {
+        assertEquals(2, read.size());
+        assertTrue(value.isEqual(read.read(0)));
+        assertTrue(bigList.isEqual(read.read(1)));
+        for (int i = 0; i < 4; i++) {
+          assertTrue(((INode) value).get(i).isEqual(read.readField(0, i)));
+        }
+      }
+    }
+    finally {
+      target.delete();
+    }
+  }
+
+  @Test
+  public void testParallelCompressedBinaryIO() throws IOException {
+    // large enough to span several compression blocks
+    Random r = new Random(42);
+    IListWriter writer = vf.listWriter();
+    for (int i = 0; i < 100_000; i++) {
+      writer.append(vf.tuple(vf.integer(r.nextInt()), vf.string(Long.toHexString(r.nextLong()))));
+    }
+    IValue value = writer.done();
+
+    for (IValueOutputStream.CompressionRate rate : new IValueOutputStream.CompressionRate[] { IValueOutputStream.CompressionRate.Light, IValueOutputStream.CompressionRate.Extreme }) {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      try (IValueOutputStream w = new IValueOutputStream(buffer, vf, rate, 4)) {
+        w.write(value);
+      }
+      try (IValueInputStream read = new IValueInputStream(new ByteArrayInputStream(buffer.toByteArray()), vf, Setup.TYPE_STORE_SUPPLIER)) {
+        assertTrue(value.isEqual(read.read()));
+      }
+
+      ExecutorService pool = Executors.newFixedThreadPool(2);
+      try {
+        for (int i = 0; i < 2; i++) {
+          try (IValueInputStream read = new IValueInputStream(new ByteArrayInputStream(buffer.toByteArray()), vf, Setup.TYPE_STORE_SUPPLIER, pool, 2)) {
+            assertTrue(value.isEqual(read.read()));
+          }
+          // closing the stream does not shut down the pool it was given
+          assertFalse(pool.isShutdown());
+        }
+      }
+      finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testStreamingElementsIO() throws IOException {
+    IValue shared = vf.tuple(vf.string("shared"), vf.integer(42));
+    ISetWriter relation = vf.setWriter();
+    IListWriter list = vf.listWriter();
+    IMapWriter map = vf.mapWriter();
+    for (int i = 0; i < 1000; i++) {
+      relation.insert(vf.tuple(vf.integer(i), vf.string("" + i)));
+      list.append(shared);
+      list.append(vf.integer(i));
+      map.put(vf.integer(i), shared);
+    }
+    IValue[] values = new IValue[] { relation.done(), list.done(), map.done(), vf.list(), vf.string("single"), shared };
+
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (IValueOutputStream w = new IValueOutputStream(buffer, vf, IValueOutputStream.CompressionRate.Normal)) {
+      for (IValue v : values) {
+        w.write(v);
+      }
+      w.write(vf.integer(-1));
+    }
+
+    try (IValueInputStream read = new IValueInputStream(new ByteArrayInputStream(buffer.toByteArray()), vf, Setup.TYPE_STORE_SUPPLIER)) {
+      for (IValue v : values) {
+        try (IValueReader.ElementReader elements = read.readElements()) {
+          if (v instanceof ISet) {
+            assertTrue(elements.isSet());
+            ISetWriter result = vf.setWriter();
+            while (elements.hasNext()) {
+              result.insert(elements.next());
+            }
+            assertTrue(v.isEqual(result.done()));
+          }
+          else if (v instanceof IList) {
+            assertTrue(elements.isList());
+            assertEquals(((IList) v).length(), elements.size());
+            IListWriter result = vf.listWriter();
+            while (elements.hasNext()) {
+              result.append(elements.next());
+            }
+            assertTrue(v.isEqual(result.done()));
+          }
+          else if (v instanceof IMap) {
+            assertTrue(elements.isMap());
+            IMapWriter result = vf.mapWriter();
+            while (elements.hasNext()) {
+              result.insert(elements.next());
+            }
+            assertTrue(v.isEqual(result.done()));
+          }
+          else {
+            // any other value is yielded as a single element
+            assertEquals(1, elements.size());
+            assertTrue(v.isEqual(elements.next()));
+            assertTrue(!elements.hasNext());
+          }
+        }
+      }
+      // stop halfway, the stream should still be positioned at the next value
+      try (IValueInputStream again = new IValueInputStream(new ByteArrayInputStream(buffer.toByteArray()), vf, Setup.TYPE_STORE_SUPPLIER)) {
+        try (IValueReader.ElementReader elements = again.readElements()) {
+          elements.next();
+        }
+        assertTrue(values[1].isEqual(again.read()));
+      }
+      assertTrue(vf.integer(-1).isEqual(read.read()));
+    }
+  }
+
+  @Test
+  public void testStructuralEqualityIO() throws IOException {
+    TypeStore ts = new TypeStore();
+    Type name = RandomValues.addNameType(ts);
+    IListWriter corpus = vf.listWriter();
+    for (IValue value : RandomValues.getTestValues(vf)) {
+      corpus.append(value);
+    }
+    for (int i = 0; i < 20; i++) {
+      // equal, but not shared in memory, as if they came from different parse runs
+      corpus.append(RandomValues.generate(name, ts, vf, new Random(i), 10));
+      corpus.append(RandomValues.generate(name, ts, vf, new Random(i), 10));
+    }
+    IValue value = corpus.done();
+
+    byte[] reference = writeWire(value, WindowSizes.NORMAL_WINDOW);
+    byte[] structural = writeWire(value, WindowSizes.NORMAL_WINDOW.withStructuralEquality());
+    assertTrue(structural.length < reference.length);
+    try (IWireInputStream r = new BinaryWireInputStream(new ByteArrayInputStream(structural))) {
+      assertTrue(value.isEqual(IValueReader.readValue(r, vf, Setup.TYPE_STORE_SUPPLIER)));
+    }
+
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (IValueOutputStream w = new IValueOutputStream(buffer, vf)) {
+      w.setStructuralEquality(true);
+      w.write(value);
+    }
+    try (IValueInputStream read = new IValueInputStream(new ByteArrayInputStream(buffer.toByteArray()), vf, Setup.TYPE_STORE_SUPPLIER)) {
+      assertTrue(value.isEqual(read.read()));
+    }
+  }
+
+  private byte[] writeWire(IValue value, WindowSizes sizes) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (IWireOutputStream w = new BinaryWireOutputStream(buffer, sizes.stringsWindow)) {
+      IValueWriter.write(w, vf, sizes, value);
+    }
+    return buffer.toByteArray();
+  }
+
+  @Test
+  public void testWindowStatistics() throws IOException {
+    IValue shared = vf.tuple(vf.string("shared"), vf.integer(42));
+    IListWriter writer = vf.listWriter();
+    for (int i = 0; i < 2000; i++) {
+      writer.append(vf.tuple(vf.integer(i), vf.integer(i)));
+      writer.append(shared);
+    }
+    IValue value = writer.done();
+
+    WindowStatistics written = new WindowStatistics();
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (IWireOutputStream w = new BinaryWireOutputStream(buffer, 1000)) {
+      IValueWriter.write(w, vf, WindowSizes.TINY_WINDOW, value, written);
+    }
+    WindowStatistics read = new WindowStatistics();
+    try (IWireInputStream r = new BinaryWireInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+      assertTrue(value.isEqual(IValueReader.readValue(r, vf, Setup.TYPE_STORE_SUPPLIER, read)));
+    }
+
+    assertEquals(1, written.getSerialized());
+    assertEquals(Long.valueOf(written.getElapsedNanos()), written.getElapsedNanosPerKind().get("list"));
+    assertTrue(written.getValues().getHits() > 0);
+    assertTrue(written.getValues().getEvictions() > 0);
+    assertTrue(written.getValues().getMaxDistance() < WindowSizes.TINY_WINDOW.valueWindow);
+    // a back-reference to the shared tuple is smaller than the tuple itself
+    assertTrue(written.getValues().getBytesSaved() > 0);
+    // the reader only follows the back-references that were written
+    assertEquals(0, read.getValues().getLookups());
+    assertEquals(written.getValues().getInsertions(), read.getValues().getInsertions());
+    assertEquals(written.getValues().getMaxDistance(), read.getValues().getMaxDistance());
+    assertEquals(written.getTypes().getMaxDistance(), read.getTypes().getMaxDistance());
+  }
+
   @Test
   public void testConstructorTypeWithLabel() {
     TypeFactory tf = TypeFactory.getInstance();
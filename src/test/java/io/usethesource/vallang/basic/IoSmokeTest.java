@@ -17,6 +17,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 
 import io.usethesource.vallang.Setup;
 import io.usethesource.vallang.exceptions.FactTypeUseException;
@@ -192,4 +194,20 @@ public final class IoSmokeTest {
     }
   }
 
+  @Test
+  public void testStandardWriterToChannel() throws IOException {
+    StringBuilder large = new StringBuilder();
+    for (int i = 0; i < 20_000; i++) {
+      large.append("line \"").append(i).append("\"\t\u00e9\u4e2d\ud83d\ude00\n");
+    }
+    IValue value = vf.list(vf.string(large.toString()), vf.string("<a b='c'>\\\u00a0"), testValues[testValues.length - 1],
+        vf.tuple(vf.integer(42), vf.real(1.5)));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new StandardTextWriter().write(value, Channels.newChannel(bytes));
+
+    String written = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    assertEquals(StandardTextWriter.valueToString(value), written);
+    assertEquals(value, new StandardTextReader().read(vf, ts, value.getType(), new StringReader(written)));
+  }
 }
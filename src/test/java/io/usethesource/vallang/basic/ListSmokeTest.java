@@ -12,13 +12,19 @@
 
 package io.usethesource.vallang.basic;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import io.usethesource.vallang.IList;
 import io.usethesource.vallang.exceptions.FactTypeUseException;
+import io.usethesource.vallang.impl.persistent.ValueCollectors;
 import io.usethesource.vallang.type.TypeFactory;
 import org.junit.Before;
 import org.junit.Test;
@@ -29,6 +35,9 @@ import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.IValueFactory;
 import io.usethesource.vallang.Setup;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 @RunWith(Parameterized.class)
@@ -356,6 +365,89 @@ public final class ListSmokeTest {
       fail("12312 subtract 123213213 should be empty");
   }
 
+  @Test
+  public void testLargeListOperationsAgainstModel() {
+    final Random random = new Random(42);
+    final List<IValue> model = new ArrayList<>();
+    IList list = vf.list();
+
+    for (int i = 0; i < 5000; i++) {
+      final IValue value = vf.integer(i);
+      final int index = model.isEmpty() ? 0 : random.nextInt(model.size());
+
+      switch (random.nextInt(6)) {
+        case 0:
+          model.add(0, value);
+          list = list.insert(value);
+          break;
+        case 1:
+          if (!model.isEmpty()) {
+            model.set(index, value);
+            list = list.put(index, value);
+          }
+          break;
+        case 2:
+          if (!model.isEmpty()) {
+            model.remove(index);
+            list = list.delete(index);
+          }
+          break;
+        case 3:
+          final int length = Math.min(model.size() - index, 100);
+          final List<IValue> slice = new ArrayList<>(model.subList(index, index + length));
+          model.addAll(slice);
+          list = list.concat(list.sublist(index, length));
+          break;
+        default:
+          model.add(value);
+          list = list.append(value);
+      }
+    }
+
+    assertEquals(model.size(), list.length());
+    for (int i = 0; i < model.size(); i++) {
+      assertEquals(model.get(i), list.get(i));
+    }
+
+    final IListWriter writer = vf.listWriter();
+    model.forEach(writer::append);
+    assertEquals(writer.done(), list);
+  }
+
+  @Test
+  public void testParallelStreamKeepsOrder() {
+    final IListWriter writer = vf.listWriter();
+    final List<IValue> model = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      writer.append(vf.integer(i));
+      model.add(vf.integer(i));
+    }
+    // uneven halves, to also split lists that were concatenated
+    final IList list = writer.done().sublist(0, 3_333).concat(writer.done().sublist(3_333, 6_667));
+
+    final Spliterator<IValue> spliterator = list.spliterator();
+    assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.ORDERED));
+    assertEquals(list.length(), spliterator.estimateSize());
+    assertNotNull(spliterator.trySplit());
+
+    assertEquals(model, list.parallelStream().collect(Collectors.toList()));
+    assertEquals(model.size(), writer.done().parallelStream().count());
+    assertEquals(model.subList(5, 10), list.sublist(5, 5).stream().collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testCollectToListInParallel() {
+    final IList list = IntStream.range(0, 10_000).parallel().mapToObj(i -> vf.integer(i))
+        .collect(ValueCollectors.toList());
+
+    assertEquals(10_000, list.length());
+    assertEquals(tf.integerType(), list.getElementType());
+    for (int i = 0; i < list.length(); i++) {
+      assertEquals(vf.integer(i), list.get(i));
+    }
+    assertEquals(0, IntStream.range(0, 0).mapToObj(i -> vf.integer(i)).collect(ValueCollectors.toList()).length());
+  }
+
   private boolean checkListEquality(IList lst1, IList lst2) {
     return lst1.isSubListOf(lst2) && lst2.isSubListOf(lst2);
 
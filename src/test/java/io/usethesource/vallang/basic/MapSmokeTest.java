@@ -19,6 +19,8 @@ import static org.junit.Assert.assertTrue;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import io.usethesource.vallang.IConstructor;
 import io.usethesource.vallang.IMap;
@@ -27,6 +29,7 @@ import io.usethesource.vallang.IString;
 import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.IValueFactory;
 import io.usethesource.vallang.Setup;
+import io.usethesource.vallang.impl.persistent.ValueCollectors;
 import io.usethesource.vallang.impl.reference.ValueFactory;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.type.TypeFactory;
@@ -512,4 +515,32 @@ public final class MapSmokeTest {
     assertEquals(na, m1.get(vf.integer(1)));
   }
 
+
+  @Test
+  public void testParallelStreamOverKeys() {
+    final IMapWriter writer = vf.mapWriter();
+    for (int i = 0; i < 10_000; i++) {
+      writer.put(vf.integer(i), vf.string("" + i));
+    }
+    final IMap map = writer.done();
+
+    assertEquals(map.size(), map.spliterator().estimateSize());
+    assertEquals(map.size(), map.parallelStream().count());
+    assertEquals(map.size(), map.parallelStream().collect(Collectors.toSet()).size());
+    assertTrue(map.parallelStream().allMatch(map::containsKey));
+  }
+
+  @Test
+  public void testCollectToMapInParallel() {
+    // every key occurs twice, the later value wins
+    final IMap map = IntStream.range(0, 20_000).parallel().boxed()
+        .collect(ValueCollectors.toMap(i -> vf.integer(i % 10_000), i -> i < 10_000 ? vf.integer(i) : vf.string("" + i)));
+
+    assertEquals(10_000, map.size());
+    assertEquals(tf.integerType(), map.getKeyType());
+    assertEquals(tf.stringType(), map.getValueType());
+    for (int i = 0; i < 10_000; i++) {
+      assertEquals(vf.string("" + (i + 10_000)), map.get(vf.integer(i)));
+    }
+  }
 }
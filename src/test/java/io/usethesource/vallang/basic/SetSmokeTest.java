@@ -13,6 +13,7 @@
 package io.usethesource.vallang.basic;
 
 import java.util.Iterator;
+import java.util.Spliterator;
 
 import io.usethesource.vallang.ISet;
 import io.usethesource.vallang.IValue;
@@ -25,8 +26,11 @@ import org.junit.runners.Parameterized;
 import io.usethesource.vallang.ISetWriter;
 import io.usethesource.vallang.IValueFactory;
 import io.usethesource.vallang.exceptions.FactTypeUseException;
+import io.usethesource.vallang.impl.persistent.ValueCollectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 @RunWith(Parameterized.class)
@@ -369,4 +373,77 @@ public final class SetSmokeTest {
     assertEquals(tf.realType(), set2.getElementType());
   }
 
+  @Test
+  public void testWriterElementTypeWithRepeatedTypes() {
+    ISetWriter w = vf.setWriter();
+
+    for (IValue v : integers) {
+      w.insert(v);
+    }
+    assertEquals(tf.integerType(), w.done().getElementType());
+
+    w = vf.setWriter();
+    for (IValue v : integers) {
+      w.insert(v);
+    }
+    for (IValue v : doubles) {
+      w.insert(v);
+    }
+    assertEquals(tf.numberType(), w.done().getElementType());
+
+    w = vf.setWriter();
+    for (int i = 0; i < integers.length; i++) {
+      w.insert(integers[i], doubles[i], vf.string("" + i));
+    }
+    assertEquals(tf.valueType(), w.done().getElementType());
+
+    w = vf.setWriter();
+    w.insertAll(integerUniverse);
+    w.insertAll(vf.set(vf.string("a")));
+    assertEquals(tf.valueType(), w.done().getElementType());
+  }
+
+  @Test
+  public void testParallelStream() {
+    ISetWriter w = vf.setWriter();
+    for (int i = 0; i < 10_000; i++) {
+      w.insert(vf.integer(i), vf.real(i));
+    }
+    ISet set = w.done();
+
+    Spliterator<IValue> spliterator = set.spliterator();
+    assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.DISTINCT));
+    assertEquals(set.size(), spliterator.estimateSize());
+    assertNotNull(spliterator.trySplit());
+
+    assertEquals(set.size(), set.parallelStream().count());
+    assertEquals(set.stream().mapToInt(v -> v.hashCode()).sum(), set.parallelStream().mapToInt(v -> v.hashCode()).sum());
+
+    ISet collected = set.parallelStream().collect(ValueCollectors.toSet());
+    assertTrue(collected.isEqual(set));
+    assertEquals(tf.numberType(), collected.getElementType());
+  }
+
+  @Test
+  public void testBulkOperationsElementType() {
+    ISet numbers = vf.set();
+    for (int i = 0; i < integers.length; i++) {
+      numbers = numbers.insert(integers[i]).insert(doubles[i]);
+    }
+    ISet moreIntegers = integerUniverse.insert(vf.integer(-1));
+
+    assertEquals(tf.numberType(), numbers.union(moreIntegers).getElementType());
+    assertEquals(tf.integerType(), numbers.intersect(moreIntegers).getElementType());
+    assertEquals(tf.integerType(), moreIntegers.intersect(numbers).getElementType());
+    assertEquals(tf.realType(), numbers.subtract(integerUniverse).getElementType());
+    assertEquals(tf.voidType(), numbers.subtract(numbers).getElementType());
+    assertEquals(integers.length + 1, numbers.union(moreIntegers).size() - doubles.length);
+
+    ISet pairs = vf.set(vf.tuple(integers[0], doubles[0]), vf.tuple(integers[1], vf.string("a")));
+    ISet morePairs = vf.set(vf.tuple(integers[1], vf.string("a")), vf.tuple(integers[2], doubles[2]));
+
+    assertEquals(tf.relType(tf.integerType(), tf.valueType()), pairs.union(morePairs).getType());
+    assertEquals(tf.relType(tf.integerType(), tf.stringType()), pairs.intersect(morePairs).getType());
+    assertEquals(tf.relType(tf.integerType(), tf.realType()), pairs.subtract(morePairs).getType());
+  }
 }
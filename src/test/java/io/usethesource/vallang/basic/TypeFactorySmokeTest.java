@@ -14,6 +14,12 @@ package io.usethesource.vallang.basic;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import io.usethesource.vallang.IValueFactory;
 import io.usethesource.vallang.Setup;
@@ -27,6 +33,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import io.usethesource.vallang.IValue;
 
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 @RunWith(Parameterized.class)
@@ -445,4 +453,41 @@ public final class TypeFactorySmokeTest {
       fail("named types should be canonical");
     }
   }
+
+  @Test
+  public void testConcurrentCanonicalization() throws InterruptedException, ExecutionException {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    long hits = ft.getCacheHits();
+
+    try {
+      List<Future<Type[]>> results = new ArrayList<>();
+
+      for (int t = 0; t < 4; t++) {
+        results.add(pool.submit(() -> {
+          Type[] result = new Type[500];
+          for (int i = 0; i < result.length; i++) {
+            result[i] = ft.tupleType(ft.listType(ft.integerType()), ft.setType(ft.tupleType(types[i % types.length], ft.realType())), 
+                ft.mapType(ft.stringType(), ft.listType(ft.tupleType(ft.integerType(), ft.integerType(), ft.integerType()))));
+            result[i] = ft.listType(ft.tupleType(result[i], ft.integerType()));
+          }
+          return result;
+        }));
+      }
+
+      Type[] first = results.get(0).get();
+      for (Future<Type[]> result : results) {
+        Type[] other = result.get();
+        for (int i = 0; i < first.length; i++) {
+          assertSame(first[i], other[i]);
+        }
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+
+    assertTrue(ft.getCacheHits() > hits);
+    assertTrue(ft.getCacheSize() > 0);
+    assertTrue(ft.getCacheMisses() > 0);
+  }
 }
@@ -22,6 +22,7 @@ import io.usethesource.vallang.type.TypeStore;
 import org.junit.Test;
 import io.usethesource.vallang.exceptions.FactTypeDeclarationException;
 import io.usethesource.vallang.exceptions.FactTypeUseException;
+import io.usethesource.vallang.exceptions.FrozenTypeStoreException;
 import io.usethesource.vallang.random.RandomTypeGenerator;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.type.TypeFactory;
@@ -452,6 +453,115 @@ public final class TypeSmokeTest {
 
   }
 
+  @Test
+  public void testLookupFirstConstructor() {
+    TypeStore imported = new TypeStore();
+    Type exp = ft.abstractDataType(imported, "Exp");
+    Type intCons = ft.constructor(imported, exp, "lit", ft.integerType(), "val");
+    Type strCons = ft.constructor(imported, exp, "lit", ft.stringType(), "str");
+    Type binCons = ft.constructor(imported, exp, "lit", ft.integerType(), "l", ft.integerType(), "r");
+
+    TypeStore store = new TypeStore(imported);
+    Type stat = ft.abstractDataType(store, "Stat");
+    Type ret = ft.constructor(store, stat, "ret", exp, "e");
+
+    assertEquals(intCons, store.lookupFirstConstructor("lit", ft.tupleType(ft.integerType())));
+    assertEquals(strCons, store.lookupFirstConstructor("lit", ft.tupleType(ft.stringType())));
+    assertEquals(binCons, store.lookupFirstConstructor("lit", ft.tupleType(ft.integerType(), ft.integerType())));
+    assertEquals(ret, store.lookupFirstConstructor("ret", ft.tupleType(intCons)));
+    assertEquals(null, store.lookupFirstConstructor("lit", ft.tupleType(ft.realType())));
+    assertEquals(null, store.lookupFirstConstructor("ret", ft.tupleType(new Type[0])));
+    assertEquals(3, store.lookupConstructors("lit").size());
+
+    // the index follows declarations and imports made later on
+    Type neg = ft.constructor(imported, exp, "neg", exp, "e");
+    assertEquals(neg, store.lookupFirstConstructor("neg", ft.tupleType(intCons)));
+    store.unimportStores(imported);
+    assertEquals(null, store.lookupFirstConstructor("lit", ft.tupleType(ft.integerType())));
+    assertEquals(ret, store.lookupFirstConstructor("ret", ft.tupleType(intCons)));
+  }
+
+  @Test
+  public void testFrozenTypeStore() throws InterruptedException {
+    TypeStore store = new TypeStore();
+    Type exp = ft.abstractDataType(store, "Exp");
+    Type lit = ft.constructor(store, exp, "lit", ft.integerType(), "val");
+    ft.aliasType(store, "Num", ft.integerType());
+    store.declareKeywordParameter(lit, "origin", ft.stringType());
+    store.freeze();
+    assertTrue(store.isFrozen());
+
+    // re-declaring what is already there is fine
+    assertEquals(exp, ft.abstractDataType(store, "Exp"));
+    assertEquals(lit, ft.constructor(store, exp, "lit", ft.integerType(), "val"));
+    store.declareKeywordParameter(lit, "origin", ft.stringType());
+
+    try {
+      ft.constructor(store, exp, "neg", exp, "e");
+      fail("frozen store should not accept new constructors");
+    }
+    catch (FrozenTypeStoreException e) {
+      // expected
+    }
+    try {
+      store.declareKeywordParameter(lit, "line", ft.integerType());
+      fail("frozen store should not accept new keyword parameters");
+    }
+    catch (FrozenTypeStoreException e) {
+      // expected
+    }
+
+    Thread[] readers = new Thread[4];
+    boolean[] ok = new boolean[readers.length];
+    for (int t = 0; t < readers.length; t++) {
+      final int id = t;
+      readers[t] = new Thread(() -> {
+        boolean result = true;
+        for (int i = 0; i < 10_000; i++) {
+          result &= store.lookupAbstractDataType("Exp") == exp;
+          result &= store.lookupAlias("Num") != null;
+          result &= store.lookupConstructor(exp, "lit").contains(lit);
+          result &= store.hasKeywordParameter(lit, "origin");
+        }
+        ok[id] = result;
+      });
+      readers[t].start();
+    }
+    for (int t = 0; t < readers.length; t++) {
+      readers[t].join();
+      assertTrue(ok[t]);
+    }
+
+    TypeStore copy = new TypeStore();
+    copy.extendStore(store);
+    assertFalse(copy.isFrozen());
+    assertEquals(lit, copy.lookupFirstConstructor("lit", ft.tupleType(ft.integerType())));
+  }
+
+  @Test
+  public void testMemoizedLattice() {
+    List<Type> types = allTypes.subList(0, Math.min(allTypes.size(), 300));
+    Map<Type, Map<Type, Object[]>> first = new HashMap<>();
+    for (Type t : types) {
+      Map<Type, Object[]> row = new HashMap<>();
+      for (Type u : types) {
+        row.put(u, new Object[] { t.isSubtypeOf(u), t.lub(u), t.glb(u) });
+      }
+      first.put(t, row);
+    }
+
+    long hits = ft.getLatticeCacheHits();
+    for (Type t : types) {
+      for (Type u : types) {
+        Object[] expected = first.get(t).get(u);
+        assertEquals(expected[0], t.isSubtypeOf(u));
+        assertEquals(expected[1], t.lub(u));
+        assertEquals(expected[2], t.glb(u));
+      }
+    }
+    assertTrue(ft.getLatticeCacheHits() > hits);
+  }
+
   @Test
   public void testAlias() {
     Type alias = ft.aliasType(new TypeStore(), "myValue", ft.valueType());
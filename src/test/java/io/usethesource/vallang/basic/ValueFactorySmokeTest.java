@@ -15,8 +15,11 @@ package io.usethesource.vallang.basic;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.math.BigInteger;
 import java.net.MalformedURLException;
+import java.util.Collections;
 
+import io.usethesource.vallang.IInteger;
 import io.usethesource.vallang.IList;
 import io.usethesource.vallang.IReal;
 import io.usethesource.vallang.ISet;
@@ -33,10 +36,12 @@ import io.usethesource.vallang.ITuple;
 import io.usethesource.vallang.IValue;
 import io.usethesource.vallang.Setup;
 import io.usethesource.vallang.exceptions.FactTypeUseException;
+import io.usethesource.vallang.impl.util.sharing.MaximalSharingValueFactory;
 import io.usethesource.vallang.io.StandardTextWriter;
 import io.usethesource.vallang.type.Type;
 import io.usethesource.vallang.type.TypeFactory;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -299,6 +304,56 @@ public final class ValueFactorySmokeTest {
     assertTrue(vf.integer(42).toString().equals("42"));
   }
 
+  @Test
+  public void testIntegerArithmeticAroundLongRange() {
+    long[] samples = {0, 1, -1, 7, -100, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE + 1L,
+        Integer.MIN_VALUE - 1L, 1L << 40, -(1L << 40) + 3, 3037000500L, Long.MAX_VALUE, Long.MIN_VALUE,
+        Long.MAX_VALUE - 1, Long.MIN_VALUE + 1};
+    BigInteger[] bigSamples = new BigInteger[samples.length + 2];
+    for (int i = 0; i < samples.length; i++) {
+      bigSamples[i] = BigInteger.valueOf(samples[i]);
+    }
+    bigSamples[samples.length] = BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE);
+    bigSamples[samples.length + 1] = BigInteger.valueOf(Long.MIN_VALUE).multiply(BigInteger.valueOf(3));
+
+    for (BigInteger a : bigSamples) {
+      IInteger x = integer(a);
+      assertEquals(a.toString(), x.getStringRepresentation());
+      assertEquals(a, new BigInteger(x.getTwosComplementRepresentation()));
+      assertEquals(x, vf.integer(x.getTwosComplementRepresentation()));
+      assertEquals(a.longValue(), x.longValue());
+      assertEquals(integer(a.negate()), x.negate());
+      assertEquals(integer(a.abs()), x.abs());
+      assertEquals(a.signum(), x.signum());
+
+      for (BigInteger b : bigSamples) {
+        IInteger y = integer(b);
+        assertEquals(integer(a.add(b)), x.add(y));
+        assertEquals(integer(a.subtract(b)), x.subtract(y));
+        assertEquals(integer(a.multiply(b)), x.multiply(y));
+        assertEquals(a.compareTo(b), x.compare(y));
+        assertEquals(a.equals(b), x.equals(y));
+
+        if (b.signum() != 0) {
+          assertEquals(integer(a.divide(b)), x.divide(y));
+          assertEquals(integer(a.remainder(b)), x.remainder(y));
+        }
+        if (b.signum() > 0) {
+          assertEquals(integer(a.mod(b)), x.mod(y));
+        }
+      }
+    }
+  }
+
+  private IInteger integer(BigInteger value) {
+    IInteger result = vf.integer(value.toString());
+    if (value.bitLength() < 64) {
+      assertEquals(result, vf.integer(value.longValue()));
+      assertEquals(result.hashCode(), vf.integer(value.longValue()).hashCode());
+    }
+    return result;
+  }
+
   @Test
   public void testDubble() {
     assertTrue(vf.real(84.5).toString().equals("84.5"));
@@ -413,4 +468,41 @@ public final class ValueFactorySmokeTest {
     }
     return extended;
   }
+
+  @Test
+  public void testMaximalSharing() {
+    MaximalSharingValueFactory shared = new MaximalSharingValueFactory(vf);
+    TypeStore store = new TypeStore();
+    Type exp = ft.abstractDataType(store, "Exp");
+    Type add = ft.constructor(store, exp, "add", exp, exp);
+    Type var = ft.constructor(store, exp, "var", ft.stringType());
+
+    IValue x1 = shared.constructor(var, shared.string("x"));
+    IValue x2 = shared.constructor(var, shared.string("x"));
+    IValue y = shared.constructor(var, shared.string("y"));
+    assertTrue(x1 == x2);
+    assertTrue(x1 != y);
+    assertTrue(shared.constructor(add, x1, y) == shared.constructor(add, x2, y));
+    assertTrue(shared.constructor(add, x1, y) != shared.constructor(add, y, x1));
+
+    assertTrue(shared.tuple(x1, integers[0]) == shared.tuple(x2, integers[0]));
+    assertTrue(shared.node("f", x1) == shared.node("f", x2));
+
+    // keyword parameters take part in the equality
+    IValue kw1 = shared.node("f", new IValue[] { x1 }, Collections.singletonMap("k", integers[1]));
+    IValue kw2 = shared.node("f", new IValue[] { x2 }, Collections.singletonMap("k", integers[1]));
+    IValue kw3 = shared.node("f", new IValue[] { x2 }, Collections.singletonMap("k", integers[2]));
+    assertTrue(kw1 == kw2);
+    assertTrue(kw1 != kw3);
+    assertTrue(kw1 != shared.node("f", x1));
+
+    // values built by other means can be shared afterwards
+    IValue concat = shared.string("a").concat(shared.string("b"));
+    assertTrue(shared.share(concat) == shared.string("ab"));
+
+    assertTrue(shared.getHits() > 0);
+    assertTrue(shared.getMisses() > 0);
+    shared.cleanup();
+    assertTrue(shared.size() <= shared.getMisses());
+  }
 }
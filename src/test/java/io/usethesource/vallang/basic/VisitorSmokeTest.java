@@ -0,0 +1,296 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.basic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import io.usethesource.vallang.IConstructor;
+import io.usethesource.vallang.IInteger;
+import io.usethesource.vallang.IListWriter;
+import io.usethesource.vallang.IMapWriter;
+import io.usethesource.vallang.INode;
+import io.usethesource.vallang.IString;
+import io.usethesource.vallang.ITuple;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+import io.usethesource.vallang.Setup;
+import io.usethesource.vallang.type.Type;
+import io.usethesource.vallang.type.TypeFactory;
+import io.usethesource.vallang.type.TypeStore;
+import io.usethesource.vallang.visitors.BottomUpTransformer;
+import io.usethesource.vallang.visitors.BottomUpVisitor;
+import io.usethesource.vallang.visitors.IdentityVisitor;
+import io.usethesource.vallang.visitors.NullVisitor;
+import io.usethesource.vallang.visitors.ParallelBottomUpTransformer;
+import io.usethesource.vallang.visitors.StacklessVisitor;
+
+@RunWith(Parameterized.class)
+public class VisitorSmokeTest {
+
+  @Parameterized.Parameters
+  public static Iterable<? extends Object> data() {
+    return Setup.valueFactories();
+  }
+
+  private final IValueFactory vf;
+  private final TypeFactory tf = TypeFactory.getInstance();
+  private final TypeStore ts = new TypeStore();
+  private final Type list = tf.abstractDataType(ts, "List");
+  private final Type cons = tf.constructor(ts, list, "cons", tf.integerType(), list);
+  private final Type nil = tf.constructor(ts, list, "nil");
+
+  public VisitorSmokeTest(IValueFactory vf) {
+    this.vf = vf;
+  }
+
+  /** increments all integers */
+  private final IdentityVisitor<RuntimeException> increment = new IdentityVisitor<RuntimeException>() {
+    @Override
+    public IValue visitInteger(IInteger o) {
+      return o.add(vf.integer(1));
+    }
+  };
+
+  private IValue consList(int length) {
+    IValue result = vf.constructor(nil);
+    for (int i = length - 1; i >= 0; i--) {
+      result = vf.constructor(cons, vf.integer(i), result);
+    }
+    return result;
+  }
+
+  @Test
+  public void testTransformDeepValue() {
+    IValue transformed = consList(100_000).accept(new BottomUpTransformer<>(increment, vf));
+
+    for (int i = 0; i < 100_000; i++) {
+      IConstructor c = (IConstructor) transformed;
+      assertEquals(vf.integer(i + 1), c.get(0));
+      transformed = c.get(1);
+    }
+    assertEquals(vf.constructor(nil), transformed);
+  }
+
+  @Test
+  public void testUnchangedSubtreesAreShared() {
+    IValue value = vf.tuple(vf.node("f", vf.string("a"), vf.list(vf.string("b"))), vf.set(vf.string("c")),
+        vf.mapWriter().done(), vf.integer(0));
+
+    assertSame(value, StacklessVisitor.transform(value, new IdentityVisitor<RuntimeException>() {}, vf));
+
+    IValue transformed = StacklessVisitor.transform(value, increment, vf);
+    assertEquals(vf.integer(1), ((ITuple) transformed).get(3));
+    for (int i = 0; i < 3; i++) {
+      assertSame(((ITuple) value).get(i), ((ITuple) transformed).get(i));
+    }
+  }
+
+  @Test
+  public void testTransformCollections() {
+    IMapWriter map = vf.mapWriter();
+    map.put(vf.integer(4), vf.integer(5));
+    IMapWriter expectedMap = vf.mapWriter();
+    expectedMap.put(vf.integer(5), vf.integer(6));
+
+    IValue value = vf.list(vf.set(vf.integer(1), vf.integer(2)), map.done(), vf.tuple(vf.integer(3), vf.string("x")));
+    IValue expected = vf.list(vf.set(vf.integer(2), vf.integer(3)), expectedMap.done(), vf.tuple(vf.integer(4), vf.string("x")));
+
+    assertTrue(expected.isEqual(StacklessVisitor.transform(value, increment, vf)));
+  }
+
+  @Test
+  public void testTransformKeepsKeywordParameters() {
+    Map<String, IValue> kwParams = new HashMap<>();
+    kwParams.put("origin", vf.integer(10));
+    INode value = vf.node("f", new IValue[] { vf.integer(1), vf.string("a"), vf.integer(2) }, kwParams);
+
+    INode transformed = (INode) StacklessVisitor.transform(value, increment, vf);
+
+    assertEquals("f", transformed.getName());
+    assertEquals(vf.integer(2), transformed.get(0));
+    assertSame(value.get(1), transformed.get(1));
+    assertEquals(vf.integer(3), transformed.get(2));
+    assertEquals(vf.integer(10), transformed.asWithKeywordParameters().getParameter("origin"));
+  }
+
+  @Test
+  public void testSubclassOverridesApplyToChildren() {
+    IValue value = vf.list(vf.string("a"), vf.tuple(vf.integer(1), vf.string("b")), vf.list(vf.string("c")));
+
+    IValue transformed = value.accept(new BottomUpTransformer<RuntimeException>(increment, vf) {
+      @Override
+      public IValue visitString(IString o) {
+        return vf.string(o.getValue().toUpperCase());
+      }
+
+      @Override
+      public IValue visitTuple(ITuple o) {
+        return vf.string("tuple");
+      }
+    });
+
+    assertEquals(vf.list(vf.string("A"), vf.string("tuple"), vf.list(vf.string("C"))), transformed);
+
+    List<String> visited = new ArrayList<>();
+    value.accept(new BottomUpVisitor<Void, RuntimeException>(new Recorder(visited), vf) {
+      @Override
+      public Void visitString(IString o) {
+        visited.add("string " + o.getValue());
+        return null;
+      }
+    });
+
+    assertEquals("[string a, 1, string b, string c]", visited.toString());
+  }
+
+  @Test
+  public void testVisitOrder() {
+    INode value = vf.node("f", vf.node("g", vf.string("a")), vf.string("b"));
+    List<String> topDown = new ArrayList<>();
+    List<String> bottomUp = new ArrayList<>();
+
+    StacklessVisitor.topDown(value, new Recorder(topDown));
+    StacklessVisitor.bottomUp(value, new Recorder(bottomUp));
+
+    assertEquals("[f, g, a, b]", topDown.toString());
+    assertEquals("[a, g, b, f]", bottomUp.toString());
+  }
+
+  @Test
+  public void testVisitDeepValue() {
+    List<String> visited = new ArrayList<>();
+    StacklessVisitor.bottomUp(consList(100_000), new Recorder(visited));
+
+    assertEquals(100_000 * 2 + 1, visited.size());
+    assertEquals("0", visited.get(0));
+    assertEquals("nil", visited.get(100_000));
+    assertEquals("cons", visited.get(visited.size() - 1));
+  }
+
+  private IValue wideValue() {
+    IListWriter w = vf.listWriter();
+    for (int i = 0; i < 2_000; i++) {
+      w.append(vf.tuple(consList(i % 50), vf.string("" + i)));
+    }
+    IValue[] args = new IValue[1_000];
+    for (int i = 0; i < args.length; i++) {
+      args[i] = vf.integer(i);
+    }
+    w.append(vf.node("wide", args));
+    return w.done();
+  }
+
+  @Test
+  public void testParallelTransform() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      IValue value = wideValue();
+
+      IValue transformed = value.accept(new ParallelBottomUpTransformer<>(increment, vf, pool, 16));
+      assertTrue(StacklessVisitor.transform(value, increment, vf).isEqual(transformed));
+
+      IdentityVisitor<RuntimeException> identity = new IdentityVisitor<RuntimeException>() {};
+      assertSame(value, value.accept(new ParallelBottomUpTransformer<>(identity, vf, pool, 16)));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testParallelTransformBelowNarrowRoot() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      IValue value = vf.node("program", vf.tuple(vf.string("main"), wideValue()));
+      Set<Thread> threads = ConcurrentHashMap.newKeySet();
+      IdentityVisitor<RuntimeException> recordingIncrement = new IdentityVisitor<RuntimeException>() {
+        @Override
+        public IValue visitInteger(IInteger o) {
+          threads.add(Thread.currentThread());
+          return o.add(vf.integer(1));
+        }
+      };
+
+      IValue transformed = value.accept(new ParallelBottomUpTransformer<>(recordingIncrement, vf, pool, 16));
+      assertTrue(StacklessVisitor.transform(value, increment, vf).isEqual(transformed));
+      // the wide list below the narrow root was split into fork/join tasks
+      assertTrue(threads.stream().allMatch(t -> t instanceof ForkJoinWorkerThread));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testParallelTransformPropagatesCheckedExceptions() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      wideValue().accept(new ParallelBottomUpTransformer<>(new IdentityVisitor<IOException>() {
+        @Override
+        public IValue visitInteger(IInteger o) throws IOException {
+          if (o.intValue() == 777) {
+            throw new IOException("777");
+          }
+          return o;
+        }
+      }, vf, pool, 16));
+      fail("expected an IOException");
+    } catch (IOException e) {
+      assertEquals("777", e.getMessage());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static class Recorder extends NullVisitor<Void, RuntimeException> {
+    private final List<String> visited;
+
+    Recorder(List<String> visited) {
+      this.visited = visited;
+    }
+
+    @Override
+    public Void visitString(IString o) {
+      visited.add(o.getValue());
+      return null;
+    }
+
+    @Override
+    public Void visitInteger(IInteger o) {
+      visited.add(o.toString());
+      return null;
+    }
+
+    @Override
+    public Void visitNode(INode o) {
+      visited.add(o.getName());
+      return null;
+    }
+
+    @Override
+    public Void visitConstructor(IConstructor o) {
+      visited.add(o.getName());
+      return null;
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.benchmark;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+import io.usethesource.vallang.random.RandomValueGenerator;
+import io.usethesource.vallang.type.TypeFactory;
+import io.usethesource.vallang.type.TypeStore;
+import io.usethesource.vallang.util.MixDistribution;
+
+/**
+ * Reproducible sources of benchmark elements. The integer distributions come from
+ * {@link MixDistribution} and stress the low bits, the high bits or all bits of the element hash
+ * codes, while {@link #VALUES} draws arbitrarily nested values from a {@link RandomValueGenerator}.
+ */
+public enum DataDistribution {
+  SEQUENTIAL {
+    @Override
+    public int[] numbers(Random random, int size) {
+      return MixDistribution.sequentialNumbers(size);
+    }
+  },
+  SHIFTED {
+    @Override
+    public int[] numbers(Random random, int size) {
+      return MixDistribution.shiftedNumbers(size);
+    }
+  },
+  RANDOM {
+    @Override
+    public int[] numbers(Random random, int size) {
+      return MixDistribution.randomNumbers(random, size);
+    }
+  },
+  VALUES {
+    @Override
+    public int[] numbers(Random random, int size) {
+      return MixDistribution.randomNumbers(random, size);
+    }
+
+    @Override
+    public IValue[] values(IValueFactory vf, long seed, int size) {
+      final Random random = new Random(seed);
+      final RandomValueGenerator generator = new RandomValueGenerator(vf, random, 3, 6);
+      final TypeStore store = new TypeStore();
+      final IValue[] values = new IValue[size];
+
+      for (int i = 0; i < size; i++) {
+        values[i] = generator.generate(TypeFactory.getInstance().valueType(), store, new HashMap<>());
+      }
+
+      return values;
+    }
+  };
+
+  public abstract int[] numbers(Random random, int size);
+
+  /**
+   * @return size elements, which are not necessarily distinct
+   */
+  public IValue[] values(IValueFactory vf, long seed, int size) {
+    final int[] numbers = numbers(new Random(seed), size);
+    final IValue[] values = new IValue[size];
+
+    for (int i = 0; i < size; i++) {
+      values[i] = vf.integer(numbers[i]);
+    }
+
+    return values;
+  }
+}
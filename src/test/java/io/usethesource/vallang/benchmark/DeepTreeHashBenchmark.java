@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.usethesource.vallang.ISet;
+import io.usethesource.vallang.ISetWriter;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+import io.usethesource.vallang.type.Type;
+import io.usethesource.vallang.type.TypeFactory;
+import io.usethesource.vallang.type.TypeStore;
+
+/**
+ * Measures the cost of using deep trees (nodes and constructors) as elements of hash-based sets,
+ * which is dominated by {@link Object#hashCode()} when hash codes are not cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DeepTreeHashBenchmark {
+
+  @Param({"FAST", "PERSISTENT"})
+  public ValueFactoryKind factory;
+
+  @Param({"NODE", "CONSTRUCTOR"})
+  public String kind;
+
+  @Param({"10", "100", "1000"})
+  public int depth;
+
+  @Param({"1000"})
+  public int size;
+
+  private IValueFactory vf;
+  private IValue[] trees;
+  private ISet set;
+
+  @Setup
+  public void setUp() {
+    vf = factory.getInstance();
+
+    final TypeFactory tf = TypeFactory.getInstance();
+    final TypeStore store = new TypeStore();
+    final Type adt = tf.abstractDataType(store, "Tree");
+    final Type branch = tf.constructor(store, adt, "branch", tf.integerType(), adt);
+    final Type leaf = tf.constructor(store, adt, "leaf");
+
+    trees = new IValue[size];
+    for (int i = 0; i < size; i++) {
+      IValue tree = "NODE".equals(kind) ? vf.node("leaf") : vf.constructor(leaf);
+
+      for (int j = 0; j < depth; j++) {
+        tree = "NODE".equals(kind)
+            ? vf.node("branch", vf.integer(i + j), tree)
+            : vf.constructor(branch, vf.integer(i + j), tree);
+      }
+
+      trees[i] = tree;
+    }
+
+    set = insertAll();
+  }
+
+  private ISet insertAll() {
+    final ISetWriter writer = vf.setWriter();
+
+    for (IValue tree : trees) {
+      writer.insert(tree);
+    }
+
+    return writer.done();
+  }
+
+  @Benchmark
+  public void insert(Blackhole bh) {
+    bh.consume(insertAll());
+  }
+
+  @Benchmark
+  public void lookup(Blackhole bh) {
+    for (IValue tree : trees) {
+      bh.consume(set.contains(tree));
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(DeepTreeHashBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
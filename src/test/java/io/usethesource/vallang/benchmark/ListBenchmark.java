@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.usethesource.vallang.IList;
+import io.usethesource.vallang.IListWriter;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ListBenchmark {
+
+  @Param({"REFERENCE", "FAST", "PERSISTENT"})
+  public ValueFactoryKind factory;
+
+  @Param({"SEQUENTIAL", "RANDOM", "VALUES"})
+  public DataDistribution distribution;
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private IValueFactory vf;
+  private IValue[] elements;
+  private int[] indices;
+  private IList list;
+  private IList equalList;
+
+  @Setup
+  public void setUp() {
+    vf = factory.getInstance();
+    elements = distribution.values(vf, 42, size);
+
+    final Random random = new Random(43);
+    indices = new int[size];
+    for (int i = 0; i < size; i++) {
+      indices[i] = random.nextInt(size);
+    }
+
+    list = build();
+    equalList = build();
+  }
+
+  private IList build() {
+    final IListWriter writer = vf.listWriter();
+    writer.append(elements);
+    return writer.done();
+  }
+
+  @Benchmark
+  public void appendWithWriter(Blackhole bh) {
+    bh.consume(build());
+  }
+
+  @Benchmark
+  public void append(Blackhole bh) {
+    IList result = vf.list();
+
+    for (IValue element : elements) {
+      result = result.append(element);
+    }
+
+    bh.consume(result);
+  }
+
+  @Benchmark
+  public void lookup(Blackhole bh) {
+    for (int index : indices) {
+      bh.consume(list.get(index));
+    }
+  }
+
+  @Benchmark
+  public void iterate(Blackhole bh) {
+    for (IValue element : list) {
+      bh.consume(element);
+    }
+  }
+
+  @Benchmark
+  public void concat(Blackhole bh) {
+    bh.consume(list.concat(equalList));
+  }
+
+  @Benchmark
+  public void equals(Blackhole bh) {
+    bh.consume(list.equals(equalList));
+  }
+
+  @Benchmark
+  public void isEqual(Blackhole bh) {
+    bh.consume(list.isEqual(equalList));
+  }
+}
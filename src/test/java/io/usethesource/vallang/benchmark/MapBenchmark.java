@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.benchmark;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.usethesource.vallang.IMap;
+import io.usethesource.vallang.IMapWriter;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MapBenchmark {
+
+  @Param({"REFERENCE", "FAST", "PERSISTENT"})
+  public ValueFactoryKind factory;
+
+  @Param({"SEQUENTIAL", "SHIFTED", "RANDOM", "VALUES"})
+  public DataDistribution distribution;
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private IValueFactory vf;
+  private IValue[] keys;
+  private IValue[] values;
+  private IMap map;
+  private IMap equalMap;
+
+  @Setup
+  public void setUp() {
+    vf = factory.getInstance();
+    keys = distribution.values(vf, 42, size);
+    values = new IValue[size];
+
+    for (int i = 0; i < size; i++) {
+      values[i] = vf.integer(i);
+    }
+
+    map = build();
+    equalMap = build();
+  }
+
+  private IMap build() {
+    final IMapWriter writer = vf.mapWriter();
+
+    for (int i = 0; i < size; i++) {
+      writer.put(keys[i], values[i]);
+    }
+
+    return writer.done();
+  }
+
+  @Benchmark
+  public void insertWithWriter(Blackhole bh) {
+    bh.consume(build());
+  }
+
+  @Benchmark
+  public void insert(Blackhole bh) {
+    IMap result = vf.mapWriter().done();
+
+    for (int i = 0; i < size; i++) {
+      result = result.put(keys[i], values[i]);
+    }
+
+    bh.consume(result);
+  }
+
+  @Benchmark
+  public void lookup(Blackhole bh) {
+    for (IValue key : keys) {
+      bh.consume(map.get(key));
+    }
+  }
+
+  @Benchmark
+  public void iterate(Blackhole bh) {
+    for (Iterator<Entry<IValue, IValue>> it = map.entryIterator(); it.hasNext();) {
+      bh.consume(it.next());
+    }
+  }
+
+  @Benchmark
+  public void equals(Blackhole bh) {
+    bh.consume(map.equals(equalMap));
+  }
+
+  @Benchmark
+  public void isEqual(Blackhole bh) {
+    bh.consume(map.isEqual(equalMap));
+  }
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.benchmark;
+
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.usethesource.vallang.IConstructor;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+import io.usethesource.vallang.impl.util.sharing.MaximalSharingValueFactory;
+import io.usethesource.vallang.type.Type;
+import io.usethesource.vallang.type.TypeFactory;
+import io.usethesource.vallang.type.TypeStore;
+
+/**
+ * Measures building and comparing redundant expression trees with and without the
+ * {@link MaximalSharingValueFactory}. The number of tree nodes and the number of objects that are
+ * actually retained are reported as the secondary results of the <code>retention</code> benchmark
+ * (see {@link Retention}), which shows the memory effect of the sharing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MaximalSharingBenchmark {
+
+  @Param({"FAST", "PERSISTENT"})
+  public ValueFactoryKind factory;
+
+  @Param({"false", "true"})
+  public boolean sharing;
+
+  @Param({"8", "12"})
+  public int depth;
+
+  @Param({"100"})
+  public int size;
+
+  private IValueFactory vf;
+  private Type add;
+  private Type mul;
+  private Type var;
+  private Type lit;
+
+  private IValue[] left;
+  private IValue[] right;
+
+  private long treeNodes;
+  private long retainedObjects;
+
+  /**
+   * Reports the shape of the trees as the secondary results of {@link #retention(Retention)}. JMH
+   * sums event counters over all iterations and threads, so that benchmark runs a single iteration
+   * on a single thread.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Retention {
+    public long treeNodes;
+    public long retainedObjects;
+
+    @Setup(Level.Iteration)
+    public void setUp(MaximalSharingBenchmark benchmark) {
+      treeNodes = benchmark.treeNodes;
+      retainedObjects = benchmark.retainedObjects;
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    vf = sharing ? new MaximalSharingValueFactory(factory.getInstance()) : factory.getInstance();
+
+    final TypeFactory tf = TypeFactory.getInstance();
+    final TypeStore store = new TypeStore();
+    final Type exp = tf.abstractDataType(store, "Exp");
+    add = tf.constructor(store, exp, "add", exp, exp);
+    mul = tf.constructor(store, exp, "mul", exp, exp);
+    var = tf.constructor(store, exp, "var", tf.stringType());
+    lit = tf.constructor(store, exp, "lit", tf.integerType());
+
+    // two independently built, but equal, copies
+    left = buildAll();
+    right = buildAll();
+
+    IdentityHashMap<IValue, IValue> retained = new IdentityHashMap<>();
+    long nodes = 0;
+    for (int i = 0; i < size; i++) {
+      nodes += count(left[i], retained) + count(right[i], retained);
+    }
+    treeNodes = nodes;
+    retainedObjects = retained.size();
+  }
+
+  private IValue[] buildAll() {
+    final Random r = new Random(42);
+    final IValue[] result = new IValue[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = build(r, depth);
+    }
+    return result;
+  }
+
+  /**
+   * A small alphabet of leaves and operators, so sub-trees repeat a lot (as they do in real ASTs).
+   */
+  private IValue build(Random r, int d) {
+    if (d == 0 || r.nextInt(4) == 0) {
+      return r.nextBoolean() ? vf.constructor(var, vf.string("x" + r.nextInt(3))) : vf.constructor(lit, vf.integer(r.nextInt(3)));
+    }
+    return vf.constructor(r.nextBoolean() ? add : mul, build(r, d - 1), build(r, d - 1));
+  }
+
+  private static long count(IValue tree, IdentityHashMap<IValue, IValue> retained) {
+    retained.put(tree, tree);
+    long result = 1;
+    if (tree instanceof IConstructor) {
+      for (IValue child : (IConstructor) tree) {
+        result += count(child, retained);
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public void build(Blackhole bh) {
+    bh.consume(buildAll());
+  }
+
+  @Benchmark
+  public void equal(Blackhole bh) {
+    for (int i = 0; i < size; i++) {
+      bh.consume(left[i].equals(right[i]));
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  @Threads(1)
+  public void retention(Retention retention) {
+    // only reports the counters of retention
+  }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.usethesource.vallang.ISet;
+import io.usethesource.vallang.ISetWriter;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+
+/**
+ * Measures relational composition and transitive closure on binary relations between integer
+ * nodes drawn from a {@link DataDistribution}. The closure input is a set of disjoint chains, such that
+ * the size of the result is predictable (quadratic in the chain length).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RelationBenchmark {
+
+  @Param({"REFERENCE", "FAST", "PERSISTENT"})
+  public ValueFactoryKind factory;
+
+  // random values contain many duplicates, which connect the chains into a few huge components
+  @Param({"SEQUENTIAL", "SHIFTED", "RANDOM"})
+  public DataDistribution distribution;
+
+  @Param({"1000", "10000"})
+  public int size;
+
+  @Param({"20"})
+  public int chainLength;
+
+  private ISet graph;
+  private ISet chains;
+
+  @Setup
+  public void setUp() {
+    final IValueFactory vf = factory.getInstance();
+    final IValue[] nodes = distribution.values(vf, 42, size);
+    final Random random = new Random(43);
+
+    final ISetWriter graphWriter = vf.setWriter();
+    for (int i = 0; i < size; i++) {
+      graphWriter.insert(vf.tuple(nodes[random.nextInt(size)], nodes[random.nextInt(size)]));
+    }
+    graph = graphWriter.done();
+
+    final ISetWriter chainsWriter = vf.setWriter();
+    for (int i = 0; i + 1 < size; i++) {
+      if ((i + 1) % chainLength != 0) {
+        chainsWriter.insert(vf.tuple(nodes[i], nodes[i + 1]));
+      }
+    }
+    chains = chainsWriter.done();
+  }
+
+  @Benchmark
+  public void compose(Blackhole bh) {
+    bh.consume(graph.asRelation().compose(graph.asRelation()));
+  }
+
+  @Benchmark
+  public void closure(Blackhole bh) {
+    bh.consume(chains.asRelation().closure());
+  }
+
+  @Benchmark
+  public void closureStar(Blackhole bh) {
+    bh.consume(chains.asRelation().closureStar());
+  }
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.usethesource.vallang.ISet;
+import io.usethesource.vallang.ISetWriter;
+import io.usethesource.vallang.IValue;
+import io.usethesource.vallang.IValueFactory;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SetBenchmark {
+
+  @Param({"REFERENCE", "FAST", "PERSISTENT"})
+  public ValueFactoryKind factory;
+
+  @Param({"SEQUENTIAL", "SHIFTED", "RANDOM", "VALUES"})
+  public DataDistribution distribution;
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private IValueFactory vf;
+  private IValue[] elements;
+  private ISet set;
+  private ISet equalSet;
+  private ISet overlappingSet;
+
+  @Setup
+  public void setUp() {
+    vf = factory.getInstance();
+    elements = distribution.values(vf, 42, size);
+
+    final IValue[] others = distribution.values(vf, 43, size);
+    final IValue[] overlapping = new IValue[size];
+    System.arraycopy(elements, 0, overlapping, 0, size / 2);
+    System.arraycopy(others, size / 2, overlapping, size / 2, size - size / 2);
+
+    set = build(elements);
+    equalSet = build(elements.clone());
+    overlappingSet = build(overlapping);
+  }
+
+  private ISet build(IValue[] content) {
+    final ISetWriter writer = vf.setWriter();
+
+    for (IValue element : content) {
+      writer.insert(element);
+    }
+
+    return writer.done();
+  }
+
+  @Benchmark
+  public void insertWithWriter(Blackhole bh) {
+    bh.consume(build(elements));
+  }
+
+  @Benchmark
+  public void insert(Blackhole bh) {
+    ISet result = vf.set();
+
+    for (IValue element : elements) {
+      result = result.insert(element);
+    }
+
+    bh.consume(result);
+  }
+
+  @Benchmark
+  public void lookup(Blackhole bh) {
+    for (IValue element : elements) {
+      bh.consume(set.contains(element));
+    }
+  }
+
+  @Benchmark
+  public void iterate(Blackhole bh) {
+    for (IValue element : set) {
+      bh.consume(element);
+    }
+  }
+
+  @Benchmark
+  public void union(Blackhole bh) {
+    bh.consume(set.union(overlappingSet));
+  }
+
+  @Benchmark
+  public void intersect(Blackhole bh) {
+    bh.consume(set.intersect(overlappingSet));
+  }
+
+  @Benchmark
+  public void subtract(Blackhole bh) {
+    bh.consume(set.subtract(overlappingSet));
+  }
+
+  @Benchmark
+  public void equals(Blackhole bh) {
+    bh.consume(set.equals(equalSet));
+  }
+
+  @Benchmark
+  public void isEqual(Blackhole bh) {
+    bh.consume(set.isEqual(equalSet));
+  }
+}
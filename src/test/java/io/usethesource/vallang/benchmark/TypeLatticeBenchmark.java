@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.usethesource.vallang.type.Type;
+import io.usethesource.vallang.type.TypeFactory;
+import io.usethesource.vallang.type.TypeStore;
+
+/**
+ * Measures the sub-type relation, lub and glb on nested (relation, list, tuple and parameterized ADT) types.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TypeLatticeBenchmark {
+
+  @Param({"0", "2", "6"})
+  public int depth;
+
+  private Type integers;
+  private Type reals;
+  private Type numbers;
+
+  @Setup
+  public void setUp() {
+    final TypeFactory tf = TypeFactory.getInstance();
+    final TypeStore store = new TypeStore();
+    final Type param = tf.parameterType("T");
+    final Type box = tf.abstractDataType(store, "Box", param);
+    tf.constructor(store, box, "box", param, "content");
+
+    integers = nested(tf, store, box, tf.integerType());
+    reals = nested(tf, store, box, tf.realType());
+    numbers = nested(tf, store, box, tf.numberType());
+  }
+
+  private Type nested(TypeFactory tf, TypeStore store, Type box, Type leaf) {
+    Type result = tf.setType(leaf);
+    for (int i = 0; i < depth; i++) {
+      result = tf.relType(result, tf.listType(tf.abstractDataType(store, "Box", result)));
+    }
+    return result;
+  }
+
+  @Benchmark
+  public boolean subtype() {
+    return integers.isSubtypeOf(numbers);
+  }
+
+  @Benchmark
+  public boolean notSubtype() {
+    return integers.isSubtypeOf(reals);
+  }
+
+  @Benchmark
+  public Type lub() {
+    return integers.lub(reals);
+  }
+
+  @Benchmark
+  public Type glb() {
+    return numbers.glb(reals);
+  }
+}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2017 CWI
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package io.usethesource.vallang.benchmark;
+
+import io.usethesource.vallang.IValueFactory;
+
+/**
+ * The value factory implementations that benchmarks are parameterized over.
+ */
+public enum ValueFactoryKind {
+  REFERENCE {
+    @Override
+    public IValueFactory getInstance() {
+      return io.usethesource.vallang.impl.reference.ValueFactory.getInstance();
+    }
+  },
+  FAST {
+    @Override
+    public IValueFactory getInstance() {
+      return io.usethesource.vallang.impl.fast.ValueFactory.getInstance();
+    }
+  },
+  PERSISTENT {
+    @Override
+    public IValueFactory getInstance() {
+      return io.usethesource.vallang.impl.persistent.ValueFactory.getInstance();
+    }
+  };
+
+  public abstract IValueFactory getInstance();
+}
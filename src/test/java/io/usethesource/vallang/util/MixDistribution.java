@@ -126,6 +126,39 @@ public class MixDistribution {
 		
 	}
 	
+	/**
+	 * @return the numbers 0 until size, which exercise hash functions on their low bits only
+	 */
+	public static int[] sequentialNumbers(int size) {
+		int[] data = new int[size];
+		for (int i=0; i < data.length; i++) {
+			data[i] = i;
+		}
+		return data;
+	}
+	
+	/**
+	 * @return the numbers 0 until size shifted left by 16 bits, which exercise hash functions on their high bits only
+	 */
+	public static int[] shiftedNumbers(int size) {
+		int[] data = new int[size];
+		for (int i=0; i < data.length; i++) {
+			data[i] = i << 16;
+		}
+		return data;
+	}
+	
+	/**
+	 * @return uniformly distributed random numbers
+	 */
+	public static int[] randomNumbers(Random rand, int size) {
+		int[] data = new int[size];
+		for (int i=0; i < data.length; i++) {
+			data[i] = rand.nextInt();
+		}
+		return data;
+	}
+	
 	public static void main(String[] args) throws IOException {
 		Map<String, Mixer> mixers = new LinkedHashMap<>();
 		mixers.put("raw", new RawMix());
@@ -147,10 +180,7 @@ public class MixDistribution {
 		mixers.put("hashmap", new HashMapMix());
 		mixers.put("scala-hashmap", new ScalaHashMapMix());
 		
-		int[] data = new int[10000];
-		for (int i=0; i < data.length; i++) {
-			data[i] = i;
-		}
+		int[] data = sequentialNumbers(10000);
 		
 		System.out.println("Numbers from 1-10000");
 		for (String m : mixers.keySet()) {
@@ -160,19 +190,14 @@ public class MixDistribution {
 		System.out.println("");
 		System.out.println("");
 		System.out.println("Numbers from 1-10000 << 16");
-		for (int i=0; i < data.length; i++) {
-			data[i] = i << 16;
-		}
+		data = shiftedNumbers(10000);
 		for (String m : mixers.keySet()) {
 			reportHashDistribution(m, mix(data, mixers.get(m)));
 			reportCollisions(m, data, mixers.get(m));
 		}
 		
 		
-		Random rand = new Random();
-		for (int i=0; i < data.length; i++) {
-			data[i] = rand.nextInt();
-		}
+		data = randomNumbers(new Random(), 10000);
 		System.out.println("");
 		System.out.println("");
 		System.out.println("");
@@ -184,10 +209,7 @@ public class MixDistribution {
 		}
 		
 		
-		data = new int[512];
-		for (int i=0; i < data.length; i++) {
-			data[i] = i;
-		}
+		data = sequentialNumbers(512);
 		System.out.println("");
 		System.out.println("");
 		System.out.println("");